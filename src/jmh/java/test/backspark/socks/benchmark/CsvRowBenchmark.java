@@ -0,0 +1,62 @@
+package test.backspark.socks.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.importer.SocksCsvImporter;
+import test.backspark.socks.model.dto.SocksDto;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность построчного разбора и проверки CSV ({@link SocksCsvImporter#parseCSVLineToDto},
+ * {@link SocksCsvImporter#validateSocks}). {@code invalidPercent} - доля строк, которые отклоняются.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CsvRowBenchmark {
+    private static final int LINES = 1024;
+    private static final String[] COLORS = {"red", " Blue", "GREEN ", "black", "white"};
+
+    @Param({"0", "10"})
+    public int invalidPercent;
+
+    private SocksCsvImporter importer;
+    private String[] lines;
+
+    @Setup
+    public void setUp() {
+        importer = new SocksCsvImporter(new SocksProperties());
+        Random random = new Random(42);
+        lines = new String[LINES];
+        for (int i = 0; i < LINES; i++) {
+            lines[i] = random.nextInt(100) < invalidPercent
+                    ? COLORS[random.nextInt(COLORS.length)] + ",x," + random.nextInt(50)
+                    : COLORS[random.nextInt(COLORS.length)] + "," + random.nextInt(101) + "," + (1 + random.nextInt(50));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void parseAndValidate(Blackhole blackhole) {
+        for (int i = 0; i < lines.length; i++) {
+            try {
+                SocksDto dto = importer.parseCSVLineToDto(lines[i], i + 2);
+                importer.validateSocks(dto.getColor(), dto.getCottonPart(), dto.getQuantity(), i + 2);
+                blackhole.consume(dto);
+            } catch (IllegalArgumentException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+}
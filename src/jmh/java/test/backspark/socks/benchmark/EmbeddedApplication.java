@@ -0,0 +1,58 @@
+package test.backspark.socks.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import test.backspark.socks.SocksTestTaskApplication;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Приложение без веб-сервера поверх встроенного PostgreSQL: схема создается миграциями Flyway,
+ * поэтому бенчмарки выполняют те же SQL-запросы, что и в продакшене.
+ */
+final class EmbeddedApplication implements AutoCloseable {
+    private final EmbeddedPostgres postgres;
+    private final ConfigurableApplicationContext context;
+
+    private EmbeddedApplication(EmbeddedPostgres postgres, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.context = context;
+    }
+
+    static EmbeddedApplication start(String... properties) throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=",
+                "--spring.jpa.show-sql=false",
+                "--springdoc.api-docs.enabled=false",
+                "--logging.level.test.backspark=WARN"));
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+
+        SpringApplication application = new SpringApplication(SocksTestTaskApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        try {
+            return new EmbeddedApplication(postgres, application.run(args.toArray(String[]::new)));
+        } catch (RuntimeException e) {
+            postgres.close();
+            throw e;
+        }
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        postgres.close();
+    }
+}
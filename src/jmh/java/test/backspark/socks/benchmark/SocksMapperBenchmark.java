@@ -0,0 +1,36 @@
+package test.backspark.socks.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import test.backspark.socks.model.dto.SocksDto;
+import test.backspark.socks.model.entity.Socks;
+import test.backspark.socks.model.mapper.SocksMapper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость {@link SocksMapper#mapToDto}; аллокации на операцию видны в метрике {@code gc.alloc.rate.norm}
+ * профилировщика {@code gc}, который включен в {@code build.gradle}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SocksMapperBenchmark {
+    private final SocksMapper mapper = new SocksMapper();
+    private final Socks lowerCase = new Socks(1L, "red", 30, 100);
+    private final Socks mixedCase = new Socks(2L, "Dark Blue", 70, 100);
+
+    @Benchmark
+    public SocksDto mapLowerCaseColor() {
+        return mapper.mapToDto(lowerCase);
+    }
+
+    @Benchmark
+    public SocksDto mapMixedCaseColor() {
+        return mapper.mapToDto(mixedCase);
+    }
+}
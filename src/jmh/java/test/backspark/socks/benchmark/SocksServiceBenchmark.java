@@ -0,0 +1,78 @@
+package test.backspark.socks.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import test.backspark.socks.model.dto.SocksDto;
+import test.backspark.socks.service.SocksService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сквозные вызовы {@link SocksService} через Spring-прокси (транзакции, события, кэш) поверх встроенного
+ * PostgreSQL. Операции распределены по {@link #KEYS} ключам, чтобы не мерить только блокировку одной строки.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SocksServiceBenchmark {
+    private static final int KEYS = 64;
+    private static final String[] COLORS = {"red", "blue", "green", "black"};
+    /**
+     * Начальный остаток ключа: суммы фильтра укладываются в int, а списаний по одному хватает на весь прогон.
+     */
+    private static final int STOCK = 1_000_000;
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    private EmbeddedApplication application;
+    private SocksService socksService;
+    private SocksDto[] movements;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        application = EmbeddedApplication.start("socks.cache.enabled=" + cacheEnabled);
+        socksService = application.bean(SocksService.class);
+        movements = new SocksDto[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            String color = COLORS[i % COLORS.length];
+            int cottonPart = i * 100 / KEYS;
+            socksService.income(new SocksDto(null, color, cottonPart, STOCK));
+            movements[i] = new SocksDto(null, color, cottonPart, 1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        application.close();
+    }
+
+    private SocksDto nextMovement() {
+        next = (next + 1) % KEYS;
+        return movements[next];
+    }
+
+    @Benchmark
+    public SocksDto income() {
+        return socksService.income(nextMovement());
+    }
+
+    @Benchmark
+    public SocksDto outcome() {
+        return socksService.outcome(nextMovement());
+    }
+
+    @Benchmark
+    public Long getSocksAmountByFilter() {
+        return socksService.getSocksAmountByFilter("red", "moreThan", 30, null, null, null, null);
+    }
+}
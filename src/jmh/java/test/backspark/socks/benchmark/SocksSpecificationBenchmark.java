@@ -0,0 +1,65 @@
+package test.backspark.socks.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import test.backspark.socks.model.dto.SocksFilter;
+import test.backspark.socks.model.entity.Socks;
+import test.backspark.socks.specification.SocksSpecification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение предиката {@link SocksSpecification#byFilter} через Hibernate Criteria API, без обращения к базе.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SocksSpecificationBenchmark {
+
+    @Param({"color", "operator", "range", "all"})
+    public String shape;
+
+    private EmbeddedApplication application;
+    private EntityManager entityManager;
+    private SocksFilter filter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        application = EmbeddedApplication.start();
+        entityManager = application.bean(EntityManagerFactory.class).createEntityManager();
+        filter = switch (shape) {
+            case "color" -> SocksFilter.of("red", null, null, null, null);
+            case "operator" -> SocksFilter.of(null, "moreThan", 30, null, null);
+            case "range" -> SocksFilter.of(null, null, null, 20, 80);
+            default -> SocksFilter.of("red", "lessThan", 90, 20, 80);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        entityManager.close();
+        application.close();
+    }
+
+    @Benchmark
+    public Predicate buildPredicate() {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Socks> root = query.from(Socks.class);
+        return SocksSpecification.byFilter(filter).toPredicate(root, query, criteriaBuilder);
+    }
+}
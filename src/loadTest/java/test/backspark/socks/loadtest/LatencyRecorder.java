@@ -0,0 +1,62 @@
+package test.backspark.socks.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Задержки (HdrHistogram, микросекунды) и исходы запросов по каждой операции. Пока идет прогрев,
+ * ничего не записывается.
+ */
+final class LatencyRecorder {
+    private static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, Map<StockLedger.Outcome, LongAdder>> outcomes = new EnumMap<>(Operation.class);
+    private volatile boolean recording;
+
+    LatencyRecorder() {
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new ConcurrentHistogram(MAX_MICROS, 3));
+            Map<StockLedger.Outcome, LongAdder> counters = new EnumMap<>(StockLedger.Outcome.class);
+            for (StockLedger.Outcome outcome : StockLedger.Outcome.values()) {
+                counters.put(outcome, new LongAdder());
+            }
+            outcomes.put(operation, counters);
+        }
+    }
+
+    void startRecording() {
+        recording = true;
+    }
+
+    void stopRecording() {
+        recording = false;
+    }
+
+    void record(Operation operation, long elapsedNanos, StockLedger.Outcome outcome) {
+        if (!recording) {
+            return;
+        }
+        histograms.get(operation).recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), MAX_MICROS));
+        outcomes.get(operation).get(outcome).increment();
+    }
+
+    Map<String, Object> summary(Operation operation, double seconds) {
+        Histogram histogram = histograms.get(operation);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", histogram.getTotalCount());
+        summary.put("throughputPerSecond", histogram.getTotalCount() / seconds);
+        summary.put("p50Millis", histogram.getValueAtPercentile(50) / 1000.0);
+        summary.put("p99Millis", histogram.getValueAtPercentile(99) / 1000.0);
+        summary.put("p999Millis", histogram.getValueAtPercentile(99.9) / 1000.0);
+        summary.put("maxMillis", histogram.getMaxValue() / 1000.0);
+        outcomes.get(operation).forEach((outcome, count) -> summary.put(outcome.name().toLowerCase(), count.sum()));
+        return summary;
+    }
+}
@@ -0,0 +1,190 @@
+package test.backspark.socks.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Гоняет смесь операций из {@code config.threads()} потоков по HTTP. Каждый поток выбирает операцию по весам
+ * из {@code mix}, а ключ - с перекосом в сторону горячих ключей.
+ */
+final class LoadDriver {
+    private static final String BOUNDARY = "socks-load-test";
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadTestConfig config;
+    private final URI baseUri;
+    private final StockLedger ledger;
+    private final LatencyRecorder recorder;
+    private final HttpClient client;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    LoadDriver(LoadTestConfig config, URI baseUri, StockLedger ledger, LatencyRecorder recorder) {
+        this.config = config;
+        this.baseUri = baseUri;
+        this.ledger = ledger;
+        this.recorder = recorder;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(TIMEOUT)
+                .build();
+
+        List<Map.Entry<Operation, Integer>> weights = new ArrayList<>(config.mix().entrySet());
+        weights.removeIf(entry -> entry.getValue() <= 0);
+        this.operations = new Operation[weights.size()];
+        this.cumulativeWeights = new int[weights.size()];
+        int total = 0;
+        for (int i = 0; i < weights.size(); i++) {
+            total += weights.get(i).getValue();
+            operations[i] = weights.get(i).getKey();
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    static String color(int key) {
+        return "load" + key / 101;
+    }
+
+    static int cottonPart(int key) {
+        return key % 101;
+    }
+
+    void seed() throws IOException, InterruptedException {
+        for (int key = 0; key < config.keys(); key++) {
+            HttpResponse<Void> response = send(movement("income", key, config.initialStock()));
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding key " + key + " failed with status " + response.statusCode());
+            }
+        }
+    }
+
+    void run() throws InterruptedException {
+        long warmupEnd = System.nanoTime() + config.warmup().toNanos();
+        long end = warmupEnd + config.duration().toNanos();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < config.threads(); i++) {
+            Thread worker = new Thread(() -> work(end), "load-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+
+        TimeUnit.NANOSECONDS.sleep(Math.max(warmupEnd - System.nanoTime(), 0));
+        recorder.startRecording();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        recorder.stopRecording();
+    }
+
+    private void work(long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            Operation operation = nextOperation(random);
+            switch (operation) {
+                case INCOME -> {
+                    int key = nextKey(random);
+                    int quantity = 1 + random.nextInt(5);
+                    StockLedger.Outcome outcome = timed(operation, movement("income", key, quantity));
+                    ledger.income(key, quantity, outcome);
+                }
+                case OUTCOME -> {
+                    int key = nextKey(random);
+                    int quantity = 1 + random.nextInt(5);
+                    StockLedger.Outcome outcome = timed(operation, movement("outcome", key, quantity));
+                    ledger.outcome(key, quantity, outcome);
+                }
+                case FILTER -> {
+                    int key = nextKey(random);
+                    timed(operation, HttpRequest.newBuilder(baseUri.resolve("/api/socks?color=" + color(key)
+                                    + "&operator=moreThan&cottonPart=" + cottonPart(key)))
+                            .timeout(TIMEOUT)
+                            .GET()
+                            .build());
+                }
+                case BATCH -> batch(random);
+            }
+        }
+    }
+
+    private void batch(ThreadLocalRandom random) {
+        int[] keys = new int[config.batchRows()];
+        int[] quantities = new int[config.batchRows()];
+        StringBuilder csv = new StringBuilder("color,cottonPart,quantity\n");
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = nextKey(random);
+            quantities[i] = 1 + random.nextInt(5);
+            csv.append(color(keys[i])).append(',').append(cottonPart(keys[i])).append(',').append(quantities[i]).append('\n');
+        }
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"load.csv\"\r\n"
+                + "Content-Type: text/csv\r\n\r\n"
+                + csv
+                + "\r\n--" + BOUNDARY + "--\r\n";
+        StockLedger.Outcome outcome = timed(Operation.BATCH, HttpRequest.newBuilder(baseUri.resolve("/api/socks/batch"))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build());
+        for (int i = 0; i < keys.length; i++) {
+            ledger.income(keys[i], quantities[i], outcome);
+        }
+    }
+
+    private HttpRequest movement(String path, int key, int quantity) {
+        String json = "{\"color\":\"" + color(key) + "\",\"cottonPart\":" + cottonPart(key) + ",\"quantity\":" + quantity + "}";
+        return HttpRequest.newBuilder(baseUri.resolve("/api/socks/" + path))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private StockLedger.Outcome timed(Operation operation, HttpRequest request) {
+        long started = System.nanoTime();
+        StockLedger.Outcome outcome;
+        try {
+            int status = send(request).statusCode();
+            outcome = status == 200 ? StockLedger.Outcome.CONFIRMED
+                    : status < 500 ? StockLedger.Outcome.REJECTED
+                    : StockLedger.Outcome.UNKNOWN;
+        } catch (IOException e) {
+            outcome = StockLedger.Outcome.UNKNOWN;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = StockLedger.Outcome.UNKNOWN;
+        }
+        recorder.record(operation, System.nanoTime() - started, outcome);
+        return outcome;
+    }
+
+    private HttpResponse<Void> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    private Operation nextOperation(ThreadLocalRandom random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private int nextKey(ThreadLocalRandom random) {
+        if (config.hotKeys() > 0 && (config.hotKeys() == config.keys() || random.nextInt(100) < config.hotShare())) {
+            return random.nextInt(config.hotKeys());
+        }
+        return config.hotKeys() + random.nextInt(config.keys() - config.hotKeys());
+    }
+}
@@ -0,0 +1,170 @@
+package test.backspark.socks.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import test.backspark.socks.SocksTestTaskApplication;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Нагрузочный прогон: поднимает встроенный PostgreSQL и приложение на случайном порту, засевает склад,
+ * гоняет смесь операций и сверяет итоговые остатки в базе с тем, что подтвердил сервис.
+ * <p>
+ * Потерянное обновление - остаток меньше, чем должен быть по подтвержденным операциям; лишняя запись -
+ * больше; перепродажа - подтвержденный расход превысил все, что могло быть на складе, или остаток ушел в минус.
+ * Код выхода 1, если найдено хотя бы одно нарушение.
+ */
+public final class LoadTest {
+    private static final Path REPORT = Path.of("build", "reports", "load-test", "result.json");
+    private static final int EXAMPLES = 10;
+    /**
+     * Остаток ключа как снимок плюс неуплотненный хвост журнала движений, одним запросом.
+     */
+    private static final String STOCK = """
+            SELECT (SELECT coalesce(sum(quantity), 0) FROM socks WHERE color = ? AND cotton_part = ?)
+                 + (SELECT coalesce(sum(delta), 0) FROM socks_movement WHERE color = ? AND cotton_part = ?)
+            """;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        Map<String, Object> report;
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+             ConfigurableApplicationContext context = start(postgres, config)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            StockLedger ledger = new StockLedger(config.keys(), config.initialStock());
+            LatencyRecorder recorder = new LatencyRecorder();
+            LoadDriver driver = new LoadDriver(config, URI.create("http://localhost:" + port), ledger, recorder);
+
+            driver.seed();
+            driver.run();
+            Map<Integer, Long> stock = settledStock(context.getBean(JdbcTemplate.class), config);
+            report = report(config, recorder, check(config, ledger, stock));
+        }
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        String json = mapper.writeValueAsString(report);
+        Files.createDirectories(REPORT.getParent());
+        Files.writeString(REPORT, json);
+        System.out.println(json);
+        System.out.println("Report written to " + REPORT.toAbsolutePath());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> consistency = (Map<String, Object>) report.get("consistency");
+        System.exit(Boolean.TRUE.equals(consistency.get("passed")) ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext start(EmbeddedPostgres postgres, LoadTestConfig config) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=",
+                "--spring.datasource.hikari.maximum-pool-size=" + Math.max(10, config.threads() / 2),
+                "--spring.jpa.show-sql=false",
+                "--logging.level.test.backspark=WARN"));
+        args.addAll(config.applicationArgs());
+        return SpringApplication.run(SocksTestTaskApplication.class, args.toArray(String[]::new));
+    }
+
+    /**
+     * Отложенные записи (write-behind, резервирование) доезжают до базы асинхронно, поэтому остатки
+     * читаются, пока два чтения подряд не совпадут.
+     */
+    private static Map<Integer, Long> settledStock(JdbcTemplate jdbcTemplate, LoadTestConfig config) throws InterruptedException {
+        Map<Integer, Long> previous = readStock(jdbcTemplate, config);
+        for (int attempt = 0; attempt < 50; attempt++) {
+            Thread.sleep(200);
+            Map<Integer, Long> current = readStock(jdbcTemplate, config);
+            if (current.equals(previous)) {
+                return current;
+            }
+            previous = current;
+        }
+        return previous;
+    }
+
+    private static Map<Integer, Long> readStock(JdbcTemplate jdbcTemplate, LoadTestConfig config) {
+        Map<Integer, Long> stock = new LinkedHashMap<>();
+        for (int key = 0; key < config.keys(); key++) {
+            String color = LoadDriver.color(key);
+            int cottonPart = LoadDriver.cottonPart(key);
+            Long quantity = jdbcTemplate.queryForObject(STOCK, Long.class, color, cottonPart, color, cottonPart);
+            stock.put(key, Objects.requireNonNullElse(quantity, 0L));
+        }
+        return stock;
+    }
+
+    private static Map<String, Object> check(LoadTestConfig config, StockLedger ledger, Map<Integer, Long> stock) {
+        List<String> lostUpdates = new ArrayList<>();
+        List<String> phantomWrites = new ArrayList<>();
+        List<String> oversells = new ArrayList<>();
+        for (int key = 0; key < config.keys(); key++) {
+            long actual = stock.get(key);
+            String description = LoadDriver.color(key) + "/" + LoadDriver.cottonPart(key) + ": actual=" + actual
+                    + ", expected=[" + ledger.minExpected(key) + ", " + ledger.maxExpected(key) + "]";
+            if (actual < 0 || ledger.oversold(key)) {
+                oversells.add(description);
+            }
+            if (actual < ledger.minExpected(key)) {
+                lostUpdates.add(description);
+            } else if (actual > ledger.maxExpected(key)) {
+                phantomWrites.add(description);
+            }
+        }
+
+        Map<String, Object> consistency = new LinkedHashMap<>();
+        consistency.put("passed", lostUpdates.isEmpty() && phantomWrites.isEmpty() && oversells.isEmpty());
+        consistency.put("lostUpdates", lostUpdates.size());
+        consistency.put("phantomWrites", phantomWrites.size());
+        consistency.put("oversells", oversells.size());
+        List<String> examples = new ArrayList<>();
+        examples.addAll(lostUpdates.subList(0, Math.min(EXAMPLES, lostUpdates.size())));
+        examples.addAll(phantomWrites.subList(0, Math.min(EXAMPLES, phantomWrites.size())));
+        examples.addAll(oversells.subList(0, Math.min(EXAMPLES, oversells.size())));
+        consistency.put("examples", examples);
+        return consistency;
+    }
+
+    private static Map<String, Object> report(LoadTestConfig config, LatencyRecorder recorder, Map<String, Object> consistency) {
+        double seconds = config.duration().toMillis() / 1000.0;
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("threads", config.threads());
+        parameters.put("warmupSeconds", config.warmup().toSeconds());
+        parameters.put("durationSeconds", seconds);
+        parameters.put("mix", config.mix());
+        parameters.put("keys", config.keys());
+        parameters.put("hotKeys", config.hotKeys());
+        parameters.put("hotShare", config.hotShare());
+        parameters.put("initialStock", config.initialStock());
+        parameters.put("batchRows", config.batchRows());
+        parameters.put("applicationArgs", config.applicationArgs());
+
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            if (config.mix().getOrDefault(operation, 0) > 0) {
+                operations.put(operation.name().toLowerCase(), recorder.summary(operation, seconds));
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("parameters", parameters);
+        report.put("operations", operations);
+        report.put("consistency", consistency);
+        return report;
+    }
+}
@@ -0,0 +1,79 @@
+package test.backspark.socks.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Параметры прогона в виде {@code key=value}. Параметры с префиксами {@code socks.}, {@code spring.}
+ * и {@code server.} передаются приложению без изменений, например {@code socks.outcome.mode=reserve}.
+ *
+ * @param keys         число ключей (color, cottonPart) в складе
+ * @param hotKeys      сколько первых ключей считаются горячими
+ * @param hotShare     доля операций в процентах, которая приходится на горячие ключи
+ * @param initialStock начальный остаток каждого ключа
+ * @param batchRows    строк в одном CSV пакетного импорта
+ */
+record LoadTestConfig(int threads, Duration warmup, Duration duration, Map<Operation, Integer> mix,
+                      int keys, int hotKeys, int hotShare, int initialStock, int batchRows,
+                      List<String> applicationArgs) {
+
+    static LoadTestConfig parse(String[] args) {
+        int threads = 32;
+        Duration warmup = Duration.ofSeconds(5);
+        Duration duration = Duration.ofSeconds(30);
+        Map<Operation, Integer> mix = parseMix("income:40,outcome:40,filter:15,batch:5");
+        int keys = 200;
+        int hotKeys = 4;
+        int hotShare = 80;
+        int initialStock = 1000;
+        int batchRows = 200;
+        List<String> applicationArgs = new ArrayList<>();
+
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            String key = arg.substring(0, separator);
+            String value = arg.substring(separator + 1);
+            switch (key) {
+                case "threads" -> threads = Integer.parseInt(value);
+                case "warmup" -> warmup = parseDuration(value);
+                case "duration" -> duration = parseDuration(value);
+                case "mix" -> mix = parseMix(value);
+                case "keys" -> keys = Integer.parseInt(value);
+                case "hotKeys" -> hotKeys = Integer.parseInt(value);
+                case "hotShare" -> hotShare = Integer.parseInt(value);
+                case "initialStock" -> initialStock = Integer.parseInt(value);
+                case "batchRows" -> batchRows = Integer.parseInt(value);
+                default -> {
+                    if (!key.startsWith("socks.") && !key.startsWith("spring.") && !key.startsWith("server.")) {
+                        throw new IllegalArgumentException("Unknown parameter " + key);
+                    }
+                    applicationArgs.add("--" + arg);
+                }
+            }
+        }
+        if (hotKeys > keys) {
+            throw new IllegalArgumentException("hotKeys must not exceed keys");
+        }
+        return new LoadTestConfig(threads, warmup, duration, mix, keys, hotKeys, hotShare, initialStock, batchRows,
+                List.copyOf(applicationArgs));
+    }
+
+    private static Duration parseDuration(String value) {
+        return Duration.parse("PT" + value.toUpperCase());
+    }
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : value.split(",")) {
+            String[] weight = part.split(":");
+            mix.put(Operation.valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim()));
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,8 @@
+package test.backspark.socks.loadtest;
+
+enum Operation {
+    INCOME,
+    OUTCOME,
+    FILTER,
+    BATCH
+}
@@ -0,0 +1,61 @@
+package test.backspark.socks.loadtest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Что клиент знает об остатках по ответам сервиса. Подтвержденные (200) изменения должны попасть в базу,
+ * отклоненные (4xx) - нет; для запросов без ответа (таймаут, 5xx) результат неизвестен, и они расширяют
+ * допустимый диапазон итогового остатка.
+ */
+final class StockLedger {
+    private final int initialStock;
+    private final AtomicLongArray confirmedIn;
+    private final AtomicLongArray confirmedOut;
+    private final AtomicLongArray unknownIn;
+    private final AtomicLongArray unknownOut;
+
+    StockLedger(int keys, int initialStock) {
+        this.initialStock = initialStock;
+        this.confirmedIn = new AtomicLongArray(keys);
+        this.confirmedOut = new AtomicLongArray(keys);
+        this.unknownIn = new AtomicLongArray(keys);
+        this.unknownOut = new AtomicLongArray(keys);
+    }
+
+    void income(int key, int quantity, Outcome outcome) {
+        if (outcome == Outcome.CONFIRMED) {
+            confirmedIn.addAndGet(key, quantity);
+        } else if (outcome == Outcome.UNKNOWN) {
+            unknownIn.addAndGet(key, quantity);
+        }
+    }
+
+    void outcome(int key, int quantity, Outcome outcome) {
+        if (outcome == Outcome.CONFIRMED) {
+            confirmedOut.addAndGet(key, quantity);
+        } else if (outcome == Outcome.UNKNOWN) {
+            unknownOut.addAndGet(key, quantity);
+        }
+    }
+
+    /**
+     * Подтвержденный расход больше, чем могло быть на складе даже с учетом неизвестных приходов.
+     */
+    boolean oversold(int key) {
+        return confirmedOut.get(key) > initialStock + confirmedIn.get(key) + unknownIn.get(key);
+    }
+
+    long minExpected(int key) {
+        return initialStock + confirmedIn.get(key) - confirmedOut.get(key) - unknownOut.get(key);
+    }
+
+    long maxExpected(int key) {
+        return initialStock + confirmedIn.get(key) + unknownIn.get(key) - confirmedOut.get(key);
+    }
+
+    enum Outcome {
+        CONFIRMED,
+        REJECTED,
+        UNKNOWN
+    }
+}
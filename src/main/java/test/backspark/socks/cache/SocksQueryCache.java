@@ -0,0 +1,103 @@
+package test.backspark.socks.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.event.InventoryChangedEvent;
+import test.backspark.socks.event.ReservationPersistedEvent;
+import test.backspark.socks.inventory.InventoryVersion;
+import test.backspark.socks.model.dto.CacheStatsDto;
+import test.backspark.socks.model.dto.SocksFilter;
+import test.backspark.socks.model.dto.SocksKey;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+@Component
+public class SocksQueryCache implements MeterBinder {
+
+    private final boolean enabled;
+    private final int preciseEvictionLimit;
+    private final Cache<SocksFilter, Long> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public SocksQueryCache(SocksProperties properties) {
+        SocksProperties.QueryCache config = properties.getCache();
+        this.enabled = config.isEnabled();
+        this.preciseEvictionLimit = config.getPreciseEvictionLimit();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getExpireAfterWrite())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Значение, загруженное до коммита конкурирующей записи, не должно остаться в кэше:
+     * поколение запоминается до загрузки и сверяется после вставки.
+     */
+    public Long get(SocksFilter filter, Supplier<Long> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Long cached = cache.getIfPresent(filter);
+        if (cached != null) {
+            return cached;
+        }
+
+        long observed = generation.get();
+        Long value = loader.get();
+        cache.put(filter, value);
+        if (generation.get() != observed) {
+            cache.invalidate(filter);
+        }
+        return value;
+    }
+
+    public void evict(Set<SocksKey> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        generation.incrementAndGet();
+        if (keys.size() > preciseEvictionLimit) {
+            cache.invalidateAll();
+        } else {
+            cache.asMap().keySet().removeIf(filter -> filter.matchesAny(keys));
+        }
+    }
+
+    /**
+     * Публикует статистику Caffeine как {@code cache.gets{cache=socks-query, result=hit|miss}} и т. д.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "socks-query");
+    }
+
+    @Order(InventoryVersion.VIEWS_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        evict(event.deltas().keySet());
+    }
+
+    @Order(InventoryVersion.VIEWS_ORDER)
+    @EventListener
+    public void onReservationPersisted(ReservationPersistedEvent event) {
+        evict(Set.of(event.key()));
+    }
+
+    public CacheStatsDto stats() {
+        CacheStats stats = cache.stats();
+        return new CacheStatsDto(stats.hitCount(), stats.missCount(), stats.hitRate(),
+                stats.evictionCount(), cache.estimatedSize());
+    }
+}
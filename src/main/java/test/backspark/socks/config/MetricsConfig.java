@@ -0,0 +1,19 @@
+package test.backspark.socks.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Включает {@link io.micrometer.core.annotation.Timed} на методах бинов: таймеры сервиса
+ * публикуются как {@code socks.service{class, method}}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
@@ -0,0 +1,114 @@
+package test.backspark.socks.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "socks")
+public class SocksProperties {
+
+    private Batch batch = new Batch();
+    private QueryCache cache = new QueryCache();
+    private PrefixIndex prefixIndex = new PrefixIndex();
+    private Store store = new Store();
+    private Outcome outcome = new Outcome();
+    private WriteBehind writeBehind = new WriteBehind();
+    private LocalImport localImport = new LocalImport();
+    private Jobs jobs = new Jobs();
+    private Execution execution = new Execution();
+    private Ledger ledger = new Ledger();
+    private Listing listing = new Listing();
+    private BatchQuery batchQuery = new BatchQuery();
+
+    @Data
+    public static class Batch {
+        private int chunkSize = 5000;
+        private int parallelism = 0;
+        private DataSize parseRangeSize = DataSize.ofMegabytes(1);
+        private int maxRejections = 1000;
+    }
+
+    @Data
+    public static class QueryCache {
+        private boolean enabled = true;
+        private long maximumSize = 10_000;
+        private Duration expireAfterWrite = Duration.ofMinutes(1);
+        private int preciseEvictionLimit = 64;
+    }
+
+    @Data
+    public static class PrefixIndex {
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class Store {
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class Outcome {
+        private OutcomeMode mode = OutcomeMode.DATABASE;
+        private int queueCapacity = 10_000;
+        private int maxBatchSize = 1000;
+    }
+
+    @Data
+    public static class WriteBehind {
+        private boolean enabled = false;
+        private Duration flushInterval = Duration.ofMillis(5);
+        private int maxBatchSize = 1000;
+    }
+
+    @Data
+    public static class LocalImport {
+        private boolean enabled = false;
+        private Path directory;
+    }
+
+    @Data
+    public static class Jobs {
+        private int threads = 2;
+        private int queueCapacity = 16;
+        private DataSize chunkSize = DataSize.ofMegabytes(8);
+        private Path spoolDirectory = Path.of(System.getProperty("java.io.tmpdir"), "socks-import-jobs");
+    }
+
+    @Data
+    public static class Execution {
+        private ExecutionMode mode = ExecutionMode.PLATFORM;
+    }
+
+    @Data
+    public static class Ledger {
+        private boolean enabled = false;
+        private Duration compactionInterval = Duration.ofSeconds(1);
+        private int compactionBatchSize = 10_000;
+        private int partitionsAhead = 3;
+    }
+
+    @Data
+    public static class Listing {
+        private int fetchSize = 1000;
+        private Duration timeout = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class BatchQuery {
+        private int maxFilters = 200;
+    }
+
+    public enum OutcomeMode {
+        DATABASE,
+        RESERVE
+    }
+
+    public enum ExecutionMode {
+        PLATFORM,
+        VIRTUAL
+    }
+}
@@ -0,0 +1,39 @@
+package test.backspark.socks.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import test.backspark.socks.importer.RejectionReport;
+import test.backspark.socks.model.dto.ImportJobDto;
+import test.backspark.socks.service.ImportJobService;
+
+@RestController
+@RequestMapping("/api/socks/jobs")
+@RequiredArgsConstructor
+public class ImportJobController {
+
+    private final ImportJobService importJobService;
+
+    @PostMapping
+    public ResponseEntity<ImportJobDto> submit(@RequestParam("file") MultipartFile file) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(importJobService.submit(file));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportJobDto> get(@PathVariable Long id) {
+        return ResponseEntity.ok(importJobService.get(id));
+    }
+
+    @GetMapping("/{id}/rejections")
+    public ResponseEntity<String> rejections(@PathVariable Long id) {
+        RejectionReport report = importJobService.rejections(id);
+        return RejectionReportResponses.csv(report, "job-" + id + "-rejections.csv");
+    }
+}
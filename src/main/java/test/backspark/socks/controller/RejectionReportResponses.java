@@ -0,0 +1,41 @@
+package test.backspark.socks.controller;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import test.backspark.socks.importer.RejectionCsv;
+import test.backspark.socks.importer.RejectionReport;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Ответ с отчетом об отклоненных строках в виде скачиваемого CSV. Общие счетчики, в том числе
+ * по строкам, не попавшим в отчет, передаются в заголовках.
+ */
+final class RejectionReportResponses {
+    static final String TOTAL_HEADER = "X-Rejected-Total";
+    static final String DROPPED_HEADER = "X-Rejected-Dropped";
+    static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    private RejectionReportResponses() {
+    }
+
+    static ResponseEntity<String> csv(RejectionReport report, String fileName) {
+        StringWriter body = new StringWriter();
+        try {
+            RejectionCsv.write(report, body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ResponseEntity.ok()
+                .contentType(TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .header(TOTAL_HEADER, Long.toString(report.total()))
+                .header(DROPPED_HEADER, Long.toString(report.dropped()))
+                .body(body.toString());
+    }
+}
@@ -0,0 +1,22 @@
+package test.backspark.socks.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import test.backspark.socks.cache.SocksQueryCache;
+import test.backspark.socks.model.dto.CacheStatsDto;
+
+@RestController
+@RequestMapping("/api/socks/cache")
+@RequiredArgsConstructor
+public class SocksCacheController {
+
+    private final SocksQueryCache socksQueryCache;
+
+    @GetMapping("/stats")
+    public ResponseEntity<CacheStatsDto> stats() {
+        return ResponseEntity.ok(socksQueryCache.stats());
+    }
+}
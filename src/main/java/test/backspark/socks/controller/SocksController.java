@@ -1,13 +1,31 @@
 package test.backspark.socks.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.importer.RejectionReport;
+import test.backspark.socks.inventory.InventoryVersion;
+import test.backspark.socks.model.dto.BatchImportSummary;
+import test.backspark.socks.model.dto.BulkMode;
+import test.backspark.socks.model.dto.BulkMovementResult;
 import test.backspark.socks.model.dto.SocksDto;
+import test.backspark.socks.model.dto.SocksFilter;
+import test.backspark.socks.model.dto.SocksTotalDto;
+import test.backspark.socks.model.dto.TotalsGroupBy;
 import test.backspark.socks.service.SocksService;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -16,6 +34,9 @@ import java.util.List;
 public class SocksController {
 
     private final SocksService socksService;
+    private final ObjectMapper objectMapper;
+    private final InventoryVersion inventoryVersion;
+    private final SocksProperties socksProperties;
 
     @PostMapping("/income")
     public ResponseEntity<SocksDto> income(@RequestBody @Valid SocksDto socksDto) {
@@ -29,6 +50,22 @@ public class SocksController {
         return ResponseEntity.ok(result);
     }
 
+    @PostMapping("/income/bulk")
+    public ResponseEntity<BulkMovementResult> bulkIncome(
+            @RequestBody List<SocksDto> items,
+            @RequestParam(defaultValue = "ALL_OR_NOTHING") BulkMode mode) {
+        BulkMovementResult result = socksService.bulkIncome(items, mode);
+        return ResponseEntity.status(result.isApplied() ? HttpStatus.OK : HttpStatus.BAD_REQUEST).body(result);
+    }
+
+    @PostMapping("/outcome/bulk")
+    public ResponseEntity<BulkMovementResult> bulkOutcome(
+            @RequestBody List<SocksDto> items,
+            @RequestParam(defaultValue = "ALL_OR_NOTHING") BulkMode mode) {
+        BulkMovementResult result = socksService.bulkOutcome(items, mode);
+        return ResponseEntity.status(result.isApplied() ? HttpStatus.OK : HttpStatus.BAD_REQUEST).body(result);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<SocksDto> update(@PathVariable Long id, @RequestBody @Valid SocksDto socksDto) {
         SocksDto result = socksService.update(id, socksDto);
@@ -41,17 +78,109 @@ public class SocksController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * Импортирует файл так же, как {@code /batch}, но вместо остатков возвращает CSV с отклоненными строками.
+     */
+    @PostMapping("/batch/report")
+    public ResponseEntity<String> batchIncomeReport(@RequestParam("file") MultipartFile file) {
+        RejectionReport report = socksService.batchIncomeReport(file);
+        return RejectionReportResponses.csv(report, "rejections.csv");
+    }
+
+    @PostMapping(value = "/batch/stream", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<BatchImportSummary> streamBatchIncome(HttpServletRequest request) throws IOException {
+        BatchImportSummary result = socksService.streamBatchIncome(request.getInputStream());
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/batch/local")
+    public ResponseEntity<BatchImportSummary> localBatchIncome(@RequestParam("path") String path) {
+        BatchImportSummary result = socksService.localBatchIncome(path);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Отвечает ETag по версии остатков (по цвету, если он задан); на совпавший {@code If-None-Match}
+     * возвращает 304, не обращаясь к базе. Версия берется до чтения, поэтому ответ никогда не помечается
+     * версией новее своих данных. Параметры {@code sortBy} и {@code sortDirection} принимаются, но на сумму не влияют.
+     */
     @GetMapping
-    public ResponseEntity<Integer> getSocks(
+    public ResponseEntity<Long> getSocks(
             @RequestParam(required = false) String color,
             @RequestParam(required = false) String operator,
             @RequestParam(required = false) Integer cottonPart,
             @RequestParam(required = false) Integer minCottonPart,
             @RequestParam(required = false) Integer maxCottonPart,
             @RequestParam(required = false) String sortBy,
-            @RequestParam(required = false) String sortDirection
+            @RequestParam(required = false) String sortDirection,
+            WebRequest webRequest
+    ) {
+        String etag = inventoryVersion.etag(SocksFilter.of(color, operator, cottonPart, minCottonPart, maxCottonPart).color());
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        Long count = socksService.getSocksAmountByFilter(color, operator, cottonPart, minCottonPart, maxCottonPart, sortBy, sortDirection);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(count);
+    }
+
+    /**
+     * Суммарные остатки сразу по списку фильтров с полями {@code GET /api/socks}; ответ - суммы в порядке фильтров.
+     */
+    @PostMapping("/amounts")
+    public ResponseEntity<List<Long>> getSocksAmounts(@RequestBody List<SocksFilter> filters) {
+        List<Long> amounts = socksService.getSocksAmountsByFilters(filters);
+        return ResponseEntity.ok(amounts);
+    }
+
+    /**
+     * Суммарные остатки по цветам, по интервалам содержания хлопка шириной {@code bucketWidth} или по обоим сразу.
+     * Фильтры те же, что и у {@code GET /api/socks}.
+     */
+    @GetMapping("/totals")
+    public ResponseEntity<List<SocksTotalDto>> getSocksTotals(
+            @RequestParam(required = false) String color,
+            @RequestParam(required = false) String operator,
+            @RequestParam(required = false) Integer cottonPart,
+            @RequestParam(required = false) Integer minCottonPart,
+            @RequestParam(required = false) Integer maxCottonPart,
+            @RequestParam(defaultValue = "COLOR") TotalsGroupBy groupBy,
+            @RequestParam(defaultValue = "10") int bucketWidth
+    ) {
+        SocksFilter filter = SocksFilter.of(color, operator, cottonPart, minCottonPart, maxCottonPart);
+        List<SocksTotalDto> totals = socksService.getSocksTotals(filter, groupBy, bucketWidth);
+        return ResponseEntity.ok(totals);
+    }
+
+    /**
+     * Полная выгрузка позиций по тем же фильтрам, что и {@code GET /api/socks}, в порядке id.
+     * Следующая страница запрашивается с {@code afterId}, равным id последней полученной позиции.
+     * Пока ответ пишется, запрос держит транзакцию и соединение из пула, поэтому медленному клиенту лучше
+     * читать страницами по {@code limit}. Выгрузку ограничивает {@code socks.listing.timeout}: по его истечении
+     * ответ закрывается, и следующая запись в него прерывает чтение и освобождает соединение.
+     */
+    @GetMapping(value = "/list", produces = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public ResponseEntity<StreamingResponseBody> listSocks(
+            @RequestParam(required = false) String color,
+            @RequestParam(required = false) String operator,
+            @RequestParam(required = false) Integer cottonPart,
+            @RequestParam(required = false) Integer minCottonPart,
+            @RequestParam(required = false) Integer maxCottonPart,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest webRequest
     ) {
-        Integer count = socksService.getSocksAmountByFilter(color, operator, cottonPart, minCottonPart, maxCottonPart, sortBy, sortDirection);
-        return ResponseEntity.ok(count);
+        SocksFilter filter = SocksFilter.of(color, operator, cottonPart, minCottonPart, maxCottonPart);
+        // неверный оператор должен вернуть ошибку до того, как начнется ответ
+        filter.lowerCottonBound();
+        SocksListingResponses.timeout(webRequest, socksProperties.getListing().getTimeout());
+        SocksListingResponses.Listing listing = consumer -> socksService.streamSocks(filter, afterId, limit, consumer);
+        if (SocksListingResponses.prefersCsv(MediaType.parseMediaTypes(accept))) {
+            return SocksListingResponses.csv(listing);
+        }
+        return SocksListingResponses.ndjson(objectMapper, listing);
     }
 }
@@ -0,0 +1,128 @@
+package test.backspark.socks.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import test.backspark.socks.model.dto.SocksDto;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+/**
+ * Потоковая выгрузка позиций в NDJSON (по объекту на строку) или CSV {@code id,color,cottonPart,quantity}.
+ * Позиции пишутся в ответ по мере чтения из базы, в памяти держится только буфер вывода.
+ */
+final class SocksListingResponses {
+    static final String CSV_HEADER = "id,color,cottonPart,quantity";
+
+    private SocksListingResponses() {
+    }
+
+    /**
+     * Задает таймаут асинхронной выгрузки для этого запроса вместо общего для контейнера (у Tomcat - 30 секунд).
+     * Нулевой таймаут отключает ограничение. Таймаут выставляется до старта асинхронной обработки, поэтому
+     * вызывается в обработчике, до возврата {@link StreamingResponseBody}.
+     */
+    static void timeout(WebRequest request, Duration timeout) {
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(SocksListingResponses.class,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest asyncRequest, Callable<T> task) {
+                        ((AsyncWebRequest) asyncRequest).setTimeout(timeout.toMillis());
+                    }
+                });
+    }
+
+    /**
+     * CSV выбирается, если клиент явно предпочитает {@code text/csv}; иначе отдается NDJSON.
+     */
+    static boolean prefersCsv(List<MediaType> accepted) {
+        List<MediaType> sorted = new ArrayList<>(accepted);
+        MediaType.sortBySpecificityAndQuality(sorted);
+        for (MediaType type : sorted) {
+            if (type.isWildcardType() || type.isWildcardSubtype()) {
+                continue;
+            }
+            if (type.isCompatibleWith(RejectionReportResponses.TEXT_CSV)) {
+                return true;
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    static ResponseEntity<StreamingResponseBody> ndjson(ObjectMapper objectMapper, Listing listing) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.setRootValueSeparator(null);
+                write(listing, socks -> {
+                    try {
+                        generator.writeObject(socks);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    static ResponseEntity<StreamingResponseBody> csv(Listing listing) {
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            write(listing, socks -> {
+                try {
+                    writer.write(String.valueOf(socks.getId()));
+                    writer.write(',');
+                    writer.write('"');
+                    writer.write(socks.getColor().replace("\"", "\"\""));
+                    writer.write('"');
+                    writer.write(',');
+                    writer.write(Integer.toString(socks.getCottonPart()));
+                    writer.write(',');
+                    writer.write(Integer.toString(socks.getQuantity()));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(RejectionReportResponses.TEXT_CSV).body(body);
+    }
+
+    private static void write(Listing listing, Consumer<SocksDto> consumer) throws IOException {
+        try {
+            listing.stream(consumer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    interface Listing {
+        void stream(Consumer<SocksDto> consumer);
+    }
+}
@@ -0,0 +1,22 @@
+package test.backspark.socks.event;
+
+import test.backspark.socks.model.dto.SocksKey;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Публикуется сервисом при изменении остатков; слушатели получают его после коммита транзакции.
+ * {@code deltas} содержит изменение количества по каждому затронутому ключу, {@code removed} -
+ * ключи, строк для которых больше нет (update перенес строку на другой ключ).
+ */
+public record InventoryChangedEvent(Map<SocksKey, Long> deltas, Set<SocksKey> removed) {
+
+    public InventoryChangedEvent(Map<SocksKey, Long> deltas) {
+        this(deltas, Set.of());
+    }
+
+    public static InventoryChangedEvent of(SocksKey key, long delta) {
+        return new InventoryChangedEvent(Map.of(key, delta));
+    }
+}
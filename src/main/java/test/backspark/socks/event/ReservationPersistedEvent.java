@@ -0,0 +1,10 @@
+package test.backspark.socks.event;
+
+import test.backspark.socks.model.dto.SocksKey;
+
+/**
+ * Списание, заранее зарезервированное в {@code InventoryStore}, записано в БД.
+ * Хранилище уже учло его, остальным представлениям остатков нужно обновиться.
+ */
+public record ReservationPersistedEvent(SocksKey key, long delta) {
+}
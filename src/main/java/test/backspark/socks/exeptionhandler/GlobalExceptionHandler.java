@@ -30,6 +30,26 @@ public class GlobalExceptionHandler {
         return buildResponseEntity(HttpStatus.BAD_REQUEST, e.getMessage(), request.getRequestURI());
     }
 
+    @ExceptionHandler(InvalidFilterException.class)
+    public ResponseEntity<Object> handleInvalidFilterException(InvalidFilterException e, HttpServletRequest request) {
+        return buildResponseEntity(HttpStatus.BAD_REQUEST, e.getMessage(), request.getRequestURI());
+    }
+
+    @ExceptionHandler(ImportJobNotFoundException.class)
+    public ResponseEntity<Object> handleImportJobNotFoundException(ImportJobNotFoundException e, HttpServletRequest request) {
+        return buildResponseEntity(HttpStatus.NOT_FOUND, e.getMessage(), request.getRequestURI());
+    }
+
+    @ExceptionHandler(ImportJobRejectedException.class)
+    public ResponseEntity<Object> handleImportJobRejectedException(ImportJobRejectedException e, HttpServletRequest request) {
+        return buildResponseEntity(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), request.getRequestURI());
+    }
+
+    @ExceptionHandler(OutcomeRejectedException.class)
+    public ResponseEntity<Object> handleOutcomeRejectedException(OutcomeRejectedException e, HttpServletRequest request) {
+        return buildResponseEntity(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), request.getRequestURI());
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, String>> handleValidationExceptions(MethodArgumentNotValidException ex) {
         Map<String, String> errors = new HashMap<>();
@@ -0,0 +1,7 @@
+package test.backspark.socks.exeptionhandler;
+
+public class ImportJobNotFoundException extends RuntimeException {
+    public ImportJobNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package test.backspark.socks.exeptionhandler;
+
+public class ImportJobRejectedException extends RuntimeException {
+    public ImportJobRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package test.backspark.socks.exeptionhandler;
+
+public class InvalidFilterException extends RuntimeException {
+    public InvalidFilterException(String message) {
+        super(message);
+    }
+}
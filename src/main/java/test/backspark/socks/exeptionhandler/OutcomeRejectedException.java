@@ -0,0 +1,7 @@
+package test.backspark.socks.exeptionhandler;
+
+public class OutcomeRejectedException extends RuntimeException {
+    public OutcomeRejectedException(String message) {
+        super(message);
+    }
+}
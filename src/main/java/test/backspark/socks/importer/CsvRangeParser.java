@@ -0,0 +1,253 @@
+package test.backspark.socks.importer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Разбирает строки CSV прямо из байтов буфера, повторяя правила {@link SocksCsvImporter#parseCSVLineToDto}
+ * и {@link SocksCsvImporter#validateSocks}. На строку ничего не аллоцируется: цвет ищется по сырым байтам
+ * в таблице уже встреченных цветов, количества копятся в массиве по содержанию хлопка.
+ * Экземпляр не потокобезопасен и используется одной задачей.
+ */
+final class CsvRangeParser {
+    private static final int SLOTS = 101;
+    private static final long INVALID = Long.MIN_VALUE;
+
+    private final ByteBuffer buffer;
+
+    private int[] tableHashes = new int[32];
+    private int[] tableSlots = new int[32];
+    private byte[][] tableBytes = new byte[32][];
+    private int tableSize;
+
+    private final Map<String, Integer> slotByColor = new HashMap<>();
+    private final List<String> colors = new ArrayList<>();
+    private final List<long[]> quantities = new ArrayList<>();
+
+    private long rows;
+    private long accepted;
+    private final RejectionCollector rejections;
+
+    CsvRangeParser(ByteBuffer buffer, int maxRejections) {
+        this.buffer = buffer;
+        this.rejections = new RejectionCollector(maxRejections);
+    }
+
+    /**
+     * Находит конец строки, начинающейся с {@code from}: индекс '\r' или '\n' либо {@code to}.
+     */
+    static int lineEnd(ByteBuffer buffer, int from, int to) {
+        int index = from;
+        while (index < to) {
+            byte b = buffer.get(index);
+            if (b == '\n' || b == '\r') {
+                return index;
+            }
+            index++;
+        }
+        return to;
+    }
+
+    /**
+     * Пропускает перевод строки ("\n", "\r" или "\r\n"), стоящий в позиции {@code index}.
+     */
+    static int skipLineBreak(ByteBuffer buffer, int index, int to) {
+        if (index >= to) {
+            return to;
+        }
+        if (buffer.get(index) == '\r' && index + 1 < to && buffer.get(index + 1) == '\n') {
+            return index + 2;
+        }
+        return index + 1;
+    }
+
+    ParsedRange parse(int from, int to) {
+        int position = from;
+        while (position < to) {
+            int end = lineEnd(buffer, position, to);
+            rows++;
+            parseLine(position, end);
+            position = skipLineBreak(buffer, end, to);
+        }
+
+        Map<String, long[]> result = new HashMap<>();
+        for (int i = 0; i < colors.size(); i++) {
+            result.put(colors.get(i), quantities.get(i));
+        }
+        return new ParsedRange(result, rows, accepted, rejections);
+    }
+
+    private void parseLine(int start, int end) {
+        // String.split(",") отбрасывает пустые хвостовые поля
+        int last = end;
+        while (last > start && buffer.get(last - 1) == ',') {
+            last--;
+        }
+        int firstComma = indexOfComma(start, last);
+        int secondComma = firstComma < 0 ? -1 : indexOfComma(firstComma + 1, last);
+        if (secondComma < 0 || indexOfComma(secondComma + 1, last) >= 0) {
+            reject(CsvRowError.FORMAT, start, end);
+            return;
+        }
+
+        long cottonPart = parseInt(firstComma + 1, secondComma);
+        long quantity = parseInt(secondComma + 1, last);
+        if (cottonPart == INVALID || quantity == INVALID) {
+            reject(CsvRowError.NUMBER, start, end);
+            return;
+        }
+
+        int colorStart = start;
+        int colorEnd = firstComma;
+        while (colorStart < colorEnd && (buffer.get(colorStart) & 0xff) <= ' ') {
+            colorStart++;
+        }
+        while (colorEnd > colorStart && (buffer.get(colorEnd - 1) & 0xff) <= ' ') {
+            colorEnd--;
+        }
+        if (colorStart == colorEnd) {
+            reject(CsvRowError.EMPTY_COLOR, start, end);
+            return;
+        }
+        if (cottonPart < 0 || cottonPart > 100) {
+            reject(CsvRowError.COTTON_PART, start, end);
+            return;
+        }
+        if (quantity <= 0) {
+            reject(CsvRowError.QUANTITY, start, end);
+            return;
+        }
+
+        quantities.get(colorSlot(colorStart, colorEnd))[(int) cottonPart] += quantity;
+        accepted++;
+    }
+
+    private void reject(CsvRowError error, int start, int end) {
+        rejections.add(rows, error, rejections.hasRoom() ? line(start, end) : null);
+    }
+
+    private String line(int start, int end) {
+        byte[] raw = new byte[Math.min(end - start, RejectionCollector.MAX_LINE_LENGTH)];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = buffer.get(start + i);
+        }
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    private int indexOfComma(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == ',') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Аналог {@code Integer.parseInt(s.trim())}: необязательный знак, хотя бы одна цифра, без переполнения int.
+     */
+    private long parseInt(int from, int to) {
+        while (from < to && (buffer.get(from) & 0xff) <= ' ') {
+            from++;
+        }
+        while (to > from && (buffer.get(to - 1) & 0xff) <= ' ') {
+            to--;
+        }
+        if (from == to) {
+            return INVALID;
+        }
+        boolean negative = false;
+        byte first = buffer.get(from);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            from++;
+            if (from == to) {
+                return INVALID;
+            }
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return INVALID;
+            }
+        }
+        value = negative ? -value : value;
+        return value > Integer.MAX_VALUE ? INVALID : value;
+    }
+
+    private int colorSlot(int from, int to) {
+        int hash = 1;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        int mask = tableHashes.length - 1;
+        int index = hash & mask;
+        while (tableBytes[index] != null) {
+            if (tableHashes[index] == hash && sameBytes(tableBytes[index], from, to)) {
+                return tableSlots[index];
+            }
+            index = (index + 1) & mask;
+        }
+
+        byte[] raw = new byte[to - from];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = buffer.get(from + i);
+        }
+        String color = new String(raw, StandardCharsets.UTF_8).trim().toLowerCase();
+        int slot = slotByColor.computeIfAbsent(color, c -> {
+            colors.add(c);
+            quantities.add(new long[SLOTS]);
+            return colors.size() - 1;
+        });
+
+        tableHashes[index] = hash;
+        tableBytes[index] = raw;
+        tableSlots[index] = slot;
+        if (++tableSize * 2 > tableHashes.length) {
+            growTable();
+        }
+        return slot;
+    }
+
+    private boolean sameBytes(byte[] known, int from, int to) {
+        if (known.length != to - from) {
+            return false;
+        }
+        for (int i = 0; i < known.length; i++) {
+            if (known[i] != buffer.get(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void growTable() {
+        int[] oldHashes = tableHashes;
+        int[] oldSlots = tableSlots;
+        byte[][] oldBytes = tableBytes;
+        tableHashes = new int[oldHashes.length * 2];
+        tableSlots = new int[oldHashes.length * 2];
+        tableBytes = new byte[oldHashes.length * 2][];
+        int mask = tableHashes.length - 1;
+        for (int i = 0; i < oldBytes.length; i++) {
+            if (oldBytes[i] != null) {
+                int index = oldHashes[i] & mask;
+                while (tableBytes[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                tableHashes[index] = oldHashes[i];
+                tableSlots[index] = oldSlots[i];
+                tableBytes[index] = oldBytes[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package test.backspark.socks.importer;
+
+/**
+ * @param line исходная строка файла, обрезанная до {@link RejectionCollector#MAX_LINE_LENGTH} символов
+ */
+public record CsvRejection(long row, CsvRowError error, String line) {
+}
@@ -0,0 +1,22 @@
+package test.backspark.socks.importer;
+
+/**
+ * Причина отклонения строки CSV. Текст сообщения собирается только по запросу.
+ */
+public enum CsvRowError {
+    FORMAT("Некорректный формат: ожидается 3 столбца, строка %d"),
+    NUMBER("Ошибка преобразования числового значения в строке %d"),
+    EMPTY_COLOR("Пустой цвет в строке %d"),
+    COTTON_PART("Процент хлопка должен быть в диапазоне [0, 100] в строке %d"),
+    QUANTITY("Количество должно быть больше 0 в строке %d");
+
+    private final String template;
+
+    CsvRowError(String template) {
+        this.template = template;
+    }
+
+    public String message(long row) {
+        return String.format(template, row);
+    }
+}
@@ -0,0 +1,22 @@
+package test.backspark.socks.importer;
+
+/**
+ * Строка CSV не прошла разбор или проверку; {@link #getError()} - код причины для отчета.
+ */
+public class CsvRowException extends IllegalArgumentException {
+    private final CsvRowError error;
+
+    public CsvRowException(CsvRowError error, String message) {
+        super(message);
+        this.error = error;
+    }
+
+    public CsvRowException(CsvRowError error, String message, Throwable cause) {
+        super(message, cause);
+        this.error = error;
+    }
+
+    public CsvRowError getError() {
+        return error;
+    }
+}
@@ -0,0 +1,8 @@
+package test.backspark.socks.importer;
+
+/**
+ * @param end  смещение в байтах сразу после разобранного сегмента
+ * @param last сегмент дошел до конца файла
+ */
+public record CsvSegment(ParsedCsv parsed, long end, boolean last) {
+}
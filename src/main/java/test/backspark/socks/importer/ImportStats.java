@@ -0,0 +1,4 @@
+package test.backspark.socks.importer;
+
+public record ImportStats(long rowsRead, long rowsAccepted, long rowsRejected) {
+}
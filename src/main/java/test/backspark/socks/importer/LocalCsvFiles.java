@@ -0,0 +1,94 @@
+package test.backspark.socks.importer;
+
+import org.springframework.stereotype.Component;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.exeptionhandler.InvalidFileFormatException;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SecureDirectoryStream;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+/**
+ * Разрешает путь к CSV-файлу на диске сервера относительно {@code socks.local-import.directory}.
+ * Файлы вне каталога (в том числе через ".." и символические ссылки) не принимаются.
+ */
+@Component
+public class LocalCsvFiles {
+
+    private final boolean enabled;
+    private final Path directory;
+
+    public LocalCsvFiles(SocksProperties properties) {
+        this.enabled = properties.getLocalImport().isEnabled() && properties.getLocalImport().getDirectory() != null;
+        this.directory = properties.getLocalImport().getDirectory();
+    }
+
+    public Path resolve(String relativePath) {
+        if (!enabled) {
+            throw new InvalidFileFormatException("Импорт файлов с сервера отключен.");
+        }
+        if (relativePath == null || relativePath.isBlank() || !relativePath.endsWith(".csv")) {
+            throw new InvalidFileFormatException("Файл должен быть CSV и не пустой.");
+        }
+
+        try {
+            Path root = directory.toRealPath();
+            Path file = root.resolve(relativePath).normalize();
+            if (!file.startsWith(root) || !Files.isRegularFile(file) || !file.toRealPath().startsWith(root)) {
+                throw new InvalidFileFormatException("Файл не найден в каталоге импорта: " + relativePath);
+            }
+            return file;
+        } catch (IOException e) {
+            throw new InvalidFileFormatException("Файл не найден в каталоге импорта: " + relativePath);
+        }
+    }
+
+    /**
+     * Открывает файл, проверенный {@link #resolve(String)}, так, чтобы подмена пути символической ссылкой
+     * между проверкой и открытием не вывела за пределы каталога: каждый компонент реального пути
+     * открывается относительно уже открытого родителя без перехода по ссылкам. Если файловая система
+     * так не умеет, путь проверяется еще раз после открытия.
+     */
+    public FileChannel open(String relativePath) {
+        Path file = resolve(relativePath);
+        try {
+            Path root = directory.toRealPath();
+            Path relative = root.relativize(file.toRealPath());
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
+                if (stream instanceof SecureDirectoryStream<Path> secure) {
+                    return openBeneath(secure, relative);
+                }
+            }
+            Path real = root.resolve(relative);
+            FileChannel channel = FileChannel.open(real, StandardOpenOption.READ, LinkOption.NOFOLLOW_LINKS);
+            if (!real.toRealPath().equals(real)) {
+                channel.close();
+                throw new IOException("Path changed while opening: " + real);
+            }
+            return channel;
+        } catch (IOException e) {
+            throw new InvalidFileFormatException("Файл не найден в каталоге импорта: " + relativePath);
+        }
+    }
+
+    private static FileChannel openBeneath(SecureDirectoryStream<Path> parent, Path relative) throws IOException {
+        if (relative.getNameCount() > 1) {
+            try (SecureDirectoryStream<Path> child = parent.newDirectoryStream(relative.getName(0), LinkOption.NOFOLLOW_LINKS)) {
+                return openBeneath(child, relative.subpath(1, relative.getNameCount()));
+            }
+        }
+        SeekableByteChannel channel = parent.newByteChannel(relative, Set.of(StandardOpenOption.READ, LinkOption.NOFOLLOW_LINKS));
+        if (channel instanceof FileChannel fileChannel) {
+            return fileChannel;
+        }
+        channel.close();
+        throw new IOException("Not a file: " + relative);
+    }
+}
@@ -0,0 +1,172 @@
+package test.backspark.socks.importer;
+
+import org.springframework.stereotype.Component;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.exeptionhandler.InvalidFileFormatException;
+import test.backspark.socks.model.dto.SocksKey;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Параллельный разбор CSV, целиком лежащего в буфере: тело файла делится пополам по границам строк,
+ * пока диапазон больше {@code socks.batch.parse-range-size}, диапазоны разбираются и агрегируются
+ * задачами fork-join, а частичные суммы склеиваются в порядке файла.
+ */
+@Component
+public class ParallelCsvParser {
+    private static final int SEGMENT_SIZE = 1 << 30;
+
+    private final ForkJoinPool pool;
+    private final int rangeSize;
+    private final int maxRejections;
+
+    public ParallelCsvParser(SocksProperties properties) {
+        int parallelism = properties.getBatch().getParallelism();
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.rangeSize = (int) Math.max(properties.getBatch().getParseRangeSize().toBytes(), 1);
+        this.maxRejections = properties.getBatch().getMaxRejections();
+    }
+
+    public ParsedCsv parse(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        if (limit == 0) {
+            throw new InvalidFileFormatException("Файл пустой или не содержит заголовок.");
+        }
+        return toParsedCsv(pool.invoke(new ParseTask(buffer, bodyStart(buffer, limit), limit)), 0);
+    }
+
+    /**
+     * Разбирает файл прямо из отображенной в память области, не копируя байты в кучу. Файлы больше
+     * 1 ГБ отображаются сегментами, которые обрезаются по последнему переводу строки.
+     */
+    public ParsedCsv parse(FileChannel channel) throws IOException {
+        return parse(channel, SEGMENT_SIZE);
+    }
+
+    ParsedCsv parse(FileChannel channel, int segmentSize) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            throw new InvalidFileFormatException("Файл пустой или не содержит заголовок.");
+        }
+
+        ParsedRange total = null;
+        long position = 0;
+        while (position < size) {
+            MappedByteBuffer segment = map(channel, position, size, segmentSize);
+            ParsedRange range = parseMapped(segment, position);
+            total = total == null ? range : total.append(range);
+            position += segment.limit();
+        }
+        return toParsedCsv(total, 0);
+    }
+
+    /**
+     * Разбирает один сегмент файла, начиная с байта {@code position} (0 - начало файла с заголовком).
+     * Нужен для поэтапного импорта: следующий вызов продолжает с {@link CsvSegment#end()}.
+     *
+     * @param rowsBefore сколько строк данных уже прочитано до {@code position}; нужен для номеров отклоненных строк
+     */
+    public CsvSegment parseSegment(FileChannel channel, long position, int segmentSize, long rowsBefore) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            throw new InvalidFileFormatException("Файл пустой или не содержит заголовок.");
+        }
+        MappedByteBuffer segment = map(channel, position, size, segmentSize);
+        long end = position + segment.limit();
+        return new CsvSegment(toParsedCsv(parseMapped(segment, position), rowsBefore), end, end >= size);
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long size, int segmentSize) throws IOException {
+        MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(segmentSize, size - position));
+        if (position + segment.limit() < size) {
+            int end = lastLineStart(segment, segment.limit());
+            if (end == 0) {
+                throw new InvalidFileFormatException("Строка файла длиннее " + segmentSize + " байт");
+            }
+            segment.limit(end);
+        }
+        return segment;
+    }
+
+    private ParsedRange parseMapped(MappedByteBuffer segment, long position) {
+        int end = segment.limit();
+        int from = position == 0 ? bodyStart(segment, end) : 0;
+        return pool.invoke(new ParseTask(segment, from, end));
+    }
+
+    private static int bodyStart(ByteBuffer buffer, int limit) {
+        return CsvRangeParser.skipLineBreak(buffer, CsvRangeParser.lineEnd(buffer, 0, limit), limit);
+    }
+
+    private static int lastLineStart(ByteBuffer buffer, int limit) {
+        int index = limit;
+        while (index > 0 && buffer.get(index - 1) != '\n') {
+            index--;
+        }
+        return index;
+    }
+
+    private static ParsedCsv toParsedCsv(ParsedRange range, long rowsBefore) {
+        Map<SocksKey, Integer> quantities = new HashMap<>();
+        range.quantities.forEach((color, slots) -> {
+            for (int cottonPart = 0; cottonPart < slots.length; cottonPart++) {
+                if (slots[cottonPart] > Integer.MAX_VALUE) {
+                    throw new InvalidFileFormatException("Суммарное количество носков одной позиции в файле превышает " + Integer.MAX_VALUE);
+                }
+                if (slots[cottonPart] != 0) {
+                    quantities.put(new SocksKey(color, cottonPart), (int) slots[cottonPart]);
+                }
+            }
+        });
+        ImportStats stats = new ImportStats(range.rows, range.accepted, range.rows - range.accepted);
+        // строка 1 - заголовок
+        return new ParsedCsv(quantities, stats, range.rejections.report(1 + rowsBefore));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private final class ParseTask extends RecursiveTask<ParsedRange> {
+        private final ByteBuffer buffer;
+        private final int from;
+        private final int to;
+
+        ParseTask(ByteBuffer buffer, int from, int to) {
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ParsedRange compute() {
+            if (to - from <= rangeSize) {
+                return new CsvRangeParser(buffer, maxRejections).parse(from, to);
+            }
+            int middle = nextLineStart(from + (to - from) / 2);
+            if (middle >= to) {
+                return new CsvRangeParser(buffer, maxRejections).parse(from, to);
+            }
+            ParseTask left = new ParseTask(buffer, from, middle);
+            left.fork();
+            ParsedRange right = new ParseTask(buffer, middle, to).compute();
+            return left.join().append(right);
+        }
+
+        private int nextLineStart(int index) {
+            while (index < to && buffer.get(index) != '\n') {
+                index++;
+            }
+            return index + 1;
+        }
+    }
+}
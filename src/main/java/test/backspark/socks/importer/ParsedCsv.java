@@ -0,0 +1,11 @@
+package test.backspark.socks.importer;
+
+import test.backspark.socks.model.dto.SocksKey;
+
+import java.util.Map;
+
+/**
+ * Результат разбора файла целиком: суммарные количества по ключам, счетчики строк и отчет об отклоненных строках.
+ */
+public record ParsedCsv(Map<SocksKey, Integer> quantities, ImportStats stats, RejectionReport rejections) {
+}
@@ -0,0 +1,37 @@
+package test.backspark.socks.importer;
+
+import java.util.Map;
+
+/**
+ * Частичный результат разбора диапазона строк. Номера строк в {@link #rejections} отсчитываются
+ * от начала диапазона и сдвигаются при склейке с диапазонами слева.
+ */
+final class ParsedRange {
+    final Map<String, long[]> quantities;
+    long rows;
+    long accepted;
+    final RejectionCollector rejections;
+
+    ParsedRange(Map<String, long[]> quantities, long rows, long accepted, RejectionCollector rejections) {
+        this.quantities = quantities;
+        this.rows = rows;
+        this.accepted = accepted;
+        this.rejections = rejections;
+    }
+
+    /**
+     * Присоединяет диапазон, идущий в файле сразу после этого.
+     */
+    ParsedRange append(ParsedRange next) {
+        next.quantities.forEach((color, slots) -> quantities.merge(color, slots, (left, right) -> {
+            for (int i = 0; i < left.length; i++) {
+                left[i] += right[i];
+            }
+            return left;
+        }));
+        rejections.append(next.rejections, rows);
+        rows += next.rows;
+        accepted += next.accepted;
+        return this;
+    }
+}
@@ -0,0 +1,76 @@
+package test.backspark.socks.importer;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Копит отклоненные строки с ограничением по количеству. Сверх лимита строки только считаются,
+ * поэтому ни текст строки, ни запись для нее не создаются.
+ */
+public final class RejectionCollector {
+    public static final int MAX_LINE_LENGTH = 1024;
+
+    private static final CsvRowError[] ERRORS = CsvRowError.values();
+
+    private final int limit;
+    private final List<CsvRejection> rows = new ArrayList<>();
+    private final long[] counts = new long[ERRORS.length];
+
+    public RejectionCollector(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Есть ли место для еще одной строки; если нет, исходный текст строки можно не готовить.
+     */
+    public boolean hasRoom() {
+        return rows.size() < limit;
+    }
+
+    public void add(long row, CsvRowError error, String line) {
+        counts[error.ordinal()]++;
+        if (hasRoom()) {
+            rows.add(new CsvRejection(row, error, truncate(line)));
+        }
+    }
+
+    /**
+     * Присоединяет строки, собранные для следующего участка файла, сдвигая их номера на {@code rowOffset}.
+     */
+    public void append(RejectionCollector next, long rowOffset) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += next.counts[i];
+        }
+        for (CsvRejection rejection : next.rows) {
+            if (!hasRoom()) {
+                break;
+            }
+            rows.add(new CsvRejection(rejection.row() + rowOffset, rejection.error(), rejection.line()));
+        }
+    }
+
+    public RejectionReport report(long rowOffset) {
+        long total = 0;
+        Map<CsvRowError, Long> byError = new EnumMap<>(CsvRowError.class);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                byError.put(ERRORS[i], counts[i]);
+                total += counts[i];
+            }
+        }
+        List<CsvRejection> shifted = rows;
+        if (rowOffset != 0) {
+            shifted = new ArrayList<>(rows.size());
+            for (CsvRejection rejection : rows) {
+                shifted.add(new CsvRejection(rejection.row() + rowOffset, rejection.error(), rejection.line()));
+            }
+        }
+        return new RejectionReport(shifted, byError, total);
+    }
+
+    private static String truncate(String line) {
+        return line != null && line.length() > MAX_LINE_LENGTH ? line.substring(0, MAX_LINE_LENGTH) : line;
+    }
+}
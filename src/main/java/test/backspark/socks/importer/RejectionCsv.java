@@ -0,0 +1,38 @@
+package test.backspark.socks.importer;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Выгрузка отчета об отклоненных строках в CSV: {@code row,error,message,line}.
+ */
+public final class RejectionCsv {
+    public static final String HEADER = "row,error,message,line";
+
+    private RejectionCsv() {
+    }
+
+    public static void write(RejectionReport report, Writer writer) throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+        for (CsvRejection rejection : report.rows()) {
+            writer.write(Long.toString(rejection.row()));
+            writer.write(',');
+            writer.write(rejection.error().name());
+            writer.write(',');
+            writeField(rejection.error().message(rejection.row()), writer);
+            writer.write(',');
+            writeField(rejection.line(), writer);
+            writer.write('\n');
+        }
+    }
+
+    private static void writeField(String value, Writer writer) throws IOException {
+        if (value == null) {
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
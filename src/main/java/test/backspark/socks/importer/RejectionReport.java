@@ -0,0 +1,22 @@
+package test.backspark.socks.importer;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Отчет об отклоненных строках импорта: первые {@code socks.batch.max-rejections} строк в порядке файла
+ * и счетчики по кодам ошибок, в которых учтены и строки, не попавшие в {@code rows}.
+ */
+public record RejectionReport(List<CsvRejection> rows, Map<CsvRowError, Long> counts, long total) {
+
+    public static RejectionReport empty() {
+        return new RejectionReport(List.of(), Map.of(), 0);
+    }
+
+    /**
+     * Сколько отклоненных строк не поместилось в отчет.
+     */
+    public long dropped() {
+        return total - rows.size();
+    }
+}
@@ -0,0 +1,122 @@
+package test.backspark.socks.importer;
+
+import org.springframework.stereotype.Component;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.exeptionhandler.InvalidFileFormatException;
+import test.backspark.socks.model.dto.SocksDto;
+import test.backspark.socks.model.dto.SocksKey;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+@Component
+public class SocksCsvImporter {
+    private final int chunkSize;
+
+    public SocksCsvImporter(SocksProperties properties) {
+        this.chunkSize = properties.getBatch().getChunkSize();
+    }
+
+    /**
+     * Читает CSV построчно и передает в {@code chunkConsumer} порции, в которых строки
+     * с одинаковыми (color, cottonPart) уже просуммированы. Порция содержит не более
+     * {@code socks.batch.chunk-size} строк файла.
+     */
+    public ImportStats importCsv(BufferedReader reader, Consumer<Map<SocksKey, Integer>> chunkConsumer) throws IOException {
+        return importCsv(reader, new RejectionCollector(0), chunkConsumer);
+    }
+
+    /**
+     * То же, что {@link #importCsv(BufferedReader, Consumer)}, но отклоненные строки складываются в {@code rejections}.
+     */
+    public ImportStats importCsv(BufferedReader reader, RejectionCollector rejections,
+                                 Consumer<Map<SocksKey, Integer>> chunkConsumer) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            throw new InvalidFileFormatException("Файл пустой или не содержит заголовок.");
+        }
+
+        Map<SocksKey, Integer> chunk = new HashMap<>();
+        String line;
+        int rowNum = 1;
+        int rowsInChunk = 0;
+        long accepted = 0;
+        long rejected = 0;
+
+        while ((line = reader.readLine()) != null) {
+            rowNum++;
+            try {
+                SocksDto dto = parseCSVLineToDto(line, rowNum);
+                validateSocks(dto.getColor(), dto.getCottonPart(), dto.getQuantity(), rowNum);
+                chunk.merge(new SocksKey(dto.getColor(), dto.getCottonPart()), dto.getQuantity(), SocksCsvImporter::addQuantities);
+                accepted++;
+            } catch (CsvRowException e) {
+                rejections.add(rowNum, e.getError(), line);
+                rejected++;
+            }
+
+            if (++rowsInChunk >= chunkSize) {
+                chunk = flush(chunk, chunkConsumer);
+                rowsInChunk = 0;
+            }
+        }
+        flush(chunk, chunkConsumer);
+
+        return new ImportStats(accepted + rejected, accepted, rejected);
+    }
+
+    /**
+     * Сумма одного ключа, не помещающаяся в int, - ошибка файла, а не сервера.
+     */
+    static int addQuantities(int left, int right) {
+        try {
+            return Math.addExact(left, right);
+        } catch (ArithmeticException e) {
+            throw new InvalidFileFormatException("Суммарное количество носков одной позиции в файле превышает " + Integer.MAX_VALUE);
+        }
+    }
+
+    private Map<SocksKey, Integer> flush(Map<SocksKey, Integer> chunk, Consumer<Map<SocksKey, Integer>> chunkConsumer) {
+        if (chunk.isEmpty()) {
+            return chunk;
+        }
+        chunkConsumer.accept(chunk);
+        return new HashMap<>();
+    }
+
+    public SocksDto parseCSVLineToDto(String line, int rowNum) {
+        String[] parts = line.split(",");
+        if (parts.length != 3) {
+            throw new CsvRowException(CsvRowError.FORMAT, "Некорректный формат: ожидается 3 столбца, строка " + rowNum);
+        }
+
+        String color = parts[0].trim().toLowerCase();
+        int cottonPart;
+        int quantity;
+
+        try {
+            cottonPart = Integer.parseInt(parts[1].trim());
+            quantity = Integer.parseInt(parts[2].trim());
+        } catch (NumberFormatException e) {
+            throw new CsvRowException(CsvRowError.NUMBER,
+                    "Ошибка преобразования числового значения в строке " + rowNum + ": " + e.getMessage(), e);
+        }
+
+        return new SocksDto(null, color, cottonPart, quantity);
+    }
+
+    public void validateSocks(String color, int cottonPart, int quantity, int rowNum) {
+        if (color == null || color.isBlank()) {
+            throw new CsvRowException(CsvRowError.EMPTY_COLOR, "Пустой цвет в строке " + rowNum);
+        }
+        if (cottonPart < 0 || cottonPart > 100) {
+            throw new CsvRowException(CsvRowError.COTTON_PART, "Процент хлопка должен быть в диапазоне [0, 100] в строке " + rowNum);
+        }
+        if (quantity <= 0) {
+            throw new CsvRowException(CsvRowError.QUANTITY, "Количество должно быть больше 0 в строке " + rowNum);
+        }
+    }
+}
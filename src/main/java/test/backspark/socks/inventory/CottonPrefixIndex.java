@@ -0,0 +1,121 @@
+package test.backspark.socks.inventory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.event.InventoryChangedEvent;
+import test.backspark.socks.event.ReservationPersistedEvent;
+import test.backspark.socks.model.dto.SocksFilter;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.repositrory.SocksBulkRepository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс префиксных сумм по содержанию хлопка: для каждого цвета и для всех цветов вместе
+ * хранится массив prefix[i] = сумма количеств с cottonPart < i. Любой фильтр GET /api/socks
+ * сводится к диапазону [lower, upper] и считается как prefix[upper + 1] - prefix[lower].
+ * <p>
+ * Индекс знает только о записях своего узла, поэтому включается явно ({@code socks.prefix-index.enabled}).
+ */
+@Component
+public class CottonPrefixIndex implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(CottonPrefixIndex.class);
+    private static final int SLOTS = SocksFilter.MAX_COTTON_PART + 1;
+
+    private final boolean enabled;
+    private final SocksBulkRepository socksBulkRepository;
+
+    private final Map<String, long[]> quantities = new HashMap<>();
+    private final long[] totalQuantities = new long[SLOTS];
+    private final Map<String, long[]> prefixByColor = new ConcurrentHashMap<>();
+    private volatile long[] totalPrefix = new long[SLOTS + 1];
+    private volatile boolean ready;
+
+    public CottonPrefixIndex(SocksProperties properties, SocksBulkRepository socksBulkRepository) {
+        this.enabled = properties.getPrefixIndex().isEnabled();
+        this.socksBulkRepository = socksBulkRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    public synchronized void reload() {
+        ready = false;
+        quantities.clear();
+        prefixByColor.clear();
+        Arrays.fill(totalQuantities, 0);
+
+        socksBulkRepository.forEachStock((id, color, cottonPart, quantity) -> {
+            quantities.computeIfAbsent(color, c -> new long[SLOTS])[cottonPart] += quantity;
+            totalQuantities[cottonPart] += quantity;
+        });
+        quantities.forEach((color, slots) -> prefixByColor.put(color, prefix(slots)));
+        totalPrefix = prefix(totalQuantities);
+        ready = true;
+
+        logger.info("Cotton prefix index loaded: {} colors", quantities.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long sum(SocksFilter filter) {
+        long[] prefix = filter.color() == null ? totalPrefix : prefixByColor.get(filter.color());
+        if (prefix == null) {
+            return 0;
+        }
+        int lower = Math.max(filter.lowerCottonBound(), 0);
+        int upper = Math.min(filter.upperCottonBound(), SLOTS - 1);
+        return lower > upper ? 0 : prefix[upper + 1] - prefix[lower];
+    }
+
+    @Order(InventoryVersion.VIEWS_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (ready) {
+            apply(event.deltas());
+        }
+    }
+
+    @Order(InventoryVersion.VIEWS_ORDER)
+    @EventListener
+    public void onReservationPersisted(ReservationPersistedEvent event) {
+        if (ready) {
+            apply(Map.of(event.key(), event.delta()));
+        }
+    }
+
+    synchronized void apply(Map<SocksKey, Long> deltas) {
+        Map<String, long[]> touched = new HashMap<>();
+        deltas.forEach((key, delta) -> {
+            long[] slots = quantities.computeIfAbsent(key.color(), c -> new long[SLOTS]);
+            slots[key.cottonPart()] += delta;
+            totalQuantities[key.cottonPart()] += delta;
+            touched.put(key.color(), slots);
+        });
+        touched.forEach((color, slots) -> prefixByColor.put(color, prefix(slots)));
+        totalPrefix = prefix(totalQuantities);
+    }
+
+    private static long[] prefix(long[] slots) {
+        long[] prefix = new long[slots.length + 1];
+        for (int i = 0; i < slots.length; i++) {
+            prefix[i + 1] = prefix[i] + slots[i];
+        }
+        return prefix;
+    }
+}
@@ -0,0 +1,252 @@
+package test.backspark.socks.inventory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.event.InventoryChangedEvent;
+import test.backspark.socks.model.dto.SocksFilter;
+import test.backspark.socks.repositrory.SocksBulkRepository;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Остатки в памяти процесса без объектов на каждую позицию: цвет заменяется целым идентификатором,
+ * ключ (colorId, cottonPart) упаковывается в long, количества лежат в примитивных массивах
+ * {@link StockTable}, разбитых на полосы со своими блокировками. Операции чтения и изменения
+ * существующих позиций ничего не аллоцируют.
+ * <p>
+ * Источником истины остается БД: хранилище загружается при старте и получает дельты после коммита.
+ */
+@Component
+public class InventoryStore implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(InventoryStore.class);
+    private static final int STRIPES = 64;
+
+    public static final long NOT_FOUND = -1;
+    public static final long NOT_ENOUGH = -2;
+
+    private final boolean enabled;
+    private final SocksBulkRepository socksBulkRepository;
+
+    private final ConcurrentHashMap<String, Integer> colorIds = new ConcurrentHashMap<>();
+    private final AtomicInteger lastColorId = new AtomicInteger();
+    private final StockTable[] stripes = new StockTable[STRIPES];
+    private volatile boolean ready;
+
+    public InventoryStore(SocksProperties properties, SocksBulkRepository socksBulkRepository) {
+        this.enabled = properties.getStore().isEnabled();
+        this.socksBulkRepository = socksBulkRepository;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new StockTable(16);
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    public synchronized void reload() {
+        ready = false;
+        for (StockTable stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+        socksBulkRepository.forEachStock((id, color, cottonPart, quantity) -> {
+            add(color, cottonPart, quantity);
+            rememberId(color, cottonPart, id);
+        });
+        ready = true;
+        logger.info("Inventory store loaded: {} colors", colorIds.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return количество или {@link #NOT_FOUND}, если позиции нет
+     */
+    public long quantity(String color, int cottonPart) {
+        int colorId = findColorId(color);
+        if (colorId == 0) {
+            return NOT_FOUND;
+        }
+        long key = StockTable.pack(colorId, cottonPart);
+        StockTable stripe = stripe(key);
+        synchronized (stripe) {
+            int index = stripe.indexOf(key);
+            return index == StockTable.ABSENT ? NOT_FOUND : stripe.quantityAt(index);
+        }
+    }
+
+    public long add(String color, int cottonPart, long delta) {
+        long key = StockTable.pack(internColor(color), cottonPart);
+        StockTable stripe = stripe(key);
+        synchronized (stripe) {
+            int index = stripe.indexForInsert(key);
+            long quantity = stripe.quantityAt(index) + delta;
+            stripe.setQuantityAt(index, quantity);
+            return quantity;
+        }
+    }
+
+    /**
+     * Прибавляет {@code delta} только к уже существующей позиции.
+     *
+     * @return false, если позиции нет
+     */
+    public boolean addIfPresent(String color, int cottonPart, long delta) {
+        int colorId = findColorId(color);
+        if (colorId == 0) {
+            return false;
+        }
+        long key = StockTable.pack(colorId, cottonPart);
+        StockTable stripe = stripe(key);
+        synchronized (stripe) {
+            int index = stripe.indexOf(key);
+            if (index == StockTable.ABSENT) {
+                return false;
+            }
+            stripe.setQuantityAt(index, stripe.quantityAt(index) + delta);
+            return true;
+        }
+    }
+
+    /**
+     * @return id строки в БД или 0, если он еще неизвестен (позиция появилась после загрузки)
+     */
+    public long id(String color, int cottonPart) {
+        int colorId = findColorId(color);
+        if (colorId == 0) {
+            return 0;
+        }
+        long key = StockTable.pack(colorId, cottonPart);
+        StockTable stripe = stripe(key);
+        synchronized (stripe) {
+            int index = stripe.indexOf(key);
+            return index == StockTable.ABSENT ? 0 : stripe.idAt(index);
+        }
+    }
+
+    public void rememberId(String color, int cottonPart, long id) {
+        long key = StockTable.pack(internColor(color), cottonPart);
+        StockTable stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.setIdAt(stripe.indexForInsert(key), id);
+        }
+    }
+
+    public void remove(String color, int cottonPart) {
+        int colorId = findColorId(color);
+        if (colorId == 0) {
+            return;
+        }
+        long key = StockTable.pack(colorId, cottonPart);
+        StockTable stripe = stripe(key);
+        synchronized (stripe) {
+            int index = stripe.indexOf(key);
+            if (index != StockTable.ABSENT) {
+                stripe.removeAt(index);
+            }
+        }
+    }
+
+    /**
+     * Атомарно списывает {@code quantity}, если его хватает.
+     *
+     * @return остаток после списания, {@link #NOT_FOUND} или {@link #NOT_ENOUGH}
+     */
+    public long tryTake(String color, int cottonPart, long quantity) {
+        int colorId = findColorId(color);
+        if (colorId == 0) {
+            return NOT_FOUND;
+        }
+        long key = StockTable.pack(colorId, cottonPart);
+        StockTable stripe = stripe(key);
+        synchronized (stripe) {
+            int index = stripe.indexOf(key);
+            if (index == StockTable.ABSENT) {
+                return NOT_FOUND;
+            }
+            long available = stripe.quantityAt(index);
+            if (available < quantity) {
+                return NOT_ENOUGH;
+            }
+            stripe.setQuantityAt(index, available - quantity);
+            return available - quantity;
+        }
+    }
+
+    public long sum(SocksFilter filter) {
+        int colorId = 0;
+        if (filter.color() != null) {
+            colorId = findColorId(filter.color());
+            if (colorId == 0) {
+                return 0;
+            }
+        }
+        int lower = filter.lowerCottonBound();
+        int upper = filter.upperCottonBound();
+        if (lower > upper) {
+            return 0;
+        }
+
+        long total = 0;
+        for (StockTable stripe : stripes) {
+            synchronized (stripe) {
+                for (int i = 0; i < stripe.capacity(); i++) {
+                    long key = stripe.keyAt(i);
+                    if (key == StockTable.EMPTY || (colorId != 0 && StockTable.colorId(key) != colorId)) {
+                        continue;
+                    }
+                    int cottonPart = StockTable.cottonPart(key);
+                    if (cottonPart >= lower && cottonPart <= upper) {
+                        total += stripe.quantityAt(i);
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    @Order(InventoryVersion.VIEWS_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (ready) {
+            event.deltas().forEach((key, delta) -> add(key.color(), key.cottonPart(), delta));
+            event.removed().forEach(key -> remove(key.color(), key.cottonPart()));
+        }
+    }
+
+    int size() {
+        return Arrays.stream(stripes).mapToInt(stripe -> {
+            synchronized (stripe) {
+                return stripe.size();
+            }
+        }).sum();
+    }
+
+    private int findColorId(String color) {
+        Integer id = colorIds.get(color);
+        return id == null ? 0 : id;
+    }
+
+    private int internColor(String color) {
+        Integer id = colorIds.get(color);
+        return id != null ? id : colorIds.computeIfAbsent(color, c -> lastColorId.incrementAndGet());
+    }
+
+    private StockTable stripe(long key) {
+        return stripes[(int) (StockTable.mix(key) >>> 58)];
+    }
+}
@@ -0,0 +1,79 @@
+package test.backspark.socks.inventory;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import test.backspark.socks.event.InventoryChangedEvent;
+import test.backspark.socks.event.ReservationPersistedEvent;
+import test.backspark.socks.model.dto.SocksKey;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Монотонная версия остатков для условных GET: растет после каждого изменения, видимого читателям.
+ * По каждому цвету хранится версия его последнего изменения, поэтому ETag запроса с цветом не меняется
+ * от записей по другим цветам. Версия живет в памяти процесса, в ETag она идет вместе с меткой запуска,
+ * чтобы после перезапуска старые ETag не совпали с новыми.
+ * <p>
+ * Версия сдвигается последней, после того как кэш и индексы в памяти учли изменение: иначе запрос мог бы
+ * получить новую версию вместе со старым значением и закрепить его у клиента.
+ */
+@Component
+public class InventoryVersion {
+
+    /**
+     * Порядок слушателей, обновляющих представления остатков; они должны отработать раньше этого компонента.
+     */
+    public static final int VIEWS_ORDER = 0;
+
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong version = new AtomicLong();
+    private final ConcurrentMap<String, Long> colorVersions = new ConcurrentHashMap<>();
+
+    public long current() {
+        return version.get();
+    }
+
+    public long current(String color) {
+        return colorVersions.getOrDefault(color, 0L);
+    }
+
+    /**
+     * ETag остатков по цвету или, если цвет не задан, по всему складу.
+     */
+    public String etag(String color) {
+        long value = color == null ? current() : current(color);
+        return "\"" + epoch + "-" + value + "\"";
+    }
+
+    public void advance(Collection<SocksKey> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        long next = version.incrementAndGet();
+        for (SocksKey key : keys) {
+            colorVersions.merge(key.color(), next, Math::max);
+        }
+    }
+
+    @Order
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        Set<SocksKey> keys = new HashSet<>(event.deltas().keySet());
+        keys.addAll(event.removed());
+        advance(keys);
+    }
+
+    @Order
+    @EventListener
+    public void onReservationPersisted(ReservationPersistedEvent event) {
+        advance(Set.of(event.key()));
+    }
+}
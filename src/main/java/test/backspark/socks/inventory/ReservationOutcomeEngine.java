@@ -0,0 +1,368 @@
+package test.backspark.socks.inventory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.event.ReservationPersistedEvent;
+import test.backspark.socks.exeptionhandler.NotEnoughSocksException;
+import test.backspark.socks.exeptionhandler.OutcomeRejectedException;
+import test.backspark.socks.exeptionhandler.SocksNotFoundException;
+import test.backspark.socks.model.dto.SocksDto;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.model.entity.Socks;
+import test.backspark.socks.movement.AppliedMovements;
+import test.backspark.socks.movement.MovementResult;
+import test.backspark.socks.movement.StockMovement;
+import test.backspark.socks.repositrory.SocksRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Режим outcome с резервированием: остаток проверяется и списывается в {@link InventoryStore}
+ * под блокировкой полосы ключа, поэтому горячие ключи не ждут блокировок строк в БД, а перепродажа невозможна:
+ * хранилище никогда не показывает больше, чем есть в БД за вычетом еще не записанных резервов.
+ * <p>
+ * Ответ вызывающему отдается только после коммита резерва в БД. Резервы копятся в ограниченной очереди,
+ * фоновый поток забирает все накопившиеся и записывает их одной транзакцией, по одному UPDATE на ключ.
+ * Если очередь заполнена, вызывающий ждет места, а затем получает отказ. Если резерв не удалось записать,
+ * он возвращается в хранилище, а вызывающий получает ошибку, так что подтвержденное списание не отменяется.
+ */
+@Component
+public class ReservationOutcomeEngine {
+    private static final Logger logger = LoggerFactory.getLogger(ReservationOutcomeEngine.class);
+    private static final long AWAIT_SECONDS = 30;
+
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final InventoryStore inventoryStore;
+    private final InventoryVersion inventoryVersion;
+    private final SocksRepository socksRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final BlockingQueue<Reservation> queue;
+    private final ConcurrentHashMap<SocksKey, CompletableFuture<Void>> lastByKey = new ConcurrentHashMap<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean running;
+    private Thread persister;
+
+    public ReservationOutcomeEngine(SocksProperties properties,
+                                    InventoryStore inventoryStore,
+                                    InventoryVersion inventoryVersion,
+                                    SocksRepository socksRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    ApplicationEventPublisher eventPublisher) {
+        this.enabled = properties.getOutcome().getMode() == SocksProperties.OutcomeMode.RESERVE;
+        this.maxBatchSize = properties.getOutcome().getMaxBatchSize();
+        this.queue = new ArrayBlockingQueue<>(properties.getOutcome().getQueueCapacity());
+        this.inventoryStore = inventoryStore;
+        this.inventoryVersion = inventoryVersion;
+        this.socksRepository = socksRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            running = true;
+            persister = new Thread(this::run, "socks-reservation-persister");
+            persister.setDaemon(true);
+            persister.start();
+        }
+    }
+
+    public boolean isActive() {
+        return enabled && inventoryStore.isReady();
+    }
+
+    public SocksDto outcome(SocksKey key, int quantity) {
+        long remaining = inventoryStore.tryTake(key.color(), key.cottonPart(), quantity);
+        if (remaining == InventoryStore.NOT_FOUND) {
+            throw new SocksNotFoundException("Носки не найдены");
+        }
+        if (remaining == InventoryStore.NOT_ENOUGH) {
+            logger.error("Socks not enough");
+            throw new NotEnoughSocksException("Носков не хватает на складе");
+        }
+
+        await(persist(Map.of(key, quantity)));
+        return toDto(key, remaining);
+    }
+
+    /**
+     * Резервирует пакет списаний по порядку, как {@link #outcome(SocksKey, int)}, и ждет их записи. Отказы
+     * возвращаются в результатах; при {@code atomic} и хотя бы одном отказе уже взятые резервы возвращаются
+     * в хранилище, а атомарный пакет записывается одной транзакцией целиком или не записывается вовсе.
+     * Дельты результата пусты: хранилище уже учло резервы, остальные представления обновились после записи.
+     *
+     * @param movements движения с отрицательной дельтой
+     */
+    public AppliedMovements outcomeAll(List<StockMovement> movements, boolean atomic) {
+        long[] remaining = new long[movements.size()];
+        RuntimeException[] errors = new RuntimeException[movements.size()];
+        boolean rejected = false;
+        for (int i = 0; i < movements.size(); i++) {
+            SocksKey key = movements.get(i).key();
+            remaining[i] = inventoryStore.tryTake(key.color(), key.cottonPart(), -movements.get(i).delta());
+            if (remaining[i] == InventoryStore.NOT_FOUND) {
+                errors[i] = new SocksNotFoundException("Носки не найдены");
+                rejected = true;
+            } else if (remaining[i] == InventoryStore.NOT_ENOUGH) {
+                errors[i] = new NotEnoughSocksException("Носков не хватает на складе");
+                rejected = true;
+            }
+        }
+
+        if (atomic) {
+            Map<SocksKey, Integer> reserved = new TreeMap<>(SocksKey.ORDER);
+            for (int i = 0; i < movements.size(); i++) {
+                if (errors[i] == null) {
+                    reserved.merge(movements.get(i).key(), -movements.get(i).delta(), Integer::sum);
+                }
+            }
+            if (rejected) {
+                reserved.forEach((key, quantity) -> inventoryStore.addIfPresent(key.color(), key.cottonPart(), quantity));
+            } else {
+                try {
+                    await(persist(reserved));
+                } catch (RuntimeException e) {
+                    Arrays.fill(errors, e);
+                }
+            }
+        } else {
+            List<CompletableFuture<Void>> persisted = new ArrayList<>(movements.size());
+            for (int i = 0; i < movements.size(); i++) {
+                persisted.add(errors[i] != null ? null : persist(Map.of(movements.get(i).key(), -movements.get(i).delta())));
+            }
+            for (int i = 0; i < movements.size(); i++) {
+                if (persisted.get(i) != null) {
+                    try {
+                        await(persisted.get(i));
+                    } catch (RuntimeException e) {
+                        errors[i] = e;
+                    }
+                }
+            }
+        }
+
+        List<MovementResult> results = new ArrayList<>(movements.size());
+        for (int i = 0; i < movements.size(); i++) {
+            results.add(errors[i] != null
+                    ? MovementResult.failure(errors[i])
+                    : MovementResult.success(atomic && rejected ? null : toDto(movements.get(i).key(), remaining[i])));
+        }
+        return new AppliedMovements(results, Map.of());
+    }
+
+    /**
+     * Ставит взятые резервы в очередь записи. Если места нет дольше {@link #AWAIT_SECONDS}
+     * или запись остановлена, резервы возвращаются в хранилище.
+     */
+    private CompletableFuture<Void> persist(Map<SocksKey, Integer> quantities) {
+        // хранилище уже показывает новый остаток, поэтому версия сдвигается сразу, а не после записи в БД
+        inventoryVersion.advance(quantities.keySet());
+        Reservation reservation = new Reservation(quantities, new CompletableFuture<>());
+        quantities.keySet().forEach(key -> lastByKey.put(key, reservation.persisted()));
+        pending.incrementAndGet();
+        boolean queued;
+        try {
+            queued = running && queue.offer(reservation, AWAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        // shutdown мог остановить поток между проверкой и добавлением, тогда резерв никто не заберет
+        if (queued && !running && queue.remove(reservation)) {
+            queued = false;
+        }
+        if (!queued) {
+            complete(reservation, running
+                    ? new OutcomeRejectedException("Очередь списаний заполнена, повторите позже")
+                    : new IllegalStateException("Reservation persister is not running"));
+        }
+        return reservation.persisted();
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            List<Reservation> batch = new ArrayList<>();
+            try {
+                Reservation first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException | Error e) {
+                // поток записи не должен умирать: иначе вызывающие навсегда повиснут в ожидании ответа
+                logger.error("Reserved outcomes of {} requests could not be written", batch.size(), e);
+                batch.forEach(reservation -> complete(reservation, e));
+            }
+        }
+    }
+
+    /**
+     * Записывает пакет резервов одной транзакцией, сложив их по ключам. Если у ключа в БД не хватило остатка
+     * или транзакция упала, пакет откатывается и каждый резерв пишется отдельно, чтобы отказ получили только
+     * те, чьи резервы действительно не записались.
+     */
+    void flush(List<Reservation> batch) {
+        Map<SocksKey, Integer> quantities = new TreeMap<>(SocksKey.ORDER);
+        batch.forEach(reservation -> reservation.quantities().forEach((key, quantity) -> quantities.merge(key, quantity, Integer::sum)));
+        try {
+            transactionTemplate.executeWithoutResult(status -> quantities.forEach((key, quantity) -> {
+                if (socksRepository.decrementQuantityIfEnough(key.color(), key.cottonPart(), quantity).isEmpty()) {
+                    throw new NotEnoughSocksException("Носков не хватает на складе");
+                }
+            }));
+        } catch (RuntimeException e) {
+            if (batch.size() > 1) {
+                batch.forEach(reservation -> flush(List.of(reservation)));
+                return;
+            }
+            if (e instanceof NotEnoughSocksException) {
+                logger.error("Reserved outcome {} could not be written: database stock diverged", quantities);
+            } else {
+                logger.error("Reserved outcome {} could not be written", quantities, e);
+            }
+            complete(batch.get(0), e);
+            return;
+        }
+
+        // представления обновляются до ответа, чтобы вызывающий сразу прочитал свое изменение
+        quantities.forEach((key, quantity) -> {
+            try {
+                eventPublisher.publishEvent(new ReservationPersistedEvent(key, -quantity));
+            } catch (RuntimeException e) {
+                logger.error("Inventory views were not updated after reserved outcome of {}", key, e);
+            }
+        });
+        batch.forEach(reservation -> complete(reservation, null));
+    }
+
+    /**
+     * Отвечает вызывающему. Незаписанный резерв возвращается в хранилище; ключ, который успели удалить
+     * или переименовать, не воскрешается.
+     */
+    private void complete(Reservation reservation, Throwable error) {
+        if (reservation.persisted().isDone()) {
+            return;
+        }
+        if (error != null) {
+            failed.incrementAndGet();
+            reservation.quantities().forEach((key, quantity) -> {
+                if (inventoryStore.addIfPresent(key.color(), key.cottonPart(), quantity)) {
+                    inventoryVersion.advance(Set.of(key));
+                }
+            });
+        }
+        reservation.quantities().keySet().forEach(key -> lastByKey.remove(key, reservation.persisted()));
+        pending.decrementAndGet();
+        if (error != null) {
+            reservation.persisted().completeExceptionally(error);
+        } else {
+            reservation.persisted().complete(null);
+        }
+    }
+
+    private SocksDto toDto(SocksKey key, long remaining) {
+        long id = inventoryStore.id(key.color(), key.cottonPart());
+        if (id == 0) {
+            id = socksRepository.findByColorAndCottonPart(key.color(), key.cottonPart())
+                    .map(Socks::getId)
+                    .orElse(0L);
+            inventoryStore.rememberId(key.color(), key.cottonPart(), id);
+        }
+        return new SocksDto(id == 0 ? null : id, key.color(), key.cottonPart(), (int) remaining);
+    }
+
+    private static void await(CompletableFuture<Void> persisted) {
+        try {
+            persisted.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Ждет, пока будут записаны резервы, уже взятые на этих ключах. Вызывается до блокировки строк в БД:
+     * поток записи сам блокирует строку, поэтому ждать его под блокировкой нельзя. Пакеты пишутся по порядку,
+     * поэтому достаточно дождаться последнего резерва каждого ключа.
+     */
+    public void awaitPersisted(Collection<SocksKey> keys) {
+        for (SocksKey key : keys) {
+            CompletableFuture<Void> last = lastByKey.get(key);
+            if (last == null) {
+                continue;
+            }
+            try {
+                last.get(AWAIT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for reserved outcomes", e);
+            } catch (ExecutionException e) {
+                // неудачный резерв уже возвращен в хранилище, ждать больше нечего
+            } catch (TimeoutException e) {
+                throw new IllegalStateException("Reserved outcomes for " + keys + " were not written", e);
+            }
+        }
+    }
+
+    public long pendingCount() {
+        return pending.get();
+    }
+
+    public long failedCount() {
+        return failed.get();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (persister == null) {
+            return;
+        }
+        running = false;
+        persister.join(30_000);
+        if (persister.isAlive()) {
+            logger.error("{} reserved outcomes were not written before shutdown", pending.get());
+            return;
+        }
+        Reservation reservation;
+        while ((reservation = queue.poll()) != null) {
+            complete(reservation, new IllegalStateException("Reservation persister is stopped"));
+        }
+    }
+
+    record Reservation(Map<SocksKey, Integer> quantities, CompletableFuture<Void> persisted) {
+    }
+}
@@ -0,0 +1,153 @@
+package test.backspark.socks.inventory;
+
+/**
+ * Открытая адресация с линейным пробированием: ключ (colorId << 32 | cottonPart) -> количество и id строки.
+ * Ноль зарезервирован под пустую ячейку, поэтому идентификаторы цветов начинаются с 1.
+ * Класс не потокобезопасен, синхронизацию обеспечивает {@link InventoryStore}.
+ */
+final class StockTable {
+    static final long EMPTY = 0L;
+    static final int ABSENT = -1;
+
+    private long[] keys;
+    private long[] quantities;
+    private long[] ids;
+    private int mask;
+    private int size;
+
+    StockTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    static long pack(int colorId, int cottonPart) {
+        return ((long) colorId << 32) | cottonPart;
+    }
+
+    static int colorId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    static int cottonPart(long key) {
+        return (int) key;
+    }
+
+    static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int indexOf(long key) {
+        int index = (int) mix(key) & mask;
+        while (true) {
+            long current = keys[index];
+            if (current == key) {
+                return index;
+            }
+            if (current == EMPTY) {
+                return ABSENT;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    int indexForInsert(long key) {
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length << 1);
+        }
+        int index = (int) mix(key) & mask;
+        while (true) {
+            long current = keys[index];
+            if (current == key) {
+                return index;
+            }
+            if (current == EMPTY) {
+                keys[index] = key;
+                size++;
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    long quantityAt(int index) {
+        return quantities[index];
+    }
+
+    void setQuantityAt(int index, long quantity) {
+        quantities[index] = quantity;
+    }
+
+    long idAt(int index) {
+        return ids[index];
+    }
+
+    void setIdAt(int index, long id) {
+        ids[index] = id;
+    }
+
+    /**
+     * Удаление со сдвигом назад: последующие элементы цепочки переносятся в освободившуюся ячейку,
+     * чтобы поиск не останавливался на дыре.
+     */
+    void removeAt(int index) {
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int ideal = (int) mix(keys[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                quantities[hole] = quantities[next];
+                ids[hole] = ids[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        quantities[hole] = 0;
+        ids[hole] = 0;
+        size--;
+    }
+
+    long keyAt(int index) {
+        return keys[index];
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    void clear() {
+        allocate(keys.length);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        quantities = new long[capacity];
+        ids = new long[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldQuantities = quantities;
+        long[] oldIds = ids;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = indexForInsert(oldKeys[i]);
+                quantities[index] = oldQuantities[i];
+                ids[index] = oldIds[i];
+            }
+        }
+    }
+}
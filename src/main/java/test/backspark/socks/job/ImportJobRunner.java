@@ -0,0 +1,238 @@
+package test.backspark.socks.job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.event.InventoryChangedEvent;
+import test.backspark.socks.importer.CsvRejection;
+import test.backspark.socks.importer.CsvSegment;
+import test.backspark.socks.importer.ParallelCsvParser;
+import test.backspark.socks.importer.ParsedCsv;
+import test.backspark.socks.importer.RejectionReport;
+import test.backspark.socks.metrics.ImportMetrics;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.model.entity.ImportJob;
+import test.backspark.socks.model.entity.ImportJobStatus;
+import test.backspark.socks.repositrory.ImportJobRejectionRepository;
+import test.backspark.socks.repositrory.ImportJobRepository;
+import test.backspark.socks.repositrory.SocksBulkRepository;
+
+import javax.annotation.PreDestroy;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Выполняет задания импорта в ограниченном пуле потоков. Файл обрабатывается порциями по
+ * {@code socks.jobs.chunk-size} байт, каждая порция и смещение задания коммитятся одной транзакцией,
+ * поэтому после перезапуска узла незавершенные задания продолжаются с последней закоммиченной порции.
+ */
+@Component
+public class ImportJobRunner implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(ImportJobRunner.class);
+
+    private final ImportJobRepository importJobRepository;
+    private final ImportJobRejectionRepository importJobRejectionRepository;
+    private final SocksBulkRepository socksBulkRepository;
+    private final ParallelCsvParser parallelCsvParser;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ImportMetrics importMetrics;
+    private final int chunkSize;
+    private final int maxRejections;
+    private final ThreadPoolExecutor executor;
+    private volatile boolean stopping;
+
+    public ImportJobRunner(SocksProperties properties,
+                           ImportJobRepository importJobRepository,
+                           ImportJobRejectionRepository importJobRejectionRepository,
+                           SocksBulkRepository socksBulkRepository,
+                           ParallelCsvParser parallelCsvParser,
+                           PlatformTransactionManager transactionManager,
+                           ApplicationEventPublisher eventPublisher,
+                           ImportMetrics importMetrics) {
+        this.importJobRepository = importJobRepository;
+        this.importJobRejectionRepository = importJobRejectionRepository;
+        this.socksBulkRepository = socksBulkRepository;
+        this.parallelCsvParser = parallelCsvParser;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.importMetrics = importMetrics;
+        this.chunkSize = Math.toIntExact(properties.getJobs().getChunkSize().toBytes());
+        this.maxRejections = properties.getBatch().getMaxRejections();
+
+        int threads = properties.getJobs().getThreads();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getJobs().getQueueCapacity()), runnable -> {
+            Thread thread = new Thread(runnable, "socks-import-job-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (ImportJob job : importJobRepository.findByStatusInOrderById(EnumSet.of(ImportJobStatus.QUEUED, ImportJobStatus.RUNNING))) {
+            try {
+                submit(job.getId());
+                logger.info("Resuming import job {} from byte {}", job.getId(), job.getCommittedOffset());
+            } catch (RejectedExecutionException e) {
+                logger.error("Import job {} was not resumed: job queue is full", job.getId());
+            }
+        }
+    }
+
+    /**
+     * @throws RejectedExecutionException если очередь заданий заполнена
+     */
+    public void submit(long jobId) {
+        executor.execute(() -> run(jobId));
+    }
+
+    void run(long jobId) {
+        if (stopping) {
+            return;
+        }
+        ImportJob job = transactionTemplate.execute(status -> markRunning(jobId));
+        if (job == null) {
+            return;
+        }
+
+        Path spool = Path.of(job.getSpoolPath());
+        try (FileChannel channel = FileChannel.open(spool, StandardOpenOption.READ)) {
+            while (job.getStatus() == ImportJobStatus.RUNNING && !stopping) {
+                long offset = job.getCommittedOffset();
+                long started = System.nanoTime();
+                CsvSegment segment = parallelCsvParser.parseSegment(channel, offset, chunkSize, job.getRowsRead());
+                job = transactionTemplate.execute(status -> commitChunk(jobId, offset, segment));
+                importMetrics.record("job", segment.parsed().stats(), segment.parsed().rejections(), started);
+                publishChanges(segment.parsed());
+            }
+        } catch (ConcurrentRunException e) {
+            logger.warn("Import job {} is processed by another runner", jobId);
+            return;
+        } catch (Exception e) {
+            logger.error("Import job {} failed", jobId, e);
+            transactionTemplate.executeWithoutResult(status -> markFailed(jobId, e));
+            return;
+        }
+
+        if (job.getStatus() == ImportJobStatus.COMPLETED) {
+            logger.info("Import job {} completed: {} rows read, {} applied, {} rejected",
+                    jobId, job.getRowsRead(), job.getRowsApplied(), job.getRowsRejected());
+            deleteSpool(spool);
+        }
+    }
+
+    private ImportJob markRunning(long jobId) {
+        ImportJob job = importJobRepository.findByIdForUpdate(jobId).orElse(null);
+        if (job == null || job.getStatus() == ImportJobStatus.COMPLETED || job.getStatus() == ImportJobStatus.FAILED) {
+            return null;
+        }
+        Instant now = Instant.now();
+        job.setStatus(ImportJobStatus.RUNNING);
+        if (job.getStartedAt() == null) {
+            job.setStartedAt(now);
+        }
+        job.setUpdatedAt(now);
+        return importJobRepository.save(job);
+    }
+
+    private ImportJob commitChunk(long jobId, long offset, CsvSegment segment) {
+        ImportJob job = importJobRepository.findByIdForUpdate(jobId).orElseThrow(ConcurrentRunException::new);
+        if (job.getStatus() != ImportJobStatus.RUNNING || job.getCommittedOffset() != offset) {
+            throw new ConcurrentRunException();
+        }
+
+        ParsedCsv parsed = segment.parsed();
+        socksBulkRepository.upsertQuantities(parsed.quantities());
+        keepRejections(job, parsed.rejections());
+
+        Instant now = Instant.now();
+        job.setCommittedOffset(segment.end());
+        job.setRowsRead(job.getRowsRead() + parsed.stats().rowsRead());
+        job.setRowsApplied(job.getRowsApplied() + parsed.stats().rowsAccepted());
+        job.setRowsRejected(job.getRowsRejected() + parsed.stats().rowsRejected());
+        job.setChunks(job.getChunks() + 1);
+        job.setUpdatedAt(now);
+        if (segment.last()) {
+            job.setStatus(ImportJobStatus.COMPLETED);
+            job.setFinishedAt(now);
+        }
+        return importJobRepository.save(job);
+    }
+
+    /**
+     * Дописывает отклоненные строки порции, пока задание не набрало {@code socks.batch.max-rejections} строк;
+     * счетчики по кодам ошибок обновляются всегда.
+     */
+    private void keepRejections(ImportJob job, RejectionReport rejections) {
+        if (rejections.total() == 0) {
+            return;
+        }
+        long room = Math.max(maxRejections - job.getRejectionsKept(), 0);
+        List<CsvRejection> rows = rejections.rows().subList(0, (int) Math.min(rejections.rows().size(), room));
+        importJobRejectionRepository.saveRows(job.getId(), rows);
+        importJobRejectionRepository.addCounts(job.getId(), rejections.counts());
+        job.setRejectionsKept(job.getRejectionsKept() + rows.size());
+    }
+
+    private void markFailed(long jobId, Exception e) {
+        importJobRepository.findByIdForUpdate(jobId).ifPresent(job -> {
+            Instant now = Instant.now();
+            job.setStatus(ImportJobStatus.FAILED);
+            job.setError(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            job.setUpdatedAt(now);
+            job.setFinishedAt(now);
+            importJobRepository.save(job);
+        });
+    }
+
+    private void publishChanges(ParsedCsv parsed) {
+        if (!parsed.quantities().isEmpty()) {
+            Map<SocksKey, Long> deltas = new HashMap<>();
+            parsed.quantities().forEach((key, quantity) -> deltas.put(key, (long) quantity));
+            eventPublisher.publishEvent(new InventoryChangedEvent(deltas));
+        }
+    }
+
+    private static void deleteSpool(Path spool) {
+        try {
+            Files.deleteIfExists(spool);
+        } catch (Exception e) {
+            logger.warn("Could not delete spooled import file {}", spool, e);
+        }
+    }
+
+    /**
+     * Останавливает задания на границе порции; они остаются RUNNING и продолжатся после запуска.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        stopping = true;
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            logger.warn("Import jobs did not stop in time");
+        }
+    }
+
+    private static class ConcurrentRunException extends RuntimeException {
+    }
+}
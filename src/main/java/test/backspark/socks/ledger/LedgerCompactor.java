@@ -0,0 +1,141 @@
+package test.backspark.socks.ledger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.repositrory.SocksMovementRepository;
+
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фоновое уплотнение журнала движений: каждые {@code socks.ledger.compaction-interval} переносит самые старые
+ * движения в снимок {@code socks} порциями по {@code compaction-batch-size}, заранее создает дневные секции
+ * журнала и удаляет опустевшие секции прошлых дней вместо построчной очистки.
+ * <p>
+ * При выключенном журнале один раз при старте переносит оставшийся хвост, чтобы снимок снова был полным.
+ */
+@Component
+public class LedgerCompactor implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(LedgerCompactor.class);
+
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final int batchSize;
+    private final int partitionsAhead;
+    private final SocksMovementRepository socksMovementRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private ScheduledExecutorService scheduler;
+    private LocalDate maintainedDay;
+
+    public LedgerCompactor(SocksProperties properties,
+                           SocksMovementRepository socksMovementRepository,
+                           PlatformTransactionManager transactionManager) {
+        this(properties, socksMovementRepository, transactionManager, Clock.systemUTC());
+    }
+
+    LedgerCompactor(SocksProperties properties,
+                    SocksMovementRepository socksMovementRepository,
+                    PlatformTransactionManager transactionManager,
+                    Clock clock) {
+        this.enabled = properties.getLedger().isEnabled();
+        this.intervalMillis = properties.getLedger().getCompactionInterval().toMillis();
+        this.batchSize = properties.getLedger().getCompactionBatchSize();
+        this.partitionsAhead = properties.getLedger().getPartitionsAhead();
+        this.socksMovementRepository = socksMovementRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            if (socksMovementRepository.hasMovements()) {
+                logger.info("Ledger is disabled, folding the remaining movements into the snapshot");
+                compactAll();
+            }
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "socks-ledger-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runOnce, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void runOnce() {
+        try {
+            compactAll();
+            maintainPartitions();
+        } catch (RuntimeException e) {
+            logger.error("Ledger compaction failed", e);
+        }
+    }
+
+    /**
+     * Уплотняет порции, пока журнал не опустеет; движения, которые дописываются во время работы, ждут следующего запуска.
+     */
+    int compactAll() {
+        int total = 0;
+        int moved;
+        do {
+            moved = transactionTemplate.execute(status -> socksMovementRepository.compact(batchSize));
+            total += moved;
+        } while (moved >= batchSize);
+        if (total > 0) {
+            logger.debug("Folded {} movements into the snapshot", total);
+        }
+        return total;
+    }
+
+    void maintainPartitions() {
+        LocalDate today = LocalDate.now(clock);
+        if (today.equals(maintainedDay)) {
+            return;
+        }
+        boolean created = true;
+        for (int day = 0; day <= partitionsAhead; day++) {
+            created &= createPartition(today.plusDays(day));
+        }
+        for (LocalDate day : socksMovementRepository.partitionDays()) {
+            if (day.isBefore(today) && Boolean.TRUE.equals(transactionTemplate.execute(status -> socksMovementRepository.dropPartitionIfEmpty(day)))) {
+                logger.info("Dropped empty movement partition for {}", day);
+            }
+        }
+        if (created) {
+            maintainedDay = today;
+        }
+    }
+
+    private boolean createPartition(LocalDate day) {
+        try {
+            socksMovementRepository.createPartition(day);
+            return true;
+        } catch (RuntimeException e) {
+            // секцию нельзя создать, пока в секции по умолчанию есть строки этого дня; они уйдут после уплотнения
+            logger.warn("Movement partition for {} was not created: {}", day, e.getMessage());
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        if (!scheduler.awaitTermination(30, TimeUnit.SECONDS)) {
+            logger.warn("Ledger compactor did not stop in time");
+        }
+    }
+}
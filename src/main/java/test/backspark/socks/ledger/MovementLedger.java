@@ -0,0 +1,138 @@
+package test.backspark.socks.ledger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.event.InventoryChangedEvent;
+import test.backspark.socks.exeptionhandler.NotEnoughSocksException;
+import test.backspark.socks.exeptionhandler.SocksNotFoundException;
+import test.backspark.socks.model.dto.SocksDto;
+import test.backspark.socks.model.dto.SocksFilter;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.model.dto.SocksTotalDto;
+import test.backspark.socks.model.dto.TotalsGroupBy;
+import test.backspark.socks.model.entity.Socks;
+import test.backspark.socks.repositrory.SocksMovementRepository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Режим {@code socks.ledger}: income и outcome не меняют строку {@code socks}, а дописывают движение
+ * в журнал, поэтому горячий ключ не становится очередью на блокировку строки. Остаток - это снимок плюс
+ * еще не уплотненный хвост; хвост переносит в снимок {@link LedgerCompactor}.
+ * <p>
+ * Списания одного ключа упорядочиваются advisory-блокировкой ключа: остаток проверяется под ней,
+ * а поступления пишутся вовсе без блокировок.
+ */
+@Component
+public class MovementLedger {
+    private static final Logger logger = LoggerFactory.getLogger(MovementLedger.class);
+
+    private final boolean enabled;
+    private final SocksMovementRepository socksMovementRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public MovementLedger(SocksProperties properties,
+                          SocksMovementRepository socksMovementRepository,
+                          ApplicationEventPublisher eventPublisher) {
+        this.enabled = properties.getLedger().isEnabled();
+        this.socksMovementRepository = socksMovementRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Transactional
+    public SocksDto income(SocksKey key, int quantity) {
+        socksMovementRepository.ensureSnapshots(List.of(key));
+        socksMovementRepository.append(Map.of(key, quantity));
+        Socks balance = socksMovementRepository.balances(List.of(key)).get(key);
+        eventPublisher.publishEvent(InventoryChangedEvent.of(key, quantity));
+        return new SocksDto(balance.getId(), key.color(), key.cottonPart(), balance.getQuantity());
+    }
+
+    @Transactional
+    public SocksDto outcome(SocksKey key, int quantity) {
+        Socks balance = lockBalances(List.of(key)).get(key);
+        if (balance == null) {
+            throw new SocksNotFoundException("Носки не найдены");
+        }
+        if (balance.getQuantity() < quantity) {
+            logger.error("Socks not enough");
+            throw new NotEnoughSocksException("Носков не хватает на складе");
+        }
+        socksMovementRepository.append(Map.of(key, -quantity));
+        eventPublisher.publishEvent(InventoryChangedEvent.of(key, -quantity));
+        return new SocksDto(balance.getId(), key.color(), key.cottonPart(), balance.getQuantity() - quantity);
+    }
+
+    /**
+     * Суммарный остаток по фильтру с учетом неуплотненного хвоста.
+     */
+    public long sumQuantity(SocksFilter filter) {
+        return socksMovementRepository.sumQuantity(filter);
+    }
+
+    /**
+     * Выгрузка позиций с учетом неуплотненного хвоста; вызывается в транзакции.
+     */
+    public void streamBalances(SocksFilter filter, Long afterId, Integer limit, int fetchSize, Consumer<Socks> consumer) {
+        socksMovementRepository.streamBalances(filter, afterId, limit, fetchSize, consumer);
+    }
+
+    public List<SocksTotalDto> totals(SocksFilter filter, TotalsGroupBy groupBy, int bucketWidth) {
+        return socksMovementRepository.totals(filter, groupBy, bucketWidth);
+    }
+
+    /**
+     * Блокирует ключи до конца транзакции вызывающего и возвращает их остатки с учетом хвоста.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<SocksKey, Socks> lockBalances(Collection<SocksKey> keys) {
+        socksMovementRepository.lockKeys(keys);
+        return socksMovementRepository.balances(keys);
+    }
+
+    /**
+     * Блокирует ключи и возвращает суммы их неуплотненных движений.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<SocksKey, Long> lockTails(Collection<SocksKey> keys) {
+        socksMovementRepository.lockKeys(keys);
+        return socksMovementRepository.tails(keys);
+    }
+
+    /**
+     * Дописывает чистые дельты по ключам; для новых ключей заводит строки снимка и возвращает их.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Socks> record(Map<SocksKey, Integer> deltas) {
+        List<Socks> created = socksMovementRepository.ensureSnapshots(deltas.keySet());
+        socksMovementRepository.append(deltas);
+        return created;
+    }
+
+    /**
+     * Обнуляет хвосты ключей встречными движениями; нужен перед записью абсолютного значения в снимок.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void cancel(Map<SocksKey, Long> tails) {
+        Map<SocksKey, Integer> reversed = new HashMap<>();
+        tails.forEach((key, tail) -> {
+            if (tail != 0) {
+                reversed.put(key, Math.toIntExact(-tail));
+            }
+        });
+        socksMovementRepository.append(reversed);
+    }
+}
@@ -0,0 +1,59 @@
+package test.backspark.socks.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import test.backspark.socks.importer.ImportStats;
+import test.backspark.socks.importer.RejectionReport;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики пакетного импорта с тегом {@code source} (upload, stream, local, job):
+ * <ul>
+ *     <li>{@code socks.import.rows{result=accepted|rejected}} - счетчики строк;</li>
+ *     <li>{@code socks.import.rejections{error}} - отклоненные строки по кодам ошибок;</li>
+ *     <li>{@code socks.import.duration} - время разбора и записи;</li>
+ *     <li>{@code socks.import.throughput} - строк в секунду для каждого импорта или порции задания.</li>
+ * </ul>
+ */
+@Component
+public class ImportMetrics {
+    private final MeterRegistry registry;
+
+    public ImportMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void record(String source, ImportStats stats, RejectionReport rejections, long startedNanos) {
+        long elapsedNanos = System.nanoTime() - startedNanos;
+        Timer.builder("socks.import.duration")
+                .tag("source", source)
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        Counter.builder("socks.import.rows")
+                .tag("source", source)
+                .tag("result", "accepted")
+                .register(registry)
+                .increment(stats.rowsAccepted());
+        Counter.builder("socks.import.rows")
+                .tag("source", source)
+                .tag("result", "rejected")
+                .register(registry)
+                .increment(stats.rowsRejected());
+        rejections.counts().forEach((error, count) -> Counter.builder("socks.import.rejections")
+                .tag("source", source)
+                .tag("error", error.name())
+                .register(registry)
+                .increment(count));
+        if (elapsedNanos > 0 && stats.rowsRead() > 0) {
+            DistributionSummary.builder("socks.import.throughput")
+                    .baseUnit("rows/s")
+                    .tag("source", source)
+                    .register(registry)
+                    .record(stats.rowsRead() * 1e9 / elapsedNanos);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package test.backspark.socks.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import test.backspark.socks.importer.RejectionReport;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchImportSummary {
+    private long rowsRead;
+    private long rowsImported;
+    private long rowsRejected;
+    private long chunks;
+    private long keysUpserted;
+    private long totalQuantity;
+    @ToString.Exclude
+    private RejectionReport rejections;
+}
@@ -0,0 +1,15 @@
+package test.backspark.socks.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkItemResult {
+    private int index;
+    private BulkItemStatus status;
+    private SocksDto socks;
+    private String message;
+}
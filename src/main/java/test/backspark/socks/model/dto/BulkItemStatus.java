@@ -0,0 +1,9 @@
+package test.backspark.socks.model.dto;
+
+public enum BulkItemStatus {
+    OK,
+    INVALID,
+    NOT_FOUND,
+    NOT_ENOUGH,
+    SKIPPED
+}
@@ -0,0 +1,6 @@
+package test.backspark.socks.model.dto;
+
+public enum BulkMode {
+    ALL_OR_NOTHING,
+    BEST_EFFORT
+}
@@ -0,0 +1,18 @@
+package test.backspark.socks.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkMovementResult {
+    private BulkMode mode;
+    private boolean applied;
+    private int succeeded;
+    private int failed;
+    private List<BulkItemResult> items;
+}
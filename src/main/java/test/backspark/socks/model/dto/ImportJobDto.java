@@ -0,0 +1,29 @@
+package test.backspark.socks.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import test.backspark.socks.model.entity.ImportJobStatus;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportJobDto {
+    private Long id;
+    private ImportJobStatus status;
+    private String fileName;
+    private long fileSize;
+    private long bytesCommitted;
+    private long rowsRead;
+    private long rowsApplied;
+    private long rowsRejected;
+    private long rejectionsDropped;
+    private long chunks;
+    private double rowsPerSecond;
+    private String error;
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+}
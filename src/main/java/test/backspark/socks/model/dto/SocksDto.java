@@ -5,7 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import javax.validation.constraints.Max;
-import javax.validation.constraints.NotNull;
+import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
 
@@ -16,7 +16,7 @@ public class SocksDto {
     @PositiveOrZero(message = "Неверно указан идентификатор")
     private Long id;
 
-    @NotNull(message = "Неверно указан цвет")
+    @NotBlank(message = "Неверно указан цвет")
     private String color;
 
     @Max(value = 100, message = "Процент содержания хлопка не должен превышать 100")
@@ -0,0 +1,64 @@
+package test.backspark.socks.model.dto;
+
+import java.util.Collection;
+
+public record SocksFilter(String color, String operator, Integer cottonPart, Integer minCottonPart, Integer maxCottonPart) {
+
+    public static final int MIN_COTTON_PART = 0;
+    public static final int MAX_COTTON_PART = 100;
+
+    public static SocksFilter of(String color, String operator, Integer cottonPart, Integer minCottonPart, Integer maxCottonPart) {
+        String normalizedColor = color != null ? color.trim().toLowerCase() : null;
+        if (operator == null || cottonPart == null) {
+            return new SocksFilter(normalizedColor, null, null, minCottonPart, maxCottonPart);
+        }
+        return new SocksFilter(normalizedColor, operator, cottonPart, minCottonPart, maxCottonPart);
+    }
+
+    public int lowerCottonBound() {
+        long lower = minCottonPart != null ? minCottonPart : MIN_COTTON_PART;
+        if (operator != null) {
+            switch (operator) {
+                case "moreThan" -> lower = Math.max(lower, (long) cottonPart + 1);
+                case "equal" -> lower = Math.max(lower, cottonPart);
+                case "lessThan" -> {
+                }
+                default -> throw new IllegalArgumentException("Invalid operator: " + operator);
+            }
+        }
+        return clamp(lower);
+    }
+
+    public int upperCottonBound() {
+        long upper = maxCottonPart != null ? maxCottonPart : MAX_COTTON_PART;
+        if (operator != null) {
+            switch (operator) {
+                case "lessThan" -> upper = Math.min(upper, (long) cottonPart - 1);
+                case "equal" -> upper = Math.min(upper, cottonPart);
+                case "moreThan" -> {
+                }
+                default -> throw new IllegalArgumentException("Invalid operator: " + operator);
+            }
+        }
+        return clamp(upper);
+    }
+
+    private static int clamp(long bound) {
+        return (int) Math.max(MIN_COTTON_PART - 1, Math.min(MAX_COTTON_PART + 1, bound));
+    }
+
+    public boolean matches(SocksKey key) {
+        return (color == null || color.equals(key.color()))
+                && key.cottonPart() >= lowerCottonBound()
+                && key.cottonPart() <= upperCottonBound();
+    }
+
+    public boolean matchesAny(Collection<SocksKey> keys) {
+        for (SocksKey key : keys) {
+            if (matches(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,15 @@
+package test.backspark.socks.model.dto;
+
+import java.util.Comparator;
+
+public record SocksKey(String color, int cottonPart) {
+
+    /**
+     * Общий порядок ключей: в нем блокируются строки, чтобы параллельные записи не ждали друг друга по кругу.
+     */
+    public static final Comparator<SocksKey> ORDER = Comparator.comparing(SocksKey::color).thenComparingInt(SocksKey::cottonPart);
+
+    public static SocksKey of(String color, Integer cottonPart) {
+        return new SocksKey(color.trim().toLowerCase(), cottonPart);
+    }
+}
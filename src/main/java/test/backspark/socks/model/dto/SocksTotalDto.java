@@ -0,0 +1,25 @@
+package test.backspark.socks.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Суммарный остаток группы. Поля, по которым не группировали, пустые; интервал хлопка - включительно с обеих сторон.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SocksTotalDto {
+    private String color;
+    private Integer cottonPartFrom;
+    private Integer cottonPartTo;
+    private long quantity;
+
+    public static SocksTotalDto of(String color, Integer bucket, int bucketWidth, long quantity) {
+        if (bucket == null) {
+            return new SocksTotalDto(color, null, null, quantity);
+        }
+        return new SocksTotalDto(color, bucket, Math.min(bucket + bucketWidth - 1, SocksFilter.MAX_COTTON_PART), quantity);
+    }
+}
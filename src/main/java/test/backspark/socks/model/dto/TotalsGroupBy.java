@@ -0,0 +1,15 @@
+package test.backspark.socks.model.dto;
+
+public enum TotalsGroupBy {
+    COLOR,
+    COTTON_PART,
+    COLOR_AND_COTTON_PART;
+
+    public boolean byColor() {
+        return this != COTTON_PART;
+    }
+
+    public boolean byCottonPart() {
+        return this != COLOR;
+    }
+}
@@ -0,0 +1,70 @@
+package test.backspark.socks.model.entity;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.Instant;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "import_job", indexes = @Index(name = "import_job_status_idx", columnList = "status"))
+@NoArgsConstructor
+public class ImportJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ImportJobStatus status;
+
+    @Column(nullable = false)
+    private String fileName;
+
+    @Column(nullable = false)
+    private String spoolPath;
+
+    @Column(nullable = false)
+    private long fileSize;
+
+    @Column(nullable = false)
+    private long committedOffset;
+
+    @Column(nullable = false)
+    private long rowsRead;
+
+    @Column(nullable = false)
+    private long rowsApplied;
+
+    @Column(nullable = false)
+    private long rowsRejected;
+
+    @Column(nullable = false)
+    private long chunks;
+
+    @Column(nullable = false)
+    private long rejectionsKept;
+
+    private String error;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private Instant startedAt;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    private Instant finishedAt;
+}
@@ -0,0 +1,8 @@
+package test.backspark.socks.model.entity;
+
+public enum ImportJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -5,27 +5,37 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 
 @Getter
 @Setter
 @Entity
-@Table(name = "socks")
+@Table(name = "socks",
+        uniqueConstraints = @UniqueConstraint(name = "socks_color_cotton_part_key", columnNames = {"color", "cotton_part"}),
+        indexes = @Index(name = "socks_cotton_part_idx", columnList = "cotton_part"))
 @AllArgsConstructor
 @NoArgsConstructor
 public class Socks {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "socks_id_seq")
+    @SequenceGenerator(name = "socks_id_seq", sequenceName = "socks_id_seq", allocationSize = 50)
     private Long id;
 
+    @Column(nullable = false)
     private String color;
 
+    @Column(nullable = false)
     private Integer cottonPart;
 
+    @Column(nullable = false)
     private Integer quantity;
 
 }
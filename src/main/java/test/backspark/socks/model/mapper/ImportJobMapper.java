@@ -0,0 +1,41 @@
+package test.backspark.socks.model.mapper;
+
+import org.springframework.stereotype.Component;
+import test.backspark.socks.model.dto.ImportJobDto;
+import test.backspark.socks.model.entity.ImportJob;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Component
+public class ImportJobMapper {
+
+    public ImportJobDto mapToDto(ImportJob job) {
+        ImportJobDto dto = new ImportJobDto();
+        dto.setId(job.getId());
+        dto.setStatus(job.getStatus());
+        dto.setFileName(job.getFileName());
+        dto.setFileSize(job.getFileSize());
+        dto.setBytesCommitted(job.getCommittedOffset());
+        dto.setRowsRead(job.getRowsRead());
+        dto.setRowsApplied(job.getRowsApplied());
+        dto.setRowsRejected(job.getRowsRejected());
+        dto.setRejectionsDropped(job.getRowsRejected() - job.getRejectionsKept());
+        dto.setChunks(job.getChunks());
+        dto.setRowsPerSecond(rowsPerSecond(job));
+        dto.setError(job.getError());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setStartedAt(job.getStartedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        return dto;
+    }
+
+    private static double rowsPerSecond(ImportJob job) {
+        if (job.getStartedAt() == null) {
+            return 0;
+        }
+        Instant end = job.getFinishedAt() != null ? job.getFinishedAt() : job.getUpdatedAt();
+        long millis = Duration.between(job.getStartedAt(), end).toMillis();
+        return millis <= 0 ? 0 : job.getRowsRead() * 1000.0 / millis;
+    }
+}
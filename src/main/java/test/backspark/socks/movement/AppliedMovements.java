@@ -0,0 +1,17 @@
+package test.backspark.socks.movement;
+
+import test.backspark.socks.model.dto.SocksKey;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @param results итоги в порядке движений
+ * @param deltas  записанные в БД чистые дельты по ключам; пусто, если ничего не записано
+ */
+public record AppliedMovements(List<MovementResult> results, Map<SocksKey, Long> deltas) {
+
+    public boolean hasFailures() {
+        return results.stream().anyMatch(result -> !result.isSuccess());
+    }
+}
@@ -0,0 +1,21 @@
+package test.backspark.socks.movement;
+
+import test.backspark.socks.model.dto.SocksDto;
+
+/**
+ * Итог одного движения: состояние позиции после него либо исключение отказа.
+ */
+public record MovementResult(SocksDto socks, RuntimeException error) {
+
+    public static MovementResult success(SocksDto socks) {
+        return new MovementResult(socks, null);
+    }
+
+    public static MovementResult failure(RuntimeException error) {
+        return new MovementResult(null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,9 @@
+package test.backspark.socks.movement;
+
+import test.backspark.socks.model.dto.SocksKey;
+
+/**
+ * Движение по складу: положительная дельта - приход, отрицательная - расход.
+ */
+public record StockMovement(SocksKey key, int delta) {
+}
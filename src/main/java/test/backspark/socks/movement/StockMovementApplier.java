@@ -0,0 +1,89 @@
+package test.backspark.socks.movement;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import test.backspark.socks.exeptionhandler.NotEnoughSocksException;
+import test.backspark.socks.exeptionhandler.SocksNotFoundException;
+import test.backspark.socks.ledger.MovementLedger;
+import test.backspark.socks.model.dto.SocksDto;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.model.entity.Socks;
+import test.backspark.socks.repositrory.SocksBulkRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Применяет пакет движений множественными запросами: блокирует затронутые строки, проверяет движения
+ * по порядку в памяти и пишет чистые дельты по ключам одним upsert-ом. Работает в транзакции вызывающего.
+ * В режиме журнала вместо строк блокируются ключи, а дельты дописываются движениями.
+ */
+@Component
+@RequiredArgsConstructor
+public class StockMovementApplier {
+
+    private final SocksBulkRepository socksBulkRepository;
+    private final MovementLedger movementLedger;
+
+    /**
+     * @param atomic если true и хотя бы одно движение отклонено, в БД ничего не пишется
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public AppliedMovements apply(List<StockMovement> movements, boolean atomic) {
+        if (movements.isEmpty()) {
+            return new AppliedMovements(List.of(), Map.of());
+        }
+        List<SocksKey> keys = movements.stream().map(StockMovement::key).distinct().toList();
+        Map<SocksKey, Socks> locked = movementLedger.isEnabled()
+                ? movementLedger.lockBalances(keys)
+                : socksBulkRepository.lockStock(keys);
+        Map<SocksKey, Long> current = new HashMap<>();
+        locked.forEach((key, socks) -> current.put(key, (long) socks.getQuantity()));
+
+        long[] after = new long[movements.size()];
+        RuntimeException[] errors = new RuntimeException[movements.size()];
+        Map<SocksKey, Integer> net = new HashMap<>();
+        boolean failed = false;
+        for (int i = 0; i < movements.size(); i++) {
+            StockMovement movement = movements.get(i);
+            Long quantity = current.get(movement.key());
+            if (movement.delta() < 0 && quantity == null) {
+                errors[i] = new SocksNotFoundException("Носки не найдены");
+                failed = true;
+            } else if (movement.delta() < 0 && quantity < -movement.delta()) {
+                errors[i] = new NotEnoughSocksException("Носков не хватает на складе");
+                failed = true;
+            } else {
+                after[i] = (quantity == null ? 0 : quantity) + movement.delta();
+                current.put(movement.key(), after[i]);
+                net.merge(movement.key(), movement.delta(), Math::addExact);
+            }
+        }
+        if (atomic && failed) {
+            net.clear();
+        }
+
+        net.entrySet().removeIf(entry -> entry.getValue() == 0 && locked.containsKey(entry.getKey()));
+        Map<SocksKey, Long> ids = new HashMap<>();
+        locked.forEach((key, socks) -> ids.put(key, socks.getId()));
+        List<Socks> written = movementLedger.isEnabled()
+                ? movementLedger.record(net)
+                : socksBulkRepository.upsertQuantities(net);
+        written.forEach(socks -> ids.put(new SocksKey(socks.getColor(), socks.getCottonPart()), socks.getId()));
+
+        List<MovementResult> results = new ArrayList<>(movements.size());
+        for (int i = 0; i < movements.size(); i++) {
+            SocksKey key = movements.get(i).key();
+            results.add(errors[i] != null
+                    ? MovementResult.failure(errors[i])
+                    : MovementResult.success(new SocksDto(ids.get(key), key.color(), key.cottonPart(), Math.toIntExact(after[i]))));
+        }
+        Map<SocksKey, Long> deltas = new HashMap<>();
+        net.forEach((key, delta) -> deltas.put(key, (long) delta));
+        return new AppliedMovements(results, deltas);
+    }
+}
@@ -0,0 +1,76 @@
+package test.backspark.socks.repositrory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import test.backspark.socks.importer.CsvRejection;
+import test.backspark.socks.importer.CsvRowError;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Отклоненные строки заданий импорта: не больше {@code socks.batch.max-rejections} строк на задание
+ * и счетчики по всем отклоненным строкам в разрезе кодов ошибок.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImportJobRejectionRepository {
+
+    private static final String INSERT_ROWS = """
+            INSERT INTO import_job_rejection (job_id, row_number, error, line)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String ADD_COUNT = """
+            INSERT INTO import_job_rejection_count (job_id, error, count)
+            VALUES (?, ?, ?)
+            ON CONFLICT (job_id, error) DO UPDATE SET count = import_job_rejection_count.count + EXCLUDED.count
+            """;
+
+    private static final String SELECT_ROWS =
+            "SELECT row_number, error, line FROM import_job_rejection WHERE job_id = ? ORDER BY row_number";
+
+    private static final String SELECT_COUNTS = "SELECT error, count FROM import_job_rejection_count WHERE job_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void saveRows(long jobId, List<CsvRejection> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_ROWS, rows, rows.size(), (ps, rejection) -> {
+            ps.setLong(1, jobId);
+            ps.setLong(2, rejection.row());
+            ps.setString(3, rejection.error().name());
+            ps.setString(4, rejection.line());
+        });
+    }
+
+    public void addCounts(long jobId, Map<CsvRowError, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(counts.size());
+        counts.forEach((error, count) -> args.add(new Object[]{jobId, error.name(), count}));
+        jdbcTemplate.batchUpdate(ADD_COUNT, args);
+    }
+
+    public List<CsvRejection> findRows(long jobId) {
+        return jdbcTemplate.query(SELECT_ROWS, (rs, rowNum) -> new CsvRejection(
+                rs.getLong("row_number"),
+                CsvRowError.valueOf(rs.getString("error")),
+                rs.getString("line")), jobId);
+    }
+
+    public Map<CsvRowError, Long> findCounts(long jobId) {
+        Map<CsvRowError, Long> counts = new EnumMap<>(CsvRowError.class);
+        jdbcTemplate.query(SELECT_COUNTS, (RowCallbackHandler) rs ->
+                counts.put(CsvRowError.valueOf(rs.getString("error")), rs.getLong("count")), jobId);
+        return counts;
+    }
+}
@@ -0,0 +1,190 @@
+package test.backspark.socks.repositrory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import test.backspark.socks.model.dto.SocksFilter;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.model.entity.Socks;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+@Repository
+@RequiredArgsConstructor
+public class SocksBulkRepository {
+
+    private static final String UPSERT_QUANTITIES = """
+            INSERT INTO socks (color, cotton_part, quantity)
+            SELECT * FROM unnest(?::text[], ?::int[], ?::int[])
+            ON CONFLICT (color, cotton_part) DO UPDATE SET quantity = socks.quantity + EXCLUDED.quantity
+            RETURNING id, color, cotton_part, quantity
+            """;
+
+    private static final Comparator<Map.Entry<SocksKey, Integer>> KEY_ORDER = Map.Entry.comparingByKey(SocksKey.ORDER);
+
+    private static final RowMapper<Socks> SOCKS_ROW_MAPPER = (rs, rowNum) -> new Socks(
+            rs.getLong("id"),
+            rs.getString("color"),
+            rs.getInt("cotton_part"),
+            rs.getInt("quantity"));
+
+    private static final String LOCK_STOCK = """
+            SELECT s.id, s.color, s.cotton_part, s.quantity
+            FROM socks s
+            JOIN unnest(?::text[], ?::int[]) AS k(color, cotton_part)
+              ON s.color = k.color AND s.cotton_part = k.cotton_part
+            ORDER BY s.color, s.cotton_part
+            FOR UPDATE OF s
+            """;
+
+    /**
+     * Остатки с учетом еще не уплотненных движений журнала; ключи, известные только журналу, приходят с id 0.
+     */
+    private static final String SELECT_STOCK = """
+            SELECT coalesce(s.id, 0) AS id,
+                   coalesce(s.color, t.color) AS color,
+                   coalesce(s.cotton_part, t.cotton_part) AS cotton_part,
+                   coalesce(s.quantity, 0) + coalesce(t.delta, 0) AS quantity
+            FROM socks s
+            FULL JOIN (SELECT color, cotton_part, sum(delta) AS delta
+                       FROM socks_movement
+                       GROUP BY color, cotton_part) t
+              ON s.color = t.color AND s.cotton_part = t.cotton_part
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Прибавляет количества ко всем ключам одним многострочным upsert-ом и возвращает итоговые строки.
+     * Ключи сортируются, чтобы параллельные импорты блокировали строки в одном порядке.
+     */
+    public List<Socks> upsertQuantities(Map<SocksKey, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return List.of();
+        }
+
+        List<Map.Entry<SocksKey, Integer>> entries = deltas.entrySet().stream()
+                .sorted(KEY_ORDER)
+                .toList();
+
+        String[] colors = new String[entries.size()];
+        Integer[] cottonParts = new Integer[entries.size()];
+        Integer[] quantities = new Integer[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            Map.Entry<SocksKey, Integer> entry = entries.get(i);
+            colors[i] = entry.getKey().color();
+            cottonParts[i] = entry.getKey().cottonPart();
+            quantities[i] = entry.getValue();
+        }
+
+        return jdbcTemplate.query(UPSERT_QUANTITIES, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("text", colors));
+            ps.setArray(2, connection.createArrayOf("integer", cottonParts));
+            ps.setArray(3, connection.createArrayOf("integer", quantities));
+        }, SOCKS_ROW_MAPPER);
+    }
+
+    /**
+     * Блокирует существующие строки по ключам до конца текущей транзакции, в том же порядке, что и upsert.
+     */
+    public Map<SocksKey, Socks> lockStock(Collection<SocksKey> keys) {
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+
+        String[] colors = new String[keys.size()];
+        Integer[] cottonParts = new Integer[keys.size()];
+        int i = 0;
+        for (SocksKey key : keys) {
+            colors[i] = key.color();
+            cottonParts[i] = key.cottonPart();
+            i++;
+        }
+
+        Map<SocksKey, Socks> rows = new HashMap<>();
+        jdbcTemplate.query(LOCK_STOCK, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("text", colors));
+            ps.setArray(2, connection.createArrayOf("integer", cottonParts));
+        }, SOCKS_ROW_MAPPER).forEach(socks -> rows.put(new SocksKey(socks.getColor(), socks.getCottonPart()), socks));
+        return rows;
+    }
+
+    /**
+     * Суммарные остатки сразу по нескольким фильтрам за один проход: каждому фильтру соответствует столбец
+     * {@code sum(CASE WHEN ...)}, а строки заранее сужаются общим диапазоном хлопка и набором цветов.
+     * Хвост журнала движений учитывается так же, как в {@link #forEachStock(StockRowHandler)}.
+     *
+     * @return суммы в порядке фильтров
+     */
+    public List<Long> sumQuantities(List<SocksFilter> filters) {
+        if (filters.isEmpty()) {
+            return List.of();
+        }
+        List<Object> args = new ArrayList<>();
+        StringJoiner columns = new StringJoiner(",\n       ");
+        int lower = SocksFilter.MAX_COTTON_PART + 1;
+        int upper = SocksFilter.MIN_COTTON_PART - 1;
+        Set<String> colors = new LinkedHashSet<>();
+        boolean anyColor = false;
+        for (SocksFilter filter : filters) {
+            args.add(filter.lowerCottonBound());
+            args.add(filter.upperCottonBound());
+            lower = Math.min(lower, filter.lowerCottonBound());
+            upper = Math.max(upper, filter.upperCottonBound());
+            if (filter.color() == null) {
+                anyColor = true;
+                columns.add("coalesce(sum(CASE WHEN cotton_part BETWEEN ? AND ? THEN quantity END), 0)");
+            } else {
+                args.add(filter.color());
+                colors.add(filter.color());
+                columns.add("coalesce(sum(CASE WHEN cotton_part BETWEEN ? AND ? AND color = ? THEN quantity END), 0)");
+            }
+        }
+
+        List<Object> rangeArgs = new ArrayList<>(List.of(lower, upper));
+        String range = "cotton_part BETWEEN ? AND ?";
+        if (!anyColor) {
+            range += " AND color IN (" + String.join(", ", Collections.nCopies(colors.size(), "?")) + ")";
+            rangeArgs.addAll(colors);
+        }
+        args.addAll(rangeArgs);
+        args.addAll(rangeArgs);
+
+        return jdbcTemplate.queryForObject("""
+                SELECT %1$s
+                FROM (SELECT color, cotton_part, quantity::bigint AS quantity FROM socks WHERE %2$s
+                      UNION ALL
+                      SELECT color, cotton_part, delta::bigint FROM socks_movement WHERE %2$s) t
+                """.formatted(columns, range), (rs, rowNum) -> {
+            List<Long> sums = new ArrayList<>(filters.size());
+            for (int i = 1; i <= filters.size(); i++) {
+                sums.add(rs.getLong(i));
+            }
+            return sums;
+        }, args.toArray());
+    }
+
+    public void forEachStock(StockRowHandler handler) {
+        jdbcTemplate.query(SELECT_STOCK, (RowCallbackHandler) rs ->
+                handler.accept(rs.getLong("id"), rs.getString("color"), rs.getInt("cotton_part"), rs.getLong("quantity")));
+    }
+
+    @FunctionalInterface
+    public interface StockRowHandler {
+        void accept(long id, String color, int cottonPart, long quantity);
+    }
+}
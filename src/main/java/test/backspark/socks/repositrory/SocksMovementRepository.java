@@ -0,0 +1,367 @@
+package test.backspark.socks.repositrory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import test.backspark.socks.model.dto.SocksFilter;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.model.dto.SocksTotalDto;
+import test.backspark.socks.model.dto.TotalsGroupBy;
+import test.backspark.socks.model.entity.Socks;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Журнал движений {@code socks_movement} и чтение остатка как снимка {@code socks} плюс еще не уплотненного хвоста.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SocksMovementRepository {
+
+    private static final Comparator<SocksKey> KEY_ORDER = Comparator.comparing(SocksKey::color).thenComparingInt(SocksKey::cottonPart);
+    private static final DateTimeFormatter PARTITION_DAY = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final Pattern PARTITION_NAME = Pattern.compile("socks_movement_p\\d{8}");
+
+    private static final String LOCK_KEYS = """
+            SELECT count(pg_advisory_xact_lock(k.color_hash, k.cotton_part))
+            FROM (SELECT * FROM unnest(?::int[], ?::int[]) AS u(color_hash, cotton_part)
+                  ORDER BY u.color_hash, u.cotton_part) k
+            """;
+
+    private static final String BALANCES = """
+            SELECT k.color, k.cotton_part, s.id, coalesce(s.quantity, 0) + coalesce(t.delta, 0) AS quantity
+            FROM unnest(?::text[], ?::int[]) AS k(color, cotton_part)
+            LEFT JOIN socks s ON s.color = k.color AND s.cotton_part = k.cotton_part
+            LEFT JOIN LATERAL (SELECT sum(m.delta) AS delta
+                               FROM socks_movement m
+                               WHERE m.color = k.color AND m.cotton_part = k.cotton_part) t ON true
+            WHERE s.id IS NOT NULL OR t.delta IS NOT NULL
+            """;
+
+    private static final String TAILS = """
+            SELECT m.color, m.cotton_part, sum(m.delta) AS delta
+            FROM socks_movement m
+            JOIN unnest(?::text[], ?::int[]) AS k(color, cotton_part)
+              ON m.color = k.color AND m.cotton_part = k.cotton_part
+            GROUP BY m.color, m.cotton_part
+            """;
+
+    private static final String ENSURE_SNAPSHOTS = """
+            INSERT INTO socks (color, cotton_part, quantity)
+            SELECT k.color, k.cotton_part, 0
+            FROM unnest(?::text[], ?::int[]) AS k(color, cotton_part)
+            WHERE NOT EXISTS (SELECT 1 FROM socks s WHERE s.color = k.color AND s.cotton_part = k.cotton_part)
+            ORDER BY k.color, k.cotton_part
+            ON CONFLICT (color, cotton_part) DO NOTHING
+            RETURNING id, color, cotton_part, quantity
+            """;
+
+    private static final String APPEND = """
+            INSERT INTO socks_movement (color, cotton_part, delta)
+            SELECT * FROM unnest(?::text[], ?::int[], ?::int[])
+            """;
+
+    /**
+     * Выбирает ключи самых старых движений и забирает весь видимый хвост этих ключей (строки, которые
+     * уплотняет другой узел, пропускаются), удаляет его и прибавляет суммы по ключам к снимку в той же транзакции.
+     * Хвост ключа целиком, а не первые строки по id: часть хвоста может быть отрицательной, например списания
+     * ключа, переименованного в update, без встречного движения, и вставка такого снимка нарушила бы
+     * {@code CHECK (quantity >= 0)}.
+     */
+    private static final String COMPACT = """
+            WITH oldest AS (
+                SELECT DISTINCT color, cotton_part
+                FROM (SELECT color, cotton_part FROM socks_movement ORDER BY id LIMIT ?) o
+            ), batch AS (
+                SELECT m.id, m.created_at FROM socks_movement m
+                JOIN oldest k ON m.color = k.color AND m.cotton_part = k.cotton_part
+                FOR UPDATE OF m SKIP LOCKED
+            ), moved AS (
+                DELETE FROM socks_movement m USING batch b
+                WHERE m.id = b.id AND m.created_at = b.created_at
+                RETURNING m.color, m.cotton_part, m.delta
+            ), folded AS (
+                INSERT INTO socks (color, cotton_part, quantity)
+                SELECT color, cotton_part, sum(delta)::int FROM moved
+                GROUP BY color, cotton_part
+                HAVING sum(delta) <> 0
+                ORDER BY color, cotton_part
+                ON CONFLICT (color, cotton_part) DO UPDATE SET quantity = socks.quantity + EXCLUDED.quantity
+                RETURNING 1
+            )
+            SELECT count(*) FROM moved
+            """;
+
+    /**
+     * Позиции снимка в порядке id вместе с хвостом каждой. Хвост суммируется по индексу ключа для каждой
+     * строки отдельно, поэтому курсор отдает строки сразу, не агрегируя весь журнал заранее.
+     */
+    private static final String STREAM_BALANCES = """
+            SELECT s.id, s.color, s.cotton_part, s.quantity + coalesce(t.delta, 0) AS quantity
+            FROM socks s
+            LEFT JOIN LATERAL (SELECT sum(m.delta) AS delta
+                               FROM socks_movement m
+                               WHERE m.color = s.color AND m.cotton_part = s.cotton_part) t ON true
+            WHERE %s AND s.id > ?
+            ORDER BY s.id
+            %s
+            """;
+
+    private static final String PARTITIONS = """
+            SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'socks_movement'::regclass
+            """;
+
+    private static final RowMapper<Socks> BALANCE_ROW_MAPPER = (rs, rowNum) -> new Socks(
+            rs.getObject("id", Long.class),
+            rs.getString("color"),
+            rs.getInt("cotton_part"),
+            Math.toIntExact(rs.getLong("quantity")));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Берет транзакционные advisory-блокировки ключей в одном порядке. Блокировки нужны только тем,
+     * кто проверяет остаток перед списанием, поступления пишутся без них.
+     */
+    public void lockKeys(Collection<SocksKey> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<SocksKey> sorted = keys.stream().distinct().sorted(KEY_ORDER).toList();
+        Integer[] colorHashes = new Integer[sorted.size()];
+        Integer[] cottonParts = new Integer[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            colorHashes[i] = sorted.get(i).color().hashCode();
+            cottonParts[i] = sorted.get(i).cottonPart();
+        }
+        jdbcTemplate.query(LOCK_KEYS, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("integer", colorHashes));
+            ps.setArray(2, connection.createArrayOf("integer", cottonParts));
+        }, (rs, rowNum) -> rs.getLong(1));
+    }
+
+    /**
+     * Остатки ключей одним запросом: снимок плюс хвост. Id пустой, если строки снимка еще нет;
+     * ключей без снимка и без движений в результате нет.
+     */
+    public Map<SocksKey, Socks> balances(Collection<SocksKey> keys) {
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        Map<SocksKey, Socks> rows = new HashMap<>();
+        jdbcTemplate.query(BALANCES, keyArrays(keys), BALANCE_ROW_MAPPER)
+                .forEach(socks -> rows.put(new SocksKey(socks.getColor(), socks.getCottonPart()), socks));
+        return rows;
+    }
+
+    /**
+     * Суммы еще не уплотненных движений по ключам; ключи без движений не возвращаются.
+     */
+    public Map<SocksKey, Long> tails(Collection<SocksKey> keys) {
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        Map<SocksKey, Long> tails = new HashMap<>();
+        jdbcTemplate.query(TAILS, keyArrays(keys), (RowCallbackHandler) rs ->
+                tails.put(new SocksKey(rs.getString("color"), rs.getInt("cotton_part")), rs.getLong("delta")));
+        return tails;
+    }
+
+    /**
+     * Создает пустые строки снимка для новых ключей, чтобы у позиции сразу был id. Существующие строки
+     * не блокируются и значения последовательности на них не тратятся.
+     */
+    public List<Socks> ensureSnapshots(Collection<SocksKey> keys) {
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(ENSURE_SNAPSHOTS, keyArrays(keys), (rs, rowNum) -> new Socks(
+                rs.getLong("id"),
+                rs.getString("color"),
+                rs.getInt("cotton_part"),
+                rs.getInt("quantity")));
+    }
+
+    public void append(Map<SocksKey, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        String[] colors = new String[deltas.size()];
+        Integer[] cottonParts = new Integer[deltas.size()];
+        Integer[] values = new Integer[deltas.size()];
+        int i = 0;
+        for (Map.Entry<SocksKey, Integer> entry : deltas.entrySet()) {
+            colors[i] = entry.getKey().color();
+            cottonParts[i] = entry.getKey().cottonPart();
+            values[i] = entry.getValue();
+            i++;
+        }
+        jdbcTemplate.update(APPEND, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("text", colors));
+            ps.setArray(2, connection.createArrayOf("integer", cottonParts));
+            ps.setArray(3, connection.createArrayOf("integer", values));
+        });
+    }
+
+    /**
+     * Суммарный остаток по фильтру: снимок и хвост одним запросом, поэтому уплотнение между ними
+     * не может посчитать движения дважды.
+     */
+    public long sumQuantity(SocksFilter filter) {
+        List<Object> args = new ArrayList<>();
+        String where = where(filter, args);
+        List<Object> all = new ArrayList<>(args);
+        all.addAll(args);
+        Long sum = jdbcTemplate.queryForObject("""
+                SELECT coalesce(sum(quantity), 0) FROM (
+                    SELECT quantity::bigint AS quantity FROM socks WHERE %1$s
+                    UNION ALL
+                    SELECT delta::bigint FROM socks_movement WHERE %1$s) t
+                """.formatted(where), Long.class, all.toArray());
+        return sum != null ? sum : 0;
+    }
+
+    /**
+     * Суммы по группам с учетом хвоста: как {@link #sumQuantity(SocksFilter)}, но с {@code GROUP BY} поверх объединения.
+     */
+    public List<SocksTotalDto> totals(SocksFilter filter, TotalsGroupBy groupBy, int bucketWidth) {
+        List<Object> args = new ArrayList<>();
+        String where = where(filter, args);
+        List<Object> all = new ArrayList<>(args);
+        all.addAll(args);
+        List<String> groups = new ArrayList<>();
+        if (groupBy.byColor()) {
+            groups.add("color");
+        }
+        if (groupBy.byCottonPart()) {
+            groups.add("bucket");
+        }
+        return jdbcTemplate.query("""
+                SELECT %2$s, sum(quantity) AS quantity FROM (
+                    SELECT color, cotton_part / %3$d * %3$d AS bucket, quantity::bigint AS quantity FROM socks WHERE %1$s
+                    UNION ALL
+                    SELECT color, cotton_part / %3$d * %3$d, delta::bigint FROM socks_movement WHERE %1$s) t
+                GROUP BY %2$s
+                ORDER BY %2$s
+                """.formatted(where, String.join(", ", groups), bucketWidth), (rs, rowNum) -> SocksTotalDto.of(
+                groupBy.byColor() ? rs.getString("color") : null,
+                groupBy.byCottonPart() ? rs.getInt("bucket") : null,
+                bucketWidth,
+                rs.getLong("quantity")), all.toArray());
+    }
+
+    /**
+     * Отдает позиции по фильтру с учетом хвоста по возрастанию id, начиная после {@code afterId}, курсором
+     * порциями по {@code fetchSize}. Вызывается в транзакции: без нее драйвер PostgreSQL читает результат целиком.
+     * Ключи без строки снимка не попадают в выгрузку: их хвост погашен встречными движениями в update.
+     */
+    public void streamBalances(SocksFilter filter, Long afterId, Integer limit, int fetchSize, Consumer<Socks> consumer) {
+        List<Object> args = new ArrayList<>();
+        String where = where(filter, args);
+        args.add(afterId != null ? afterId : 0L);
+        String sql = STREAM_BALANCES.formatted(where, limit != null && limit > 0 ? "LIMIT " + limit : "");
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(BALANCE_ROW_MAPPER.mapRow(rs, 0)));
+    }
+
+    private static String where(SocksFilter filter, List<Object> args) {
+        args.add(filter.lowerCottonBound());
+        args.add(filter.upperCottonBound());
+        if (filter.color() == null) {
+            return "cotton_part BETWEEN ? AND ?";
+        }
+        args.add(filter.color());
+        return "cotton_part BETWEEN ? AND ? AND color = ?";
+    }
+
+    /**
+     * Уплотняет хвосты ключей, встретившихся среди {@code limit} самых старых движений.
+     *
+     * @return сколько движений перенесено в снимок; может быть больше {@code limit}, если у ключей длинный хвост
+     */
+    public int compact(int limit) {
+        Long moved = jdbcTemplate.queryForObject(COMPACT, Long.class, limit);
+        return moved != null ? moved.intValue() : 0;
+    }
+
+    public boolean hasMovements() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM socks_movement)", Boolean.class));
+    }
+
+    public void createPartition(LocalDate day) {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS %s PARTITION OF socks_movement
+                FOR VALUES FROM ('%s 00:00:00+00') TO ('%s 00:00:00+00')
+                """.formatted(partitionName(day), day, day.plusDays(1)));
+    }
+
+    /**
+     * Дни, для которых есть секции (секция по умолчанию не входит).
+     */
+    public List<LocalDate> partitionDays() {
+        return jdbcTemplate.queryForList(PARTITIONS, String.class).stream()
+                .filter(name -> PARTITION_NAME.matcher(name).matches())
+                .map(name -> LocalDate.parse(name.substring("socks_movement_p".length()), PARTITION_DAY))
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Удаляет секцию дня, если в ней не осталось движений. Вызывается в транзакции: секция
+     * блокируется до проверки, чтобы в нее ничего не успели записать.
+     *
+     * @return true, если секция удалена
+     */
+    public boolean dropPartitionIfEmpty(LocalDate day) {
+        String name = partitionName(day);
+        jdbcTemplate.execute("LOCK TABLE " + name + " IN ACCESS EXCLUSIVE MODE");
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + name + ")", Boolean.class))) {
+            return false;
+        }
+        jdbcTemplate.execute("DROP TABLE " + name);
+        return true;
+    }
+
+    private static String partitionName(LocalDate day) {
+        return "socks_movement_p" + PARTITION_DAY.format(day);
+    }
+
+    private static PreparedStatementSetter keyArrays(Collection<SocksKey> keys) {
+        String[] colors = new String[keys.size()];
+        Integer[] cottonParts = new Integer[keys.size()];
+        int i = 0;
+        for (SocksKey key : keys) {
+            colors[i] = key.color();
+            cottonParts[i] = key.cottonPart();
+            i++;
+        }
+        return ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("text", colors));
+            ps.setArray(2, connection.createArrayOf("integer", cottonParts));
+        };
+    }
+}
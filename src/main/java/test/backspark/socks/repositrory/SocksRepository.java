@@ -2,13 +2,42 @@ package test.backspark.socks.repositrory;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import test.backspark.socks.model.entity.Socks;
 
+import javax.persistence.LockModeType;
 import java.util.Optional;
 
 @Repository
-public interface SocksRepository extends JpaRepository<Socks, Long>, JpaSpecificationExecutor<Socks> {
+public interface SocksRepository extends JpaRepository<Socks, Long>, JpaSpecificationExecutor<Socks>, SocksRepositoryCustom {
 
     Optional<Socks> findByColorAndCottonPart(String color, Integer cottonPart);
+
+    boolean existsByColorAndCottonPart(String color, Integer cottonPart);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Socks s WHERE s.id = :id")
+    Optional<Socks> findByIdForUpdate(@Param("id") Long id);
+
+    @Transactional
+    @Query(value = """
+            INSERT INTO socks (color, cotton_part, quantity) VALUES (:color, :cottonPart, :quantity)
+            ON CONFLICT (color, cotton_part) DO UPDATE SET quantity = socks.quantity + EXCLUDED.quantity
+            RETURNING *""", nativeQuery = true)
+    Socks incrementQuantity(@Param("color") String color,
+                            @Param("cottonPart") Integer cottonPart,
+                            @Param("quantity") Integer quantity);
+
+    @Transactional
+    @Query(value = """
+            UPDATE socks SET quantity = quantity - :quantity
+            WHERE color = :color AND cotton_part = :cottonPart AND quantity >= :quantity
+            RETURNING *""", nativeQuery = true)
+    Optional<Socks> decrementQuantityIfEnough(@Param("color") String color,
+                                              @Param("cottonPart") Integer cottonPart,
+                                              @Param("quantity") Integer quantity);
 }
@@ -0,0 +1,30 @@
+package test.backspark.socks.repositrory;
+
+import org.springframework.data.jpa.domain.Specification;
+import test.backspark.socks.model.dto.SocksTotalDto;
+import test.backspark.socks.model.dto.TotalsGroupBy;
+import test.backspark.socks.model.entity.Socks;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface SocksRepositoryCustom {
+
+    long sumQuantity(Specification<Socks> spec);
+
+    /**
+     * Суммы по группам одним запросом {@code GROUP BY}. Интервал хлопка задается началом:
+     * {@code cottonPart / bucketWidth * bucketWidth}.
+     */
+    List<SocksTotalDto> totals(Specification<Socks> spec, TotalsGroupBy groupBy, int bucketWidth);
+
+    /**
+     * Позиции по возрастанию id, начиная после {@code afterId}, курсором только вперед с заданным fetch size.
+     * Каждая строка отсоединяется от контекста персистентности сразу после чтения, поэтому контекст не растет.
+     * Поток нужно закрыть, читать его можно только внутри транзакции.
+     *
+     * @param afterId ключ последней полученной строки предыдущей страницы или null
+     * @param limit   размер страницы или null, чтобы выгрузить все
+     */
+    Stream<Socks> streamByFilter(Specification<Socks> spec, Long afterId, Integer limit, int fetchSize);
+}
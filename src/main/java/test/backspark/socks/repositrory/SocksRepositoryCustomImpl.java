@@ -0,0 +1,104 @@
+package test.backspark.socks.repositrory;
+
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.jpa.domain.Specification;
+import test.backspark.socks.model.dto.SocksTotalDto;
+import test.backspark.socks.model.dto.TotalsGroupBy;
+import test.backspark.socks.model.entity.Socks;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class SocksRepositoryCustomImpl implements SocksRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public long sumQuantity(Specification<Socks> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Socks> root = query.from(Socks.class);
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(cb.coalesce(cb.sumAsLong(root.<Integer>get("quantity")), 0L));
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    @Override
+    public List<SocksTotalDto> totals(Specification<Socks> spec, TotalsGroupBy groupBy, int bucketWidth) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Socks> root = query.from(Socks.class);
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        // ширина передается числовым литералом, а не параметром, чтобы выражение в SELECT и GROUP BY совпадало
+        Expression<Integer> width = cb.literal(bucketWidth);
+        Expression<Integer> bucket = cb.prod(cb.quot(root.<Integer>get("cottonPart"), width).as(Integer.class), width);
+        Expression<String> color = root.get("color");
+        List<Expression<?>> groups = new ArrayList<>();
+        if (groupBy.byColor()) {
+            groups.add(color);
+        }
+        if (groupBy.byCottonPart()) {
+            groups.add(bucket);
+        }
+        List<Selection<?>> selections = new ArrayList<>(groups);
+        selections.add(cb.coalesce(cb.sumAsLong(root.<Integer>get("quantity")), 0L));
+        query.multiselect(selections)
+                .groupBy(groups)
+                .orderBy(groups.stream().map(cb::asc).toList());
+
+        return entityManager.createQuery(query).getResultList().stream()
+                .map(tuple -> {
+                    int column = 0;
+                    String groupColor = groupBy.byColor() ? tuple.get(column++, String.class) : null;
+                    Integer groupBucket = groupBy.byCottonPart() ? tuple.get(column++, Number.class).intValue() : null;
+                    return SocksTotalDto.of(groupColor, groupBucket, bucketWidth, tuple.get(column, Long.class));
+                })
+                .toList();
+    }
+
+    @Override
+    public Stream<Socks> streamByFilter(Specification<Socks> spec, Long afterId, Integer limit, int fetchSize) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Socks> query = cb.createQuery(Socks.class);
+        Root<Socks> root = query.from(Socks.class);
+
+        Specification<Socks> keyset = afterId == null ? spec : spec.and((r, q, b) -> b.greaterThan(r.get("id"), afterId));
+        Predicate predicate = keyset.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(root).orderBy(cb.asc(root.get("id")));
+
+        TypedQuery<Socks> typedQuery = entityManager.createQuery(query)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true);
+        if (limit != null && limit > 0) {
+            typedQuery.setMaxResults(limit);
+        }
+        return typedQuery.getResultStream().map(socks -> {
+            entityManager.detach(socks);
+            return socks;
+        });
+    }
+}
@@ -0,0 +1,11 @@
+package test.backspark.socks.service;
+
+import org.springframework.web.multipart.MultipartFile;
+import test.backspark.socks.importer.RejectionReport;
+import test.backspark.socks.model.dto.ImportJobDto;
+
+public interface ImportJobService {
+    ImportJobDto submit(MultipartFile file);
+    ImportJobDto get(Long id);
+    RejectionReport rejections(Long id);
+}
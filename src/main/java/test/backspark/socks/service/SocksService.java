@@ -1,16 +1,33 @@
 package test.backspark.socks.service;
 
 import org.springframework.web.multipart.MultipartFile;
+import test.backspark.socks.importer.RejectionReport;
+import test.backspark.socks.model.dto.BatchImportSummary;
+import test.backspark.socks.model.dto.BulkMode;
+import test.backspark.socks.model.dto.BulkMovementResult;
 import test.backspark.socks.model.dto.SocksDto;
+import test.backspark.socks.model.dto.SocksFilter;
+import test.backspark.socks.model.dto.SocksTotalDto;
+import test.backspark.socks.model.dto.TotalsGroupBy;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface SocksService {
     SocksDto income(SocksDto socksDto);
     SocksDto outcome(SocksDto socksDto);
+    BulkMovementResult bulkIncome(List<SocksDto> items, BulkMode mode);
+    BulkMovementResult bulkOutcome(List<SocksDto> items, BulkMode mode);
     SocksDto update(Long id,SocksDto socksDto);
     List<SocksDto> batchIncome(MultipartFile file);
-    Integer getSocksAmountByFilter(
+    RejectionReport batchIncomeReport(MultipartFile file);
+    BatchImportSummary streamBatchIncome(InputStream inputStream);
+    BatchImportSummary localBatchIncome(String path);
+    /**
+     * {@code sortBy} и {@code sortDirection} оставлены для совместимости API и игнорируются: на сумму порядок не влияет.
+     */
+    Long getSocksAmountByFilter(
         String color,
         String operator,
         Integer cottonPart,
@@ -18,4 +35,7 @@ public interface SocksService {
         Integer maxCottonPart,
         String sortBy,
         String sortDirection);
+    List<Long> getSocksAmountsByFilters(List<SocksFilter> filters);
+    List<SocksTotalDto> getSocksTotals(SocksFilter filter, TotalsGroupBy groupBy, int bucketWidth);
+    void streamSocks(SocksFilter filter, Long afterId, Integer limit, Consumer<SocksDto> consumer);
 }
@@ -0,0 +1,112 @@
+package test.backspark.socks.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.exeptionhandler.ImportJobNotFoundException;
+import test.backspark.socks.exeptionhandler.ImportJobRejectedException;
+import test.backspark.socks.exeptionhandler.InvalidFileFormatException;
+import test.backspark.socks.importer.RejectionReport;
+import test.backspark.socks.job.ImportJobRunner;
+import test.backspark.socks.model.dto.ImportJobDto;
+import test.backspark.socks.model.entity.ImportJob;
+import test.backspark.socks.model.entity.ImportJobStatus;
+import test.backspark.socks.model.mapper.ImportJobMapper;
+import test.backspark.socks.repositrory.ImportJobRejectionRepository;
+import test.backspark.socks.repositrory.ImportJobRepository;
+import test.backspark.socks.service.ImportJobService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.RejectedExecutionException;
+
+@Service
+@RequiredArgsConstructor
+public class ImportJobServiceImpl implements ImportJobService {
+    private static final Logger logger = LoggerFactory.getLogger(ImportJobServiceImpl.class);
+
+    private final ImportJobRepository importJobRepository;
+    private final ImportJobRejectionRepository importJobRejectionRepository;
+    private final ImportJobMapper importJobMapper;
+    private final ImportJobRunner importJobRunner;
+    private final SocksProperties socksProperties;
+
+    @Override
+    public ImportJobDto submit(MultipartFile file) {
+        String originalFilename = file.getOriginalFilename();
+        if (originalFilename == null || file.isEmpty() || !originalFilename.endsWith(".csv")) {
+            throw new InvalidFileFormatException("Файл должен быть CSV и не пустой.");
+        }
+
+        Path spool = spool(file);
+        Instant now = Instant.now();
+        ImportJob job = new ImportJob();
+        job.setStatus(ImportJobStatus.QUEUED);
+        job.setFileName(originalFilename);
+        job.setSpoolPath(spool.toString());
+        job.setFileSize(file.getSize());
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        job = importJobRepository.save(job);
+
+        try {
+            importJobRunner.submit(job.getId());
+        } catch (RejectedExecutionException e) {
+            logger.warn("Import job queue is full, rejecting file {}", originalFilename);
+            importJobRepository.delete(job);
+            deleteQuietly(spool);
+            throw new ImportJobRejectedException("Очередь заданий импорта заполнена, повторите позже");
+        }
+        logger.info("Queued import job {} for file {} ({} bytes)", job.getId(), originalFilename, file.getSize());
+        return importJobMapper.mapToDto(job);
+    }
+
+    @Override
+    public ImportJobDto get(Long id) {
+        return importJobMapper.mapToDto(findJob(id));
+    }
+
+    @Override
+    public RejectionReport rejections(Long id) {
+        ImportJob job = findJob(id);
+        return new RejectionReport(
+                importJobRejectionRepository.findRows(id),
+                importJobRejectionRepository.findCounts(id),
+                job.getRowsRejected());
+    }
+
+    private ImportJob findJob(Long id) {
+        return importJobRepository.findById(id)
+                .orElseThrow(() -> new ImportJobNotFoundException("Задание импорта не найдено"));
+    }
+
+    private Path spool(MultipartFile file) {
+        Path spool = null;
+        try {
+            Path directory = Files.createDirectories(socksProperties.getJobs().getSpoolDirectory());
+            spool = Files.createTempFile(directory, "import-", ".csv");
+            file.transferTo(spool);
+            return spool;
+        } catch (IOException e) {
+            logger.error("Error spooling CSV file: {}", file.getOriginalFilename(), e);
+            deleteQuietly(spool);
+            throw new InvalidFileFormatException("Ошибка при чтении файла: " + e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete spooled import file {}", path, e);
+        }
+    }
+}
@@ -1,93 +1,310 @@
 package test.backspark.socks.service.impl;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import test.backspark.socks.cache.SocksQueryCache;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.event.InventoryChangedEvent;
 import test.backspark.socks.exeptionhandler.InvalidFileFormatException;
+import test.backspark.socks.exeptionhandler.InvalidFilterException;
 import test.backspark.socks.exeptionhandler.NotEnoughSocksException;
 import test.backspark.socks.exeptionhandler.SocksNotFoundException;
+import test.backspark.socks.importer.ImportStats;
+import test.backspark.socks.importer.LocalCsvFiles;
+import test.backspark.socks.importer.ParallelCsvParser;
+import test.backspark.socks.importer.ParsedCsv;
+import test.backspark.socks.importer.RejectionCollector;
+import test.backspark.socks.importer.RejectionReport;
+import test.backspark.socks.importer.SocksCsvImporter;
+import test.backspark.socks.inventory.CottonPrefixIndex;
+import test.backspark.socks.inventory.InventoryStore;
+import test.backspark.socks.inventory.ReservationOutcomeEngine;
+import test.backspark.socks.ledger.MovementLedger;
+import test.backspark.socks.metrics.ImportMetrics;
+import test.backspark.socks.model.dto.BatchImportSummary;
+import test.backspark.socks.model.dto.BulkItemResult;
+import test.backspark.socks.model.dto.BulkItemStatus;
+import test.backspark.socks.model.dto.BulkMode;
+import test.backspark.socks.model.dto.BulkMovementResult;
 import test.backspark.socks.model.dto.SocksDto;
+import test.backspark.socks.model.dto.SocksFilter;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.model.dto.SocksTotalDto;
+import test.backspark.socks.model.dto.TotalsGroupBy;
 import test.backspark.socks.model.entity.Socks;
 import test.backspark.socks.model.mapper.SocksMapper;
+import test.backspark.socks.movement.AppliedMovements;
+import test.backspark.socks.movement.MovementResult;
+import test.backspark.socks.movement.StockMovement;
+import test.backspark.socks.movement.StockMovementApplier;
+import test.backspark.socks.repositrory.SocksBulkRepository;
 import test.backspark.socks.repositrory.SocksRepository;
 import test.backspark.socks.service.SocksService;
 import test.backspark.socks.specification.SocksSpecification;
+import test.backspark.socks.writebehind.GroupCommitWriter;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 import java.io.BufferedReader;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class SocksServiceImpl implements SocksService {
     private static final Logger logger = LoggerFactory.getLogger(SocksServiceImpl.class);
     private final SocksRepository socksRepository;
+    private final SocksBulkRepository socksBulkRepository;
     private final SocksMapper socksMapper;
+    private final SocksCsvImporter socksCsvImporter;
+    private final ParallelCsvParser parallelCsvParser;
+    private final LocalCsvFiles localCsvFiles;
+    private final SocksProperties socksProperties;
+    private final SocksQueryCache socksQueryCache;
+    private final CottonPrefixIndex cottonPrefixIndex;
+    private final InventoryStore inventoryStore;
+    private final ReservationOutcomeEngine reservationOutcomeEngine;
+    private final GroupCommitWriter groupCommitWriter;
+    private final StockMovementApplier stockMovementApplier;
+    private final MovementLedger movementLedger;
+    private final ImportMetrics importMetrics;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
-    @Transactional
+    @Timed(value = "socks.service", histogram = true)
     public SocksDto income(SocksDto socksDto) {
         logger.info("Socks income {}", socksDto);
 
-        Socks socks = socksRepository.findByColorAndCottonPart(socksDto.getColor(), socksDto.getCottonPart())
-                .orElseGet(() -> {
-                    Socks newSocks = new Socks();
-                    newSocks.setColor(socksDto.getColor().toLowerCase());
-                    newSocks.setCottonPart(socksDto.getCottonPart());
-                    newSocks.setQuantity(0);
-                    return newSocks;
-                });
-
-        socks.setQuantity(socks.getQuantity() + socksDto.getQuantity());
-        socksRepository.save(socks);
+        SocksKey key = SocksKey.of(socksDto.getColor(), socksDto.getCottonPart());
+        if (movementLedger.isEnabled()) {
+            return movementLedger.income(key, socksDto.getQuantity());
+        }
+        if (groupCommitWriter.isEnabled()) {
+            return groupCommitWriter.income(key, socksDto.getQuantity());
+        }
+        Socks socks = socksRepository.incrementQuantity(key.color(), key.cottonPart(), socksDto.getQuantity());
+        eventPublisher.publishEvent(InventoryChangedEvent.of(key, socksDto.getQuantity()));
 
         logger.info("Socks income successfully");
         return socksMapper.mapToDto(socks);
     }
 
     @Override
-    @Transactional
+    @Timed(value = "socks.service", histogram = true)
     public SocksDto outcome(SocksDto socksDto) {
         logger.info("Socks outcome {}", socksDto);
-        Socks socks = socksRepository.findByColorAndCottonPart(socksDto.getColor(), socksDto.getCottonPart())
-                .orElseThrow(() -> new SocksNotFoundException("Носки не найдены"));
+        SocksKey key = SocksKey.of(socksDto.getColor(), socksDto.getCottonPart());
+        // журнал сам проверяет остаток (снимок плюс хвост) под блокировкой ключа
+        if (movementLedger.isEnabled()) {
+            return movementLedger.outcome(key, socksDto.getQuantity());
+        }
+        if (reservationOutcomeEngine.isActive()) {
+            return reservationOutcomeEngine.outcome(key, socksDto.getQuantity());
+        }
+        rejectFromStore(key, socksDto.getQuantity());
+        if (groupCommitWriter.isEnabled()) {
+            return groupCommitWriter.outcome(key, socksDto.getQuantity());
+        }
+        Optional<Socks> socks = socksRepository.decrementQuantityIfEnough(key.color(), key.cottonPart(), socksDto.getQuantity());
 
-        if (socks.getQuantity() < socksDto.getQuantity()) {
+        if (socks.isEmpty()) {
+            if (!socksRepository.existsByColorAndCottonPart(key.color(), key.cottonPart())) {
+                throw new SocksNotFoundException("Носки не найдены");
+            }
             logger.error("Socks not enough");
             throw new NotEnoughSocksException("Носков не хватает на складе");
         }
 
-        socks.setQuantity(socks.getQuantity() - socksDto.getQuantity());
+        eventPublisher.publishEvent(InventoryChangedEvent.of(key, -socksDto.getQuantity()));
         logger.info("Socks outcome successfully");
-        return socksMapper.mapToDto(socksRepository.save(socks));
+        return socksMapper.mapToDto(socks.get());
+    }
+
+    @Override
+    @Timed("socks.service")
+    @Transactional
+    public BulkMovementResult bulkIncome(List<SocksDto> items, BulkMode mode) {
+        logger.info("Socks bulk income of {} items, mode {}", items.size(), mode);
+        return bulkMove(items, mode, 1);
     }
 
     @Override
+    @Timed("socks.service")
+    @Transactional
+    public BulkMovementResult bulkOutcome(List<SocksDto> items, BulkMode mode) {
+        logger.info("Socks bulk outcome of {} items, mode {}", items.size(), mode);
+        return bulkMove(items, mode, -1);
+    }
+
+    private BulkMovementResult bulkMove(List<SocksDto> items, BulkMode mode, int sign) {
+        boolean atomic = mode == BulkMode.ALL_OR_NOTHING;
+        BulkItemResult[] results = new BulkItemResult[items.size()];
+        List<StockMovement> movements = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            String violation = validateBulkItem(items.get(i));
+            if (violation != null) {
+                results[i] = new BulkItemResult(i, BulkItemStatus.INVALID, null, violation);
+            } else {
+                SocksDto item = items.get(i);
+                movements.add(new StockMovement(SocksKey.of(item.getColor(), item.getCottonPart()), sign * item.getQuantity()));
+                positions.add(i);
+            }
+        }
+
+        boolean rejected = atomic && movements.size() < items.size();
+        if (!rejected) {
+            // в режиме резервирования пакетное списание берет остаток из хранилища, как и одиночное
+            AppliedMovements applied = sign < 0 && !movementLedger.isEnabled() && reservationOutcomeEngine.isActive()
+                    ? reservationOutcomeEngine.outcomeAll(movements, atomic)
+                    : stockMovementApplier.apply(movements, atomic);
+            rejected = atomic && applied.hasFailures();
+            for (int i = 0; i < movements.size(); i++) {
+                MovementResult result = applied.results().get(i);
+                int position = positions.get(i);
+                if (result.isSuccess()) {
+                    results[position] = new BulkItemResult(position, BulkItemStatus.OK, result.socks(), null);
+                } else {
+                    BulkItemStatus status = result.error() instanceof SocksNotFoundException
+                            ? BulkItemStatus.NOT_FOUND
+                            : BulkItemStatus.NOT_ENOUGH;
+                    results[position] = new BulkItemResult(position, status, null, result.error().getMessage());
+                }
+            }
+            if (!applied.deltas().isEmpty()) {
+                eventPublisher.publishEvent(new InventoryChangedEvent(applied.deltas()));
+            }
+        }
+
+        int failed = 0;
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null || (rejected && results[i].getStatus() == BulkItemStatus.OK)) {
+                results[i] = new BulkItemResult(i, BulkItemStatus.SKIPPED, null, "Пакет отклонен из-за ошибок в других позициях");
+            } else if (results[i].getStatus() != BulkItemStatus.OK) {
+                failed++;
+            }
+        }
+        int succeeded = rejected ? 0 : results.length - failed;
+        logger.info("Socks bulk finished: applied={}, succeeded={}, failed={}", !rejected, succeeded, failed);
+        return new BulkMovementResult(mode, !rejected, succeeded, failed, List.of(results));
+    }
+
+    private String validateBulkItem(SocksDto item) {
+        if (item == null) {
+            return "Пустая позиция";
+        }
+        if (item.getColor() == null || item.getColor().isBlank()) {
+            return "Неверно указан цвет";
+        }
+        if (item.getQuantity() == null) {
+            return "Неверно указанно количество";
+        }
+        if (item.getCottonPart() == null) {
+            return "Неверно указан процент содержания хлопка";
+        }
+        Set<ConstraintViolation<SocksDto>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    /**
+     * Отказ без обращения к БД, если хранилище в памяти уже знает, что носков нет или не хватает.
+     */
+    private void rejectFromStore(SocksKey key, int quantity) {
+        if (!inventoryStore.isReady()) {
+            return;
+        }
+        long available = inventoryStore.quantity(key.color(), key.cottonPart());
+        if (available == InventoryStore.NOT_FOUND) {
+            throw new SocksNotFoundException("Носки не найдены");
+        }
+        if (available < quantity) {
+            logger.error("Socks not enough");
+            throw new NotEnoughSocksException("Носков не хватает на складе");
+        }
+    }
+
+    @Override
+    @Timed("socks.service")
     @Transactional
     public SocksDto update(Long id, SocksDto socksDto) {
         logger.info("Update socks with id {}", id);
-        Socks socks = socksRepository.findById(id)
+        if (reservationOutcomeEngine.isActive()) {
+            // новое количество задается поверх уже подтвержденных резервов, а не вычитается из него потом
+            SocksKey targetKey = SocksKey.of(socksDto.getColor(), socksDto.getCottonPart());
+            socksRepository.findById(id).ifPresent(current -> reservationOutcomeEngine.awaitPersisted(
+                    List.of(new SocksKey(current.getColor(), current.getCottonPart()), targetKey)));
+        }
+        Socks socks = socksRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new SocksNotFoundException("Носки не найдены"));
-        socks.setColor(socksDto.getColor().toLowerCase());
+        SocksKey oldKey = new SocksKey(socks.getColor(), socks.getCottonPart());
+        SocksKey newKey = SocksKey.of(socksDto.getColor(), socksDto.getCottonPart());
+        Set<SocksKey> removed = oldKey.equals(newKey) ? Set.of() : Set.of(oldKey);
+        // в режиме журнала остаток ключа - снимок плюс хвост; хвосты обоих ключей гасятся встречными движениями
+        Map<SocksKey, Long> tails = movementLedger.isEnabled() ? movementLedger.lockTails(List.of(oldKey, newKey)) : Map.of();
+        Map<SocksKey, Long> deltas = new HashMap<>();
+        deltas.merge(oldKey, -socks.getQuantity() - tails.getOrDefault(oldKey, 0L), Long::sum);
+        deltas.merge(newKey, socksDto.getQuantity() - (removed.isEmpty() ? 0L : tails.getOrDefault(newKey, 0L)), Long::sum);
+
+        socks.setColor(newKey.color());
         socks.setCottonPart(socksDto.getCottonPart());
         socks.setQuantity(socksDto.getQuantity());
         socksRepository.save(socks);
+        if (!tails.isEmpty()) {
+            movementLedger.cancel(tails);
+        }
+        eventPublisher.publishEvent(new InventoryChangedEvent(deltas, removed));
         logger.info("Socks update successfully");
         return socksMapper.mapToDto(socks);
     }
 
     @Override
+    @Timed("socks.service")
     @Transactional
     public List<SocksDto> batchIncome(MultipartFile file) {
+        List<SocksDto> processedSocks = new ArrayList<>();
+        importUpload(file, socks -> processedSocks.add(socksMapper.mapToDto(socks)));
+        return processedSocks;
+    }
+
+    @Override
+    @Timed("socks.service")
+    @Transactional
+    public RejectionReport batchIncomeReport(MultipartFile file) {
+        return importUpload(file, socks -> { }).rejections();
+    }
+
+    private ParsedCsv importUpload(MultipartFile file, Consumer<Socks> upserted) {
         String originalFilename = file.getOriginalFilename();
         logger.info("Starting to process CSV file: {}", originalFilename);
 
@@ -95,92 +312,154 @@ public class SocksServiceImpl implements SocksService {
             throw new InvalidFileFormatException("Файл должен быть CSV и не пустой.");
         }
 
-        List<Socks> processedEntities = new ArrayList<>();
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
-            String header = reader.readLine();
-            if (header == null) {
-                throw new InvalidFileFormatException("Файл пустой или не содержит заголовок.");
-            }
-
-            String line;
-            int rowNum = 1;
-
-            while ((line = reader.readLine()) != null) {
-                rowNum++;
-                try {
-                    SocksDto dto = parseCSVLineToDto(line, rowNum);
-                    validateSocks(dto.getColor(), dto.getCottonPart(), dto.getQuantity(), rowNum);
-
-                    Socks socks = socksRepository.findByColorAndCottonPart(dto.getColor().toLowerCase(), dto.getCottonPart())
-                            .map(existingSocks -> {
-                                existingSocks.setQuantity(existingSocks.getQuantity() + dto.getQuantity());
-                                return existingSocks;
-                            })
-                            .orElseGet(() -> {
-                                Socks newSocks = new Socks();
-                                newSocks.setColor(dto.getColor().trim());
-                                newSocks.setCottonPart(dto.getCottonPart());
-                                newSocks.setQuantity(dto.getQuantity());
-                                return newSocks;
-                            });
-
-                    socksRepository.save(socks);
-                    processedEntities.add(socks);
-                } catch (IllegalArgumentException e) {
-                    logger.warn("Invalid data at row {}: {}", rowNum, e.getMessage());
-                }
+        long started = System.nanoTime();
+        ParsedCsv parsed;
+        Path upload = null;
+        try {
+            // загрузка разбирается из отображенного в память временного файла, а не из массива в куче
+            upload = Files.createTempFile("socks-upload-", ".csv");
+            file.transferTo(upload);
+            try (FileChannel channel = FileChannel.open(upload, StandardOpenOption.READ)) {
+                parsed = parallelCsvParser.parse(channel);
             }
         } catch (IOException e) {
             logger.error("Error reading CSV file: {}", originalFilename, e);
             throw new InvalidFileFormatException("Ошибка при чтении файла: " + e.getMessage());
+        } finally {
+            deleteUpload(upload);
         }
 
-        List<SocksDto> processedSocks = processedEntities.stream()
-                .map(socksMapper::mapToDto)
-                .toList();
+        Map<SocksKey, Long> deltas = new HashMap<>();
+        forEachChunk(parsed.quantities(), chunk -> {
+            socksBulkRepository.upsertQuantities(chunk).forEach(upserted);
+            chunk.forEach((key, quantity) -> deltas.put(key, (long) quantity));
+        });
+        logger.info("Finished processing CSV file: {}. Total valid records: {}, rejected: {} {}",
+                originalFilename, parsed.stats().rowsAccepted(), parsed.stats().rowsRejected(), parsed.rejections().counts());
+        importMetrics.record("upload", parsed.stats(), parsed.rejections(), started);
+
+        publishChanges(deltas);
+        return parsed;
+    }
 
-        logger.info("Finished processing CSV file: {}. Total valid records: {}", originalFilename, processedSocks.size());
-        return processedSocks;
+    private static void deleteUpload(Path upload) {
+        if (upload == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(upload);
+        } catch (IOException e) {
+            logger.warn("Could not delete uploaded CSV file {}", upload, e);
+        }
     }
 
+    /**
+     * Делит уже агрегированные количества на порции не больше {@code socks.batch.chunk-size} ключей.
+     * Ключи идут в общем порядке {@link SocksKey#ORDER} через все порции, поэтому параллельные импорты
+     * блокируют строки в одной последовательности и не взаимоблокируются.
+     */
+    private void forEachChunk(Map<SocksKey, Integer> quantities, Consumer<Map<SocksKey, Integer>> chunkConsumer) {
+        List<Map.Entry<SocksKey, Integer>> sorted = quantities.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(SocksKey.ORDER))
+                .toList();
+        Map<SocksKey, Integer> chunk = new HashMap<>();
+        for (Map.Entry<SocksKey, Integer> entry : sorted) {
+            chunk.put(entry.getKey(), entry.getValue());
+            if (chunk.size() >= socksProperties.getBatch().getChunkSize()) {
+                chunkConsumer.accept(chunk);
+                chunk = new HashMap<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunkConsumer.accept(chunk);
+        }
+    }
 
-    private SocksDto parseCSVLineToDto(String line, int rowNum) {
-        String[] parts = line.split(",");
-        if (parts.length != 3) {
-            throw new IllegalArgumentException("Некорректный формат: ожидается 3 столбца, строка " + rowNum);
+    /**
+     * Каждая порция коммитится отдельно, как в {@link test.backspark.socks.job.ImportJobRunner}: длинный поток
+     * не держит одну транзакцию с соединением и блокировками строк. При ошибке посреди потока уже
+     * записанные порции остаются в БД.
+     */
+    @Override
+    @Timed("socks.service")
+    public BatchImportSummary streamBatchIncome(InputStream inputStream) {
+        logger.info("Starting to process CSV stream");
+        long started = System.nanoTime();
+        BatchImportSummary summary = new BatchImportSummary();
+
+        RejectionCollector rejections = new RejectionCollector(socksProperties.getBatch().getMaxRejections());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            ImportStats stats = socksCsvImporter.importCsv(reader, rejections, chunk -> importChunk(chunk, summary));
+            summary.setRowsRead(stats.rowsRead());
+            summary.setRowsImported(stats.rowsAccepted());
+            summary.setRowsRejected(stats.rowsRejected());
+            summary.setRejections(rejections.report(0));
+            importMetrics.record("stream", stats, summary.getRejections(), started);
+        } catch (IOException e) {
+            logger.error("Error reading CSV stream", e);
+            throw new InvalidFileFormatException("Ошибка при чтении файла: " + e.getMessage());
         }
 
-        String color = parts[0].trim().toLowerCase();
-        int cottonPart;
-        int quantity;
+        logger.info("Finished processing CSV stream: {}", summary);
+        return summary;
+    }
 
-        try {
-            cottonPart = Integer.parseInt(parts[1].trim());
-            quantity = Integer.parseInt(parts[2].trim());
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException(
-                    "Ошибка преобразования числового значения в строке " + rowNum + ": " + e.getMessage(), e);
+    /**
+     * Порции коммитятся по отдельности, как в {@link #streamBatchIncome(InputStream)}.
+     */
+    @Override
+    @Timed("socks.service")
+    public BatchImportSummary localBatchIncome(String path) {
+        logger.info("Starting to process local CSV file: {}", path);
+
+        long started = System.nanoTime();
+        ParsedCsv parsed;
+        try (FileChannel channel = localCsvFiles.open(path)) {
+            parsed = parallelCsvParser.parse(channel);
+        } catch (IOException e) {
+            logger.error("Error reading local CSV file: {}", path, e);
+            throw new InvalidFileFormatException("Ошибка при чтении файла: " + e.getMessage());
         }
 
-        return new SocksDto(null, color, cottonPart, quantity);
+        BatchImportSummary summary = new BatchImportSummary();
+        summary.setRowsRead(parsed.stats().rowsRead());
+        summary.setRowsImported(parsed.stats().rowsAccepted());
+        summary.setRowsRejected(parsed.stats().rowsRejected());
+        summary.setRejections(parsed.rejections());
+        forEachChunk(parsed.quantities(), chunk -> importChunk(chunk, summary));
+        importMetrics.record("local", parsed.stats(), parsed.rejections(), started);
+
+        logger.info("Finished processing local CSV file {}: {}", path, summary);
+        return summary;
     }
 
-    private void validateSocks(String color, int cottonPart, int quantity, int rowNum) {
-        if (color == null || color.isEmpty()) {
-            throw new IllegalArgumentException("Пустой цвет в строке " + rowNum);
-        }
-        if (cottonPart < 0 || cottonPart > 100) {
-            throw new IllegalArgumentException("Процент хлопка должен быть в диапазоне [0, 100] в строке " + rowNum);
-        }
-        if (quantity <= 0) {
-            throw new IllegalArgumentException("Количество должно быть больше 0 в строке " + rowNum);
+    private void publishChanges(Map<SocksKey, Long> deltas) {
+        if (!deltas.isEmpty()) {
+            eventPublisher.publishEvent(new InventoryChangedEvent(deltas));
         }
     }
 
+    /**
+     * Записывает порцию импорта в своей транзакции, учитывает ее в сводке и обновляет представления остатков.
+     */
+    private void importChunk(Map<SocksKey, Integer> chunk, BatchImportSummary summary) {
+        int upserted = transactionTemplate.execute(status -> socksBulkRepository.upsertQuantities(chunk)).size();
+        summary.setChunks(summary.getChunks() + 1);
+        summary.setKeysUpserted(summary.getKeysUpserted() + upserted);
+        summary.setTotalQuantity(summary.getTotalQuantity()
+                + chunk.values().stream().mapToLong(Integer::longValue).sum());
+
+        Map<SocksKey, Long> deltas = new HashMap<>();
+        chunk.forEach((key, quantity) -> deltas.put(key, (long) quantity));
+        publishChanges(deltas);
+    }
 
+    /**
+     * Сумма возвращается как {@code long}: итог по всем позициям может не поместиться в {@code int}.
+     */
     @Override
-    public Integer getSocksAmountByFilter(
+    @Timed(value = "socks.service", histogram = true)
+    public Long getSocksAmountByFilter(
             String color,
             String operator,
             Integer cottonPart,
@@ -189,21 +468,82 @@ public class SocksServiceImpl implements SocksService {
             String sortBy,
             String sortDirection) {
 
-        Specification<Socks> spec = Specification
-                .where(SocksSpecification.hasColor(color != null ? color.trim().toLowerCase() : null))
-                .and(SocksSpecification.hasCottonPart(operator, cottonPart))
-                .and(SocksSpecification.cottonPartBetween(minCottonPart, maxCottonPart));
+        SocksFilter filter = SocksFilter.of(color, operator, cottonPart, minCottonPart, maxCottonPart);
+        if (cottonPrefixIndex.isReady()) {
+            return cottonPrefixIndex.sum(filter);
+        }
+        if (inventoryStore.isReady()) {
+            return inventoryStore.sum(filter);
+        }
+        if (movementLedger.isEnabled()) {
+            return socksQueryCache.get(filter, () -> movementLedger.sumQuantity(filter));
+        }
+        return socksQueryCache.get(filter,
+                () -> socksRepository.sumQuantity(SocksSpecification.byFilter(filter)));
+    }
 
-        Sort sort = Sort.unsorted();
-        if (sortBy != null && !sortBy.isBlank()) {
-            sort = "desc".equalsIgnoreCase(sortDirection)
-                    ? Sort.by(sortBy).descending()
-                    : Sort.by(sortBy).ascending();
+    /**
+     * Суммы по нескольким фильтрам за один запрос к базе (или без него, если готов индекс в памяти).
+     */
+    @Override
+    @Timed("socks.service")
+    public List<Long> getSocksAmountsByFilters(List<SocksFilter> filters) {
+        int maxFilters = socksProperties.getBatchQuery().getMaxFilters();
+        if (filters.size() > maxFilters) {
+            throw new InvalidFilterException("Слишком много фильтров в запросе, допускается не больше " + maxFilters);
         }
+        List<SocksFilter> normalized = new ArrayList<>(filters.size());
+        for (int i = 0; i < filters.size(); i++) {
+            SocksFilter filter = filters.get(i);
+            if (filter == null) {
+                throw new InvalidFilterException("Не указан фильтр №" + (i + 1));
+            }
+            SocksFilter checked = SocksFilter.of(filter.color(), filter.operator(), filter.cottonPart(), filter.minCottonPart(), filter.maxCottonPart());
+            try {
+                checked.lowerCottonBound();
+            } catch (IllegalArgumentException e) {
+                throw new InvalidFilterException("Неверно указан оператор в фильтре №" + (i + 1));
+            }
+            normalized.add(checked);
+        }
+        if (cottonPrefixIndex.isReady()) {
+            return normalized.stream().map(cottonPrefixIndex::sum).toList();
+        }
+        if (inventoryStore.isReady()) {
+            return normalized.stream().map(inventoryStore::sum).toList();
+        }
+        return socksBulkRepository.sumQuantities(normalized);
+    }
+
+    @Override
+    @Timed("socks.service")
+    public List<SocksTotalDto> getSocksTotals(SocksFilter filter, TotalsGroupBy groupBy, int bucketWidth) {
+        if (bucketWidth < 1) {
+            throw new InvalidFilterException("Ширина интервала содержания хлопка должна быть положительной");
+        }
+        if (movementLedger.isEnabled()) {
+            return movementLedger.totals(filter, groupBy, bucketWidth);
+        }
+        return socksRepository.totals(SocksSpecification.byFilter(filter), groupBy, bucketWidth);
+    }
 
-        return socksRepository.findAll(spec, sort).stream()
-                .mapToInt(Socks::getQuantity)
-                .sum();
+    /**
+     * Отдает позиции по фильтру по одной, не собирая их в список. В режиме журнала движений к снимку
+     * прибавляется неуплотненный хвост, как в {@link #getSocksAmountByFilter}. Транзакция и соединение
+     * держатся, пока потребитель не примет последнюю позицию.
+     */
+    @Override
+    @Timed("socks.service")
+    @Transactional(readOnly = true)
+    public void streamSocks(SocksFilter filter, Long afterId, Integer limit, Consumer<SocksDto> consumer) {
+        int fetchSize = socksProperties.getListing().getFetchSize();
+        if (movementLedger.isEnabled()) {
+            movementLedger.streamBalances(filter, afterId, limit, fetchSize, socks -> consumer.accept(socksMapper.mapToDto(socks)));
+            return;
+        }
+        try (Stream<Socks> socks = socksRepository.streamByFilter(SocksSpecification.byFilter(filter), afterId, limit, fetchSize)) {
+            socks.map(socksMapper::mapToDto).forEach(consumer);
+        }
     }
 
 }
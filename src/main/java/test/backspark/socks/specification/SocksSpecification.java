@@ -1,6 +1,7 @@
 package test.backspark.socks.specification;
 
 import org.springframework.data.jpa.domain.Specification;
+import test.backspark.socks.model.dto.SocksFilter;
 import test.backspark.socks.model.entity.Socks;
 
 public class SocksSpecification {
@@ -42,4 +43,11 @@ public class SocksSpecification {
         };
     }
 
+    public static Specification<Socks> byFilter(SocksFilter filter) {
+        return Specification
+                .where(hasColor(filter.color()))
+                .and(hasCottonPart(filter.operator(), filter.cottonPart()))
+                .and(cottonPartBetween(filter.minCottonPart(), filter.maxCottonPart()));
+    }
+
 }
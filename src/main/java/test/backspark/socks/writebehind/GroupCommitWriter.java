@@ -0,0 +1,194 @@
+package test.backspark.socks.writebehind;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.event.InventoryChangedEvent;
+import test.backspark.socks.model.dto.SocksDto;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.movement.AppliedMovements;
+import test.backspark.socks.movement.MovementResult;
+import test.backspark.socks.movement.StockMovement;
+import test.backspark.socks.movement.StockMovementApplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Групповой коммит income/outcome: движения складываются в неблокирующую очередь, а фоновый поток
+ * раз в {@code flushInterval} (или по достижении {@code maxBatchSize}) применяет их одной транзакцией
+ * через {@link StockMovementApplier}.
+ * Вызывающий поток получает ответ только после коммита, поэтому семантика запросов не меняется.
+ */
+@Component
+public class GroupCommitWriter {
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitWriter.class);
+
+    private final boolean enabled;
+    private final long flushIntervalNanos;
+    private final int maxBatchSize;
+    private final StockMovementApplier stockMovementApplier;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ConcurrentLinkedQueue<Movement> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private volatile boolean running;
+    private Thread flusher;
+
+    public GroupCommitWriter(SocksProperties properties,
+                             StockMovementApplier stockMovementApplier,
+                             PlatformTransactionManager transactionManager,
+                             ApplicationEventPublisher eventPublisher) {
+        this.enabled = properties.getWriteBehind().isEnabled();
+        this.flushIntervalNanos = properties.getWriteBehind().getFlushInterval().toNanos();
+        this.maxBatchSize = properties.getWriteBehind().getMaxBatchSize();
+        this.stockMovementApplier = stockMovementApplier;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            running = true;
+            flusher = new Thread(this::run, "socks-group-commit");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public SocksDto income(SocksKey key, int quantity) {
+        return await(submit(key, quantity));
+    }
+
+    public SocksDto outcome(SocksKey key, int quantity) {
+        return await(submit(key, -quantity));
+    }
+
+    CompletableFuture<SocksDto> submit(SocksKey key, int delta) {
+        if (!running) {
+            throw new IllegalStateException("Group commit writer is not running");
+        }
+        Movement movement = new Movement(key, delta, new CompletableFuture<>());
+        queue.add(movement);
+        // shutdown мог остановить поток между проверкой и добавлением, тогда движение никто не заберет;
+        // если его уже забрали, ответ даст поток записи или shutdown
+        if (!running && queue.remove(movement)) {
+            throw new IllegalStateException("Group commit writer is not running");
+        }
+        if (queued.incrementAndGet() >= maxBatchSize) {
+            LockSupport.unpark(flusher);
+        }
+        return movement.result();
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            if (running && queued.get() < maxBatchSize) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            while (!queue.isEmpty()) {
+                List<Movement> batch = drain();
+                try {
+                    flush(batch);
+                } catch (RuntimeException | Error e) {
+                    // поток записи не должен умирать: иначе вызывающие навсегда повиснут в ожидании ответа
+                    logger.error("Group commit of {} movements failed", batch.size(), e);
+                    batch.forEach(movement -> movement.result().completeExceptionally(e));
+                }
+            }
+        }
+    }
+
+    private List<Movement> drain() {
+        List<Movement> batch = new ArrayList<>(Math.min(queued.get(), maxBatchSize));
+        Movement movement;
+        while (batch.size() < maxBatchSize && (movement = queue.poll()) != null) {
+            batch.add(movement);
+        }
+        queued.addAndGet(-batch.size());
+        return batch;
+    }
+
+    void flush(List<Movement> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<StockMovement> movements = batch.stream()
+                .map(movement -> new StockMovement(movement.key(), movement.delta()))
+                .toList();
+        AppliedMovements applied;
+        try {
+            applied = transactionTemplate.execute(status -> stockMovementApplier.apply(movements, false));
+        } catch (RuntimeException e) {
+            logger.error("Group commit of {} movements failed", batch.size(), e);
+            batch.forEach(movement -> movement.result().completeExceptionally(e));
+            return;
+        }
+
+        // представления обновляются до ответа, чтобы вызывающий сразу прочитал свое изменение
+        if (!applied.deltas().isEmpty()) {
+            try {
+                eventPublisher.publishEvent(new InventoryChangedEvent(applied.deltas()));
+            } catch (RuntimeException e) {
+                logger.error("Inventory views were not updated after group commit", e);
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            MovementResult result = applied.results().get(i);
+            if (result.isSuccess()) {
+                batch.get(i).result().complete(result.socks());
+            } else {
+                batch.get(i).result().completeExceptionally(result.error());
+            }
+        }
+    }
+
+    private static SocksDto await(CompletableFuture<SocksDto> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(flusher);
+        flusher.join(30_000);
+        if (flusher.isAlive()) {
+            logger.error("{} movements were not committed before shutdown", queued.get());
+            return;
+        }
+        Movement movement;
+        while ((movement = queue.poll()) != null) {
+            movement.result().completeExceptionally(new IllegalStateException("Group commit writer is stopped"));
+        }
+    }
+
+    record Movement(SocksKey key, int delta, CompletableFuture<SocksDto> result) {
+    }
+}
@@ -0,0 +1,43 @@
+UPDATE socks
+SET color = lower(trim(color))
+WHERE color <> lower(trim(color));
+
+-- Сумма дубликатов записывается в int-колонку quantity. Если она не помещается, миграция останавливается
+-- со списком таких ключей: их остатки нужно поправить вручную, прежде чем запускать приложение снова.
+DO
+$$
+    DECLARE
+        overflowed TEXT;
+    BEGIN
+        SELECT string_agg(format('%s/%s (%s)', color, cotton_part, total), ', ')
+        INTO overflowed
+        FROM (SELECT color, cotton_part, sum(coalesce(quantity, 0)) AS total
+              FROM socks
+              GROUP BY color, cotton_part
+              HAVING count(*) > 1) merged
+        WHERE total NOT BETWEEN -2147483648 AND 2147483647;
+
+        IF overflowed IS NOT NULL THEN
+            RAISE EXCEPTION 'V2: merged quantity does not fit into integer for color/cotton_part: %', overflowed
+                USING HINT = 'Reduce the quantities of these duplicate rows so that their sum fits into integer, then restart the application';
+        END IF;
+    END
+$$;
+
+UPDATE socks s
+SET quantity = merged.total
+FROM (SELECT min(id) AS keep_id, sum(coalesce(quantity, 0)) AS total
+      FROM socks
+      GROUP BY color, cotton_part
+      HAVING count(*) > 1) merged
+WHERE s.id = merged.keep_id;
+
+DELETE
+FROM socks s
+    USING socks d
+WHERE s.color = d.color
+  AND s.cotton_part = d.cotton_part
+  AND s.id > d.id;
+
+ALTER TABLE socks
+    ADD CONSTRAINT socks_color_cotton_part_key UNIQUE (color, cotton_part);
@@ -0,0 +1,38 @@
+-- Строки, которые нарушили бы новые ограничения, удаляются (нет цвета или процента хлопка) или
+-- исправляются (пустое или отрицательное количество становится 0). Сколько строк затронуто,
+-- выводится в лог миграции через RAISE NOTICE.
+DO
+$$
+    DECLARE
+        removed INTEGER;
+        clamped INTEGER;
+    BEGIN
+        DELETE
+        FROM socks
+        WHERE color IS NULL
+           OR trim(color) = ''
+           OR cotton_part IS NULL;
+        GET DIAGNOSTICS removed = ROW_COUNT;
+
+        UPDATE socks
+        SET quantity = 0
+        WHERE quantity IS NULL
+           OR quantity < 0;
+        GET DIAGNOSTICS clamped = ROW_COUNT;
+
+        IF removed > 0 OR clamped > 0 THEN
+            RAISE NOTICE 'V3: deleted % socks rows without color or cotton_part, set quantity to 0 in % rows',
+                removed, clamped;
+        END IF;
+    END
+$$;
+
+ALTER TABLE socks
+    ALTER COLUMN color SET NOT NULL,
+    ALTER COLUMN cotton_part SET NOT NULL,
+    ALTER COLUMN quantity SET NOT NULL,
+    ADD CONSTRAINT socks_color_not_blank CHECK (color <> ''),
+    ADD CONSTRAINT socks_cotton_part_range CHECK (cotton_part BETWEEN 0 AND 100),
+    ADD CONSTRAINT socks_quantity_non_negative CHECK (quantity >= 0);
+
+CREATE INDEX socks_cotton_part_idx ON socks (cotton_part) INCLUDE (quantity);
@@ -0,0 +1,20 @@
+CREATE TABLE import_job
+(
+    id               BIGSERIAL PRIMARY KEY,
+    status           TEXT        NOT NULL,
+    file_name        TEXT        NOT NULL,
+    spool_path       TEXT        NOT NULL,
+    file_size        BIGINT      NOT NULL,
+    committed_offset BIGINT      NOT NULL DEFAULT 0,
+    rows_read        BIGINT      NOT NULL DEFAULT 0,
+    rows_applied     BIGINT      NOT NULL DEFAULT 0,
+    rows_rejected    BIGINT      NOT NULL DEFAULT 0,
+    chunks           BIGINT      NOT NULL DEFAULT 0,
+    error            TEXT,
+    created_at       TIMESTAMPTZ NOT NULL,
+    started_at       TIMESTAMPTZ,
+    updated_at       TIMESTAMPTZ NOT NULL,
+    finished_at      TIMESTAMPTZ
+);
+
+CREATE INDEX import_job_status_idx ON import_job (status);
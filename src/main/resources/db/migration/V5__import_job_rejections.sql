@@ -0,0 +1,18 @@
+CREATE TABLE import_job_rejection
+(
+    job_id     BIGINT NOT NULL REFERENCES import_job (id) ON DELETE CASCADE,
+    row_number BIGINT NOT NULL,
+    error      TEXT   NOT NULL,
+    line       TEXT,
+    PRIMARY KEY (job_id, row_number)
+);
+
+CREATE TABLE import_job_rejection_count
+(
+    job_id BIGINT NOT NULL REFERENCES import_job (id) ON DELETE CASCADE,
+    error  TEXT   NOT NULL,
+    count  BIGINT NOT NULL,
+    PRIMARY KEY (job_id, error)
+);
+
+ALTER TABLE import_job ADD COLUMN rejections_kept BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,3 @@
+-- Hibernate берет id пачками по allocationSize = 50 (оптимизатор pooled): шаг последовательности
+-- должен совпадать с ним. Вставки через DEFAULT nextval получают значения, которые Hibernate не раздает.
+ALTER SEQUENCE socks_id_seq INCREMENT BY 50;
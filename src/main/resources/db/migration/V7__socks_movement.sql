@@ -0,0 +1,16 @@
+-- Журнал движений остатков: income/outcome в режиме socks.ledger только добавляют строки,
+-- фоновое уплотнение переносит их суммы в socks и удаляет. Секции по дням создает приложение,
+-- секция по умолчанию принимает строки, если нужная секция еще не создана.
+CREATE TABLE socks_movement
+(
+    id          BIGSERIAL,
+    color       TEXT        NOT NULL,
+    cotton_part INTEGER     NOT NULL,
+    delta       INTEGER     NOT NULL,
+    created_at  TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE INDEX socks_movement_key_idx ON socks_movement (color, cotton_part) INCLUDE (delta);
+
+CREATE TABLE socks_movement_default PARTITION OF socks_movement DEFAULT;
@@ -0,0 +1,106 @@
+package test.backspark.socks.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.event.InventoryChangedEvent;
+import test.backspark.socks.model.dto.CacheStatsDto;
+import test.backspark.socks.model.dto.SocksFilter;
+import test.backspark.socks.model.dto.SocksKey;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SocksQueryCacheTest {
+
+    private SocksQueryCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SocksQueryCache(new SocksProperties());
+        loads = new AtomicInteger();
+    }
+
+    private Long load(SocksFilter filter, long value) {
+        return cache.get(filter, () -> {
+            loads.incrementAndGet();
+            return value;
+        });
+    }
+
+    @Test
+    @DisplayName("the same normalized filter is served from the cache")
+    void testHit() {
+        assertEquals(10L, load(SocksFilter.of("Red ", "moreThan", 30, null, null), 10));
+        assertEquals(10L, load(SocksFilter.of("red", "moreThan", 30, null, null), 20));
+
+        assertEquals(1, loads.get());
+        CacheStatsDto stats = cache.stats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+    }
+
+    @Test
+    void testPublishesHitRateToMeterRegistry() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        load(SocksFilter.of("red", "equal", 30, null, null), 10);
+        load(SocksFilter.of("red", "equal", 30, null, null), 10);
+        load(SocksFilter.of("red", "equal", 40, null, null), 10);
+
+        assertEquals(1, registry.get("cache.gets").tags("cache", "socks-query", "result", "hit").functionCounter().count());
+        assertEquals(2, registry.get("cache.gets").tags("cache", "socks-query", "result", "miss").functionCounter().count());
+    }
+
+    @ParameterizedTest(name = "write to {0}/{1} evicts={2}")
+    @CsvSource({
+            "red, 31, true",
+            "red, 30, false",
+            "blue, 31, false",
+            "red, 100, true"
+    })
+    void testPreciseEviction(String color, int cottonPart, boolean evicted) {
+        SocksFilter filter = SocksFilter.of("red", "moreThan", 30, null, null);
+        load(filter, 10);
+
+        cache.onInventoryChanged(InventoryChangedEvent.of(new SocksKey(color, cottonPart), 5));
+        load(filter, 15);
+
+        assertEquals(evicted ? 2 : 1, loads.get());
+    }
+
+    @Test
+    @DisplayName("filters without color are evicted by a write to any color")
+    void testEvictionWithoutColor() {
+        SocksFilter filter = SocksFilter.of(null, null, null, 20, 40);
+        load(filter, 10);
+
+        cache.evict(Set.of(new SocksKey("green", 25)));
+        load(filter, 15);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("a value loaded concurrently with a write is not kept")
+    void testWriteDuringLoad() {
+        SocksFilter filter = SocksFilter.of("red", null, null, null, null);
+
+        Long stale = cache.get(filter, () -> {
+            cache.evict(Set.of(new SocksKey("red", 50)));
+            return 10L;
+        });
+        assertEquals(10L, stale);
+
+        assertEquals(20L, load(filter, 20));
+        assertEquals(1, loads.get());
+    }
+}
@@ -0,0 +1,44 @@
+package test.backspark.socks.config;
+
+import org.apache.coyote.http11.Http11NioProtocol;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadConfigTest {
+
+    private final WebApplicationContextRunner contextRunner = new WebApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(WebMvcAutoConfiguration.class))
+            .withUserConfiguration(VirtualThreadConfig.class);
+
+    @Test
+    void testPlatformModeKeepsTomcatPool() {
+        contextRunner.withPropertyValues("socks.execution.mode=platform").run(context -> {
+            assertTrue(context.getBeansOfType(TomcatProtocolHandlerCustomizer.class).isEmpty());
+            assertTrue(context.getBeansOfType(VirtualThreadConfig.class).isEmpty());
+        });
+        contextRunner.run(context -> assertTrue(context.getBeansOfType(VirtualThreadConfig.class).isEmpty()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testVirtualModeRunsConnectorOnVirtualThreads() {
+        contextRunner.withPropertyValues("socks.execution.mode=virtual").run(context -> {
+            Http11NioProtocol protocol = new Http11NioProtocol();
+            context.getBean(TomcatProtocolHandlerCustomizer.class).customize(protocol);
+
+            assertSame(context.getBean(ExecutorService.class), protocol.getExecutor());
+            CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+            protocol.getExecutor().execute(() -> virtual.complete(Thread.currentThread().isVirtual()));
+            assertTrue(virtual.get(5, TimeUnit.SECONDS));
+        });
+    }
+}
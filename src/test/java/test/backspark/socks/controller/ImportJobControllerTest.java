@@ -0,0 +1,78 @@
+package test.backspark.socks.controller;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import test.backspark.socks.exeptionhandler.ImportJobNotFoundException;
+import test.backspark.socks.exeptionhandler.ImportJobRejectedException;
+import test.backspark.socks.importer.CsvRejection;
+import test.backspark.socks.importer.CsvRowError;
+import test.backspark.socks.importer.RejectionReport;
+import test.backspark.socks.model.dto.ImportJobDto;
+import test.backspark.socks.model.entity.ImportJobStatus;
+import test.backspark.socks.service.ImportJobService;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ImportJobController.class)
+class ImportJobControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ImportJobService importJobService;
+
+    @Test
+    void testSubmitReturnsAccepted() throws Exception {
+        ImportJobDto dto = new ImportJobDto();
+        dto.setId(5L);
+        dto.setStatus(ImportJobStatus.QUEUED);
+        BDDMockito.given(importJobService.submit(any())).willReturn(dto);
+
+        mockMvc.perform(multipart("/api/socks/jobs")
+                        .file(new MockMultipartFile("file", "stock.csv", "text/csv", "color,cottonPart,quantity\n".getBytes())))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value(5))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    @Test
+    void testSubmitWhenQueueIsFull() throws Exception {
+        BDDMockito.given(importJobService.submit(any())).willThrow(new ImportJobRejectedException("Очередь заданий импорта заполнена, повторите позже"));
+
+        mockMvc.perform(multipart("/api/socks/jobs")
+                        .file(new MockMultipartFile("file", "stock.csv", "text/csv", "color,cottonPart,quantity\n".getBytes())))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void testDownloadRejections() throws Exception {
+        BDDMockito.given(importJobService.rejections(5L)).willReturn(new RejectionReport(
+                List.of(new CsvRejection(3, CsvRowError.FORMAT, "a \"quoted\" row")), Map.of(CsvRowError.FORMAT, 2L), 2));
+
+        mockMvc.perform(get("/api/socks/jobs/5/rejections"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"job-5-rejections.csv\""))
+                .andExpect(header().string("X-Rejected-Dropped", "1"))
+                .andExpect(content().string("row,error,message,line\n"
+                        + "3,FORMAT,\"Некорректный формат: ожидается 3 столбца, строка 3\",\"a \"\"quoted\"\" row\"\n"));
+    }
+
+    @Test
+    void testGetUnknownJob() throws Exception {
+        BDDMockito.given(importJobService.get(9L)).willThrow(new ImportJobNotFoundException("Задание импорта не найдено"));
+
+        mockMvc.perform(get("/api/socks/jobs/9"))
+                .andExpect(status().isNotFound());
+    }
+}
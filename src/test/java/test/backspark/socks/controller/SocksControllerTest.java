@@ -10,33 +10,68 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentMatchers;
 import org.mockito.BDDMockito;
+import org.mockito.Mockito;
 
+import org.hamcrest.Matchers;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.beans.factory.annotation.Autowired;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.exeptionhandler.InvalidFilterException;
+import test.backspark.socks.importer.CsvRejection;
+import test.backspark.socks.importer.CsvRowError;
+import test.backspark.socks.importer.RejectionReport;
+import test.backspark.socks.inventory.InventoryVersion;
+import test.backspark.socks.model.dto.BatchImportSummary;
+import test.backspark.socks.model.dto.BulkItemResult;
+import test.backspark.socks.model.dto.BulkItemStatus;
+import test.backspark.socks.model.dto.BulkMode;
+import test.backspark.socks.model.dto.BulkMovementResult;
 import test.backspark.socks.model.dto.SocksDto;
+import test.backspark.socks.model.dto.SocksFilter;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.model.dto.SocksTotalDto;
+import test.backspark.socks.model.dto.TotalsGroupBy;
 import test.backspark.socks.service.SocksService;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(SocksController.class)
+@Import(InventoryVersion.class)
+@EnableConfigurationProperties(SocksProperties.class)
 @ExtendWith(MockitoExtension.class)
 class SocksControllerTest {
 
     @Autowired
-    private MockMvc mockMvc;
+    MockMvc mockMvc;
 
     @MockBean
-    private SocksService socksService;
+    SocksService socksService;
+
+    @Autowired
+    InventoryVersion inventoryVersion;
+
+    @Autowired
+    SocksProperties socksProperties;
 
     @Nested
     @DisplayName("POST /api/socks/income")
@@ -66,6 +101,16 @@ class SocksControllerTest {
                     .andExpect(jsonPath("$.cottonPart").value(cottonPart))
                     .andExpect(jsonPath("$.quantity").value(quantity + 20));
         }
+
+        @ParameterizedTest(name = "income rejects color \"{0}\"")
+        @ValueSource(strings = {"", "   "})
+        void testIncomeRejectsBlankColor(String color) throws Exception {
+            mockMvc.perform(post("/api/socks/income")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"color\": \"%s\", \"cottonPart\": 30, \"quantity\": 10}".formatted(color)))
+                    .andExpect(status().isBadRequest());
+            BDDMockito.then(socksService).shouldHaveNoInteractions();
+        }
     }
 
     @Nested
@@ -98,6 +143,46 @@ class SocksControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("POST /api/socks/income/bulk and /api/socks/outcome/bulk")
+    class BulkMovementTests {
+        @ParameterizedTest(name = "{0} in default mode")
+        @ValueSource(strings = {"income", "outcome"})
+        void testBulkApplied(String operation) throws Exception {
+            BulkMovementResult result = new BulkMovementResult(BulkMode.ALL_OR_NOTHING, true, 1, 0,
+                    List.of(new BulkItemResult(0, BulkItemStatus.OK, new SocksDto(1L, "red", 30, 15), null)));
+            BDDMockito.given(socksService.bulkIncome(any(), ArgumentMatchers.eq(BulkMode.ALL_OR_NOTHING))).willReturn(result);
+            BDDMockito.given(socksService.bulkOutcome(any(), ArgumentMatchers.eq(BulkMode.ALL_OR_NOTHING))).willReturn(result);
+
+            mockMvc.perform(post("/api/socks/" + operation + "/bulk")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[{\"color\": \"red\", \"cottonPart\": 30, \"quantity\": 5}]"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.applied").value(true))
+                    .andExpect(jsonPath("$.items[0].status").value("OK"))
+                    .andExpect(jsonPath("$.items[0].socks.quantity").value(15));
+        }
+
+        @ParameterizedTest(name = "outcome in mode {0}, applied={1} -> {2}")
+        @CsvSource({
+                "ALL_OR_NOTHING, false, 400",
+                "BEST_EFFORT, true, 200"
+        })
+        void testBulkOutcomeModes(BulkMode mode, boolean applied, int expectedStatus) throws Exception {
+            BulkMovementResult result = new BulkMovementResult(mode, applied, 0, 1,
+                    List.of(new BulkItemResult(0, BulkItemStatus.NOT_ENOUGH, null, "Носков не хватает на складе")));
+            BDDMockito.given(socksService.bulkOutcome(any(), ArgumentMatchers.eq(mode))).willReturn(result);
+
+            mockMvc.perform(post("/api/socks/outcome/bulk")
+                    .param("mode", mode.name())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[{\"color\": \"red\", \"cottonPart\": 30, \"quantity\": 500}]"))
+                    .andExpect(status().is(expectedStatus))
+                    .andExpect(jsonPath("$.failed").value(1))
+                    .andExpect(jsonPath("$.items[0].status").value("NOT_ENOUGH"));
+        }
+    }
+
     @Nested
     @DisplayName("PUT /api/socks/{id}")
     class UpdateTests {
@@ -157,6 +242,68 @@ class SocksControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("POST /api/socks/batch/report")
+    class BatchIncomeReportTests {
+        @ParameterizedTest(name = "report keeps {0} of 3 rejected rows")
+        @ValueSource(ints = {1, 3})
+        void testBatchIncomeReport(int kept) throws Exception {
+            List<CsvRejection> rows = Stream.of(
+                            new CsvRejection(3, CsvRowError.FORMAT, ",,"),
+                            new CsvRejection(4, CsvRowError.NUMBER, "red,\"x\",1"),
+                            new CsvRejection(9, CsvRowError.FORMAT, "bad"))
+                    .limit(kept).toList();
+            BDDMockito.given(socksService.batchIncomeReport(any()))
+                    .willReturn(new RejectionReport(rows, Map.of(CsvRowError.FORMAT, 2L, CsvRowError.NUMBER, 1L), 3));
+
+            mockMvc.perform(multipart("/api/socks/batch/report")
+                            .file(new MockMultipartFile("file", "stock.csv", "text/csv", "color,cottonPart,quantity\n".getBytes())))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                    .andExpect(header().string("Content-Disposition", "attachment; filename=\"rejections.csv\""))
+                    .andExpect(header().string("X-Rejected-Total", "3"))
+                    .andExpect(header().string("X-Rejected-Dropped", String.valueOf(3 - kept)))
+                    .andExpect(content().string(startsWith(
+                            "row,error,message,line\n3,FORMAT,\"Некорректный формат: ожидается 3 столбца, строка 3\",\",,\"\n")));
+        }
+    }
+
+    @Nested
+    @DisplayName("POST /api/socks/batch/stream")
+    class StreamBatchIncomeTests {
+        @ParameterizedTest(name = "streamBatchIncome with content type {0}")
+        @ValueSource(strings = {"text/csv", "text/plain", "application/octet-stream"})
+        void testStreamBatchIncome(String contentType) throws Exception {
+            BatchImportSummary summary = new BatchImportSummary(3, 2, 1, 1, 2, 30, RejectionReport.empty());
+            BDDMockito.given(socksService.streamBatchIncome(any())).willReturn(summary);
+
+            mockMvc.perform(post("/api/socks/batch/stream")
+                    .contentType(contentType)
+                    .content("color,cottonPart,quantity\nred,30,10\n,,\nblue,50,20"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.rowsRead").value(3))
+                    .andExpect(jsonPath("$.rowsImported").value(2))
+                    .andExpect(jsonPath("$.rowsRejected").value(1))
+                    .andExpect(jsonPath("$.totalQuantity").value(30));
+        }
+    }
+
+    @Nested
+    @DisplayName("POST /api/socks/batch/local")
+    class LocalBatchIncomeTests {
+        @ParameterizedTest(name = "localBatchIncome with path {0}")
+        @ValueSource(strings = {"stock.csv", "nightly/stock.csv"})
+        void testLocalBatchIncome(String path) throws Exception {
+            BatchImportSummary summary = new BatchImportSummary(3, 2, 1, 1, 2, 30, RejectionReport.empty());
+            BDDMockito.given(socksService.localBatchIncome(path)).willReturn(summary);
+
+            mockMvc.perform(post("/api/socks/batch/local").param("path", path))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.rowsImported").value(2))
+                    .andExpect(jsonPath("$.keysUpserted").value(2));
+        }
+    }
+
     @Nested
     @DisplayName("GET /api/socks")
     class GetSocksTests {
@@ -171,7 +318,7 @@ class SocksControllerTest {
                     ArgumentMatchers.eq(color), ArgumentMatchers.eq(operator), ArgumentMatchers.eq(cottonPart),
                     ArgumentMatchers.isNull(), ArgumentMatchers.isNull(),
                     ArgumentMatchers.isNull(), ArgumentMatchers.isNull()
-            )).willReturn(35);
+            )).willReturn(35L);
 
             mockMvc.perform(get("/api/socks")
                     .param("color", color)
@@ -181,6 +328,53 @@ class SocksControllerTest {
                     .andExpect(content().string("35"));
         }
 
+        @ParameterizedTest(name = "getSocks revalidates color={0} without the database")
+        @ValueSource(strings = {"red", "Blue"})
+        void testGetSocksNotModified(String color) throws Exception {
+            BDDMockito.given(socksService.getSocksAmountByFilter(
+                    ArgumentMatchers.eq(color), any(), any(), any(), any(), any(), any()
+            )).willReturn(12L, 15L);
+
+            String etag = mockMvc.perform(get("/api/socks").param("color", color))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                    .andExpect(content().string("12"))
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+            mockMvc.perform(get("/api/socks").param("color", color).header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string(HttpHeaders.ETAG, etag))
+                    .andExpect(content().string(""));
+            BDDMockito.then(socksService).should(Mockito.times(1)).getSocksAmountByFilter(
+                    ArgumentMatchers.eq(color), any(), any(), any(), any(), any(), any());
+
+            inventoryVersion.advance(Set.of(new SocksKey("green", 30)));
+            mockMvc.perform(get("/api/socks").param("color", color).header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified());
+
+            inventoryVersion.advance(Set.of(new SocksKey(color.toLowerCase(), 30)));
+            mockMvc.perform(get("/api/socks").param("color", color).header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, Matchers.not(etag)))
+                    .andExpect(content().string("15"));
+        }
+
+        @ParameterizedTest(name = "getSocks without color revalidates against the global version, change in {0}")
+        @ValueSource(strings = {"red", "green"})
+        void testGetSocksNotModifiedGlobal(String changedColor) throws Exception {
+            BDDMockito.given(socksService.getSocksAmountByFilter(any(), any(), any(), any(), any(), any(), any())).willReturn(40L);
+
+            String etag = mockMvc.perform(get("/api/socks").param("minCottonPart", "10"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+            mockMvc.perform(get("/api/socks").param("minCottonPart", "10").header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified());
+
+            inventoryVersion.advance(Set.of(new SocksKey(changedColor, 50)));
+            mockMvc.perform(get("/api/socks").param("minCottonPart", "10").header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isOk());
+        }
+
         @ParameterizedTest(name = "getSocks empty with color={0}")
         @ValueSource(strings = {"red","blue"})
         void testGetSocksEmpty(String color) throws Exception {
@@ -188,7 +382,7 @@ class SocksControllerTest {
                     ArgumentMatchers.eq(color), any(), any(),
                     any(), any(),
                     any(), any()
-            )).willReturn(0);
+            )).willReturn(0L);
 
             mockMvc.perform(get("/api/socks")
                     .param("color", color))
@@ -196,4 +390,132 @@ class SocksControllerTest {
                     .andExpect(content().string("0"));
         }
     }
+
+    @Nested
+    @DisplayName("POST /api/socks/amounts")
+    class AmountsTests {
+
+        @ParameterizedTest(name = "amounts for color={0}")
+        @ValueSource(strings = {"red", "blue"})
+        void testGetSocksAmounts(String color) throws Exception {
+            BDDMockito.given(socksService.getSocksAmountsByFilters(List.of(
+                    new SocksFilter(color, "moreThan", 30, null, null),
+                    new SocksFilter(color, "lessThan", 30, null, null),
+                    new SocksFilter(null, null, null, 10, 20)
+            ))).willReturn(List.of(12L, 0L, 40L));
+
+            mockMvc.perform(post("/api/socks/amounts")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("""
+                                    [
+                                      {"color": "%1$s", "operator": "moreThan", "cottonPart": 30},
+                                      {"color": "%1$s", "operator": "lessThan", "cottonPart": 30},
+                                      {"minCottonPart": 10, "maxCottonPart": 20}
+                                    ]
+                                    """.formatted(color)))
+                    .andExpect(status().isOk())
+                    .andExpect(content().json("[12, 0, 40]"));
+        }
+
+        @ParameterizedTest(name = "amounts reject: {0}")
+        @ValueSource(strings = {"Неверно указан оператор в фильтре №1", "Слишком много фильтров в запросе, допускается не больше 200"})
+        void testGetSocksAmountsInvalid(String message) throws Exception {
+            BDDMockito.given(socksService.getSocksAmountsByFilters(any())).willThrow(new InvalidFilterException(message));
+
+            mockMvc.perform(post("/api/socks/amounts")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[{\"operator\": \"eq\", \"cottonPart\": 30}]"))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.message").value(message));
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/socks/totals")
+    class TotalsTests {
+
+        @ParameterizedTest(name = "totals grouped by {0} with width {1}")
+        @CsvSource({
+                "COLOR, 10",
+                "COTTON_PART, 25",
+                "COLOR_AND_COTTON_PART, 5"
+        })
+        void testGetSocksTotals(TotalsGroupBy groupBy, int bucketWidth) throws Exception {
+            BDDMockito.given(socksService.getSocksTotals(new SocksFilter("red", null, null, 20, null), groupBy, bucketWidth))
+                    .willReturn(List.of(new SocksTotalDto("red", 20, 24, 15), new SocksTotalDto("red", 25, 29, 7)));
+
+            mockMvc.perform(get("/api/socks/totals")
+                            .param("color", "Red")
+                            .param("minCottonPart", "20")
+                            .param("groupBy", groupBy.name())
+                            .param("bucketWidth", Integer.toString(bucketWidth)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(2))
+                    .andExpect(jsonPath("$[0].color").value("red"))
+                    .andExpect(jsonPath("$[0].cottonPartFrom").value(20))
+                    .andExpect(jsonPath("$[0].cottonPartTo").value(24))
+                    .andExpect(jsonPath("$[0].quantity").value(15))
+                    .andExpect(jsonPath("$[1].quantity").value(7));
+        }
+
+        @ParameterizedTest(name = "totals reject width {0}")
+        @ValueSource(ints = {0, -5})
+        void testGetSocksTotalsInvalidWidth(int bucketWidth) throws Exception {
+            BDDMockito.given(socksService.getSocksTotals(any(), any(), ArgumentMatchers.eq(bucketWidth)))
+                    .willThrow(new InvalidFilterException("Ширина интервала содержания хлопка должна быть положительной"));
+
+            mockMvc.perform(get("/api/socks/totals")
+                            .param("groupBy", "COTTON_PART")
+                            .param("bucketWidth", Integer.toString(bucketWidth)))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.message").value("Ширина интервала содержания хлопка должна быть положительной"));
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/socks/list")
+    class ListSocksTests {
+
+        @ParameterizedTest(name = "list as {0}")
+        @CsvSource(delimiter = '|', value = {
+                "application/x-ndjson|application/x-ndjson|{\"id\":1,\"color\":\"red\",\"cottonPart\":30,\"quantity\":10}\\n{\"id\":2,\"color\":\"blue\",\"cottonPart\":50,\"quantity\":5}\\n",
+                "text/csv|text/csv;charset=UTF-8|id,color,cottonPart,quantity\\n1,\"red\",30,10\\n2,\"blue\",50,5\\n",
+                "*/*|application/x-ndjson|{\"id\":1,\"color\":\"red\",\"cottonPart\":30,\"quantity\":10}\\n{\"id\":2,\"color\":\"blue\",\"cottonPart\":50,\"quantity\":5}\\n"
+        })
+        void testListSocks(String accept, String contentType, String expected) throws Exception {
+            BDDMockito.willAnswer(invocation -> {
+                Consumer<SocksDto> consumer = invocation.getArgument(3);
+                consumer.accept(new SocksDto(1L, "red", 30, 10));
+                consumer.accept(new SocksDto(2L, "blue", 50, 5));
+                return null;
+            }).given(socksService).streamSocks(
+                    ArgumentMatchers.eq(new SocksFilter("red", "moreThan", 20, null, null)),
+                    ArgumentMatchers.eq(0L), ArgumentMatchers.eq(100), any());
+
+            MvcResult result = mockMvc.perform(get("/api/socks/list")
+                            .header(HttpHeaders.ACCEPT, accept)
+                            .param("color", "Red")
+                            .param("operator", "moreThan")
+                            .param("cottonPart", "20")
+                            .param("afterId", "0")
+                            .param("limit", "100"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            assertEquals(socksProperties.getListing().getTimeout().toMillis(), result.getRequest().getAsyncContext().getTimeout());
+
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(contentType))
+                    .andExpect(content().string(expected.replace("\\n", "\n")));
+        }
+
+        @ParameterizedTest(name = "list rejects operator {0}")
+        @ValueSource(strings = {"eq", "between"})
+        void testListSocksRejectsOperatorBeforeStreaming(String operator) {
+            assertThrows(Exception.class, () -> mockMvc.perform(get("/api/socks/list")
+                    .param("operator", operator)
+                    .param("cottonPart", "20")));
+            Mockito.verifyNoInteractions(socksService);
+        }
+    }
 }
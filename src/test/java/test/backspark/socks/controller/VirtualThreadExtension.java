@@ -0,0 +1,42 @@
+package test.backspark.socks.controller;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.InvocationInterceptor;
+import org.junit.jupiter.api.extension.ReflectiveInvocationContext;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Выполняет тестовые методы в виртуальном потоке, как это делает Tomcat в режиме {@code socks.execution.mode=virtual}:
+ * MockMvc вызывает обработчик в потоке теста.
+ */
+class VirtualThreadExtension implements InvocationInterceptor {
+
+    @Override
+    public void interceptTestMethod(Invocation<Void> invocation, ReflectiveInvocationContext<Method> invocationContext,
+                                    ExtensionContext extensionContext) throws Throwable {
+        proceedOnVirtualThread(invocation);
+    }
+
+    @Override
+    public void interceptTestTemplateMethod(Invocation<Void> invocation, ReflectiveInvocationContext<Method> invocationContext,
+                                            ExtensionContext extensionContext) throws Throwable {
+        proceedOnVirtualThread(invocation);
+    }
+
+    private static void proceedOnVirtualThread(Invocation<Void> invocation) throws Throwable {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = Thread.ofVirtual().name("socks-test-virtual").start(() -> {
+            try {
+                invocation.proceed();
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        thread.join();
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package test.backspark.socks.controller;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import test.backspark.socks.model.dto.SocksDto;
+import test.backspark.socks.service.SocksService;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+
+/**
+ * Настоящий HTTP-запрос к Tomcat в режиме {@code socks.execution.mode=virtual}: проверяется поток,
+ * в котором контроллер вызывает сервис.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"socks.execution.mode=virtual", "springdoc.api-docs.enabled=false"})
+class VirtualThreadHttpTest {
+
+    private static EmbeddedPostgres postgres;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @MockBean
+    private SocksService socksService;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    void testRequestRunsOnVirtualThread() {
+        AtomicReference<Thread> handler = new AtomicReference<>();
+        BDDMockito.given(socksService.income(any(SocksDto.class))).willAnswer(invocation -> {
+            handler.set(Thread.currentThread());
+            return invocation.getArgument(0);
+        });
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ResponseEntity<String> response = restTemplate.postForEntity("/api/socks/income",
+                new HttpEntity<>("{\"color\": \"red\", \"cottonPart\": 30, \"quantity\": 10}", headers), String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotSame(Thread.currentThread(), handler.get());
+        assertTrue(handler.get().isVirtual());
+        assertTrue(handler.get().getName().startsWith("socks-virtual-"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStreamingBodyRunsOnVirtualThread() {
+        AtomicReference<Thread> writer = new AtomicReference<>();
+        BDDMockito.willAnswer(invocation -> {
+            writer.set(Thread.currentThread());
+            ((Consumer<SocksDto>) invocation.getArgument(3)).accept(new SocksDto(1L, "red", 30, 10));
+            return null;
+        }).given(socksService).streamSocks(any(), any(), any(), any());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+        ResponseEntity<String> response = restTemplate.exchange("/api/socks/list?color=red",
+                HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getBody().contains("\"color\":\"red\""));
+        assertTrue(writer.get().isVirtual());
+        assertTrue(writer.get().getName().startsWith("socks-virtual-"));
+    }
+}
@@ -0,0 +1,11 @@
+package test.backspark.socks.controller;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Те же тесты контроллера, но каждый запрос обрабатывается в виртуальном потоке. Что Tomcat действительно
+ * отдает запросы виртуальным потокам, проверяет {@link VirtualThreadHttpTest}.
+ */
+@ExtendWith(VirtualThreadExtension.class)
+class VirtualThreadSocksControllerTest extends SocksControllerTest {
+}
@@ -0,0 +1,86 @@
+package test.backspark.socks.importer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.exeptionhandler.InvalidFileFormatException;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalCsvFilesTest {
+
+    @TempDir
+    Path root;
+
+    private Path importDirectory;
+    private LocalCsvFiles files;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        importDirectory = Files.createDirectories(root.resolve("import"));
+        Files.writeString(importDirectory.resolve("stock.csv"), "color,cottonPart,quantity\n");
+        Files.createDirectories(importDirectory.resolve("nightly"));
+        Files.writeString(importDirectory.resolve("nightly/stock.csv"), "color,cottonPart,quantity\n");
+        Files.writeString(root.resolve("secret.csv"), "color,cottonPart,quantity\n");
+
+        SocksProperties properties = new SocksProperties();
+        properties.getLocalImport().setEnabled(true);
+        properties.getLocalImport().setDirectory(importDirectory);
+        files = new LocalCsvFiles(properties);
+    }
+
+    @ParameterizedTest(name = "resolves {0}")
+    @ValueSource(strings = {"stock.csv", "nightly/stock.csv", "nightly/../stock.csv"})
+    void testResolvesFilesInsideDirectory(String path) throws Exception {
+        assertEquals(importDirectory.resolve(path).toRealPath(), files.resolve(path).toRealPath());
+    }
+
+    @ParameterizedTest(name = "rejects {0}")
+    @ValueSource(strings = {"../secret.csv", "missing.csv", "nightly", "stock.txt", " "})
+    void testRejectsPathsOutsideDirectory(String path) {
+        assertThrows(InvalidFileFormatException.class, () -> files.resolve(path));
+    }
+
+    @Test
+    void testRejectsSymlinkLeavingDirectory() throws Exception {
+        try {
+            Files.createSymbolicLink(importDirectory.resolve("link.csv"), root.resolve("secret.csv"));
+        } catch (UnsupportedOperationException | java.io.IOException e) {
+            return;
+        }
+
+        assertThrows(InvalidFileFormatException.class, () -> files.resolve("link.csv"));
+    }
+
+    @ParameterizedTest(name = "opens {0}")
+    @ValueSource(strings = {"stock.csv", "nightly/stock.csv"})
+    void testOpensFilesInsideDirectory(String path) throws Exception {
+        try (FileChannel channel = files.open(path)) {
+            assertEquals(Files.size(importDirectory.resolve(path)), channel.size());
+        }
+    }
+
+    @Test
+    void testOpenRejectsSymlinkLeavingDirectory() throws Exception {
+        try {
+            Files.createSymbolicLink(importDirectory.resolve("escape"), root);
+        } catch (UnsupportedOperationException | java.io.IOException e) {
+            return;
+        }
+
+        assertThrows(InvalidFileFormatException.class, () -> files.open("escape/secret.csv"));
+        assertThrows(InvalidFileFormatException.class, () -> files.open("../secret.csv"));
+    }
+
+    @Test
+    void testDisabledByDefault() {
+        assertThrows(InvalidFileFormatException.class, () -> new LocalCsvFiles(new SocksProperties()).resolve("stock.csv"));
+    }
+}
@@ -0,0 +1,172 @@
+package test.backspark.socks.importer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.util.unit.DataSize;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.exeptionhandler.InvalidFileFormatException;
+import test.backspark.socks.model.dto.SocksKey;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelCsvParserTest {
+
+    private static ParallelCsvParser parser(long rangeSize) {
+        SocksProperties properties = new SocksProperties();
+        properties.getBatch().setParallelism(4);
+        properties.getBatch().setParseRangeSize(DataSize.ofBytes(rangeSize));
+        return new ParallelCsvParser(properties);
+    }
+
+    private static ByteBuffer csv(String content) {
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testAggregatesAndReportsRejectedRows() {
+        ParsedCsv parsed = parser(16).parse(csv(
+                "color,cottonPart,quantity\r\nred,30,10\r\n,,\r\nRed ,30,5\r\nblue,101,1\r\nблакитный,50,20\r\nred,x,1"));
+
+        assertEquals(Map.of(new SocksKey("red", 30), 15, new SocksKey("блакитный", 50), 20), parsed.quantities());
+        assertEquals(new ImportStats(6, 3, 3), parsed.stats());
+        assertEquals(List.of(
+                new CsvRejection(3, CsvRowError.FORMAT, ",,"),
+                new CsvRejection(5, CsvRowError.COTTON_PART, "blue,101,1"),
+                new CsvRejection(7, CsvRowError.NUMBER, "red,x,1")), parsed.rejections().rows());
+        assertEquals(Map.of(CsvRowError.FORMAT, 1L, CsvRowError.COTTON_PART, 1L, CsvRowError.NUMBER, 1L),
+                parsed.rejections().counts());
+    }
+
+    @ParameterizedTest(name = "row is rejected like the line importer: \"{0}\"")
+    @ValueSource(strings = {",,", "red,30", "red,abc,10", "red,101,10", "red,30,0", " ,30,10", "", "red,,10",
+            "red,30,10,1", "red,30,99999999999", "red,-1,5", "red,30,+", "red,30,,"})
+    void testRejectsLikeLineImporter(String row) throws Exception {
+        String content = "color,cottonPart,quantity\n" + row + "\ngreen,20,5";
+
+        assertEquals(lineImporter(content), parser(1024).parse(csv(content)).quantities());
+        assertEquals(1, parser(1024).parse(csv(content)).stats().rowsRejected());
+    }
+
+    @ParameterizedTest(name = "row is accepted like the line importer: \"{0}\"")
+    @ValueSource(strings = {"red,30,10,", " Red , 30 , +10 ", "red,030,10", "RED\t,30,10"})
+    void testAcceptsLikeLineImporter(String row) throws Exception {
+        String content = "color,cottonPart,quantity\n" + row + "\nred,30,5\n";
+
+        assertEquals(lineImporter(content), parser(1024).parse(csv(content)).quantities());
+        assertEquals(Map.of(new SocksKey("red", 30), 15), parser(1024).parse(csv(content)).quantities());
+    }
+
+    @Test
+    void testParallelResultMatchesLineImporter() throws Exception {
+        Random random = new Random(42);
+        String[] colors = {"red", "Blue", " green", "BLACK ", "white"};
+        StringBuilder content = new StringBuilder("color,cottonPart,quantity\n");
+        for (int i = 0; i < 20_000; i++) {
+            content.append(colors[random.nextInt(colors.length)]).append(',')
+                    .append(random.nextInt(110)).append(',')
+                    .append(random.nextInt(50)).append('\n');
+        }
+
+        ParsedCsv parsed = parser(4096).parse(csv(content.toString()));
+
+        assertEquals(lineImporter(content.toString()), parsed.quantities());
+        assertEquals(20_000, parsed.stats().rowsRead());
+        assertEquals(parsed.stats().rowsRejected(), parsed.rejections().total());
+        int cap = new SocksProperties().getBatch().getMaxRejections();
+        assertTrue(parsed.stats().rowsRejected() > cap);
+        assertEquals(Math.min(parsed.stats().rowsRejected(), cap), parsed.rejections().rows().size());
+        assertTrue(parsed.rejections().rows().stream().allMatch(r -> r.row() >= 2 && r.row() <= 20_001));
+    }
+
+    @ParameterizedTest(name = "mapped file in segments of {0} bytes")
+    @ValueSource(ints = {64, 1 << 20})
+    void testMappedFileMatchesBuffer(int segmentSize, @TempDir Path directory) throws Exception {
+        StringBuilder content = new StringBuilder("color,cottonPart,quantity\r\n");
+        for (int i = 0; i < 500; i++) {
+            content.append(i % 7 == 0 ? "bad row" : "color" + (i % 3) + "," + (i % 101) + "," + (i + 1)).append("\r\n");
+        }
+        Path file = Files.writeString(directory.resolve("stock.csv"), content);
+
+        ParsedCsv mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapped = parser(128).parse(channel, segmentSize);
+        }
+
+        ParsedCsv expected = parser(128).parse(csv(content.toString()));
+        assertEquals(expected.quantities(), mapped.quantities());
+        assertEquals(expected.stats(), mapped.stats());
+        assertEquals(expected.rejections(), mapped.rejections());
+    }
+
+    @Test
+    void testMappedLineLongerThanSegment(@TempDir Path directory) throws Exception {
+        Path file = Files.writeString(directory.resolve("stock.csv"), "color,cottonPart,quantity\n" + "x".repeat(100) + "\nred,30,1\n");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertThrows(InvalidFileFormatException.class, () -> parser(128).parse(channel, 64));
+        }
+    }
+
+    @Test
+    void testRejectionsAreCappedInFileOrder() {
+        SocksProperties properties = new SocksProperties();
+        properties.getBatch().setParseRangeSize(DataSize.ofBytes(64));
+        properties.getBatch().setMaxRejections(3);
+        StringBuilder content = new StringBuilder("color,cottonPart,quantity\n");
+        for (int i = 0; i < 200; i++) {
+            content.append(i % 2 == 0 ? "red,30,1" : "bad " + i).append('\n');
+        }
+
+        RejectionReport report = new ParallelCsvParser(properties).parse(csv(content.toString())).rejections();
+
+        assertEquals(List.of(
+                new CsvRejection(3, CsvRowError.FORMAT, "bad 1"),
+                new CsvRejection(5, CsvRowError.FORMAT, "bad 3"),
+                new CsvRejection(7, CsvRowError.FORMAT, "bad 5")), report.rows());
+        assertEquals(Map.of(CsvRowError.FORMAT, 100L), report.counts());
+        assertEquals(97, report.dropped());
+    }
+
+    @Test
+    void testHeaderOnly() {
+        ParsedCsv parsed = parser(1024).parse(csv("color,cottonPart,quantity\n"));
+
+        assertTrue(parsed.quantities().isEmpty());
+        assertEquals(new ImportStats(0, 0, 0), parsed.stats());
+    }
+
+    @Test
+    void testQuantityOverflow() {
+        String content = "color,cottonPart,quantity\nred,30," + Integer.MAX_VALUE + "\nblue,30,1\nred,30,1";
+
+        assertThrows(InvalidFileFormatException.class, () -> parser(16).parse(csv(content)));
+    }
+
+    @Test
+    void testEmptyFileWithoutHeader() {
+        assertThrows(InvalidFileFormatException.class, () -> parser(1024).parse(csv("")));
+    }
+
+    private static Map<SocksKey, Integer> lineImporter(String content) throws Exception {
+        SocksProperties properties = new SocksProperties();
+        properties.getBatch().setChunkSize(Integer.MAX_VALUE);
+        Map<SocksKey, Integer> quantities = new HashMap<>();
+        new SocksCsvImporter(properties).importCsv(new BufferedReader(new StringReader(content)), quantities::putAll);
+        return quantities;
+    }
+}
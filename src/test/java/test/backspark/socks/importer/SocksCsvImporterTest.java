@@ -0,0 +1,96 @@
+package test.backspark.socks.importer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.exeptionhandler.InvalidFileFormatException;
+import test.backspark.socks.model.dto.SocksKey;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SocksCsvImporterTest {
+
+    private static SocksCsvImporter importer(int chunkSize) {
+        SocksProperties properties = new SocksProperties();
+        properties.getBatch().setChunkSize(chunkSize);
+        return new SocksCsvImporter(properties);
+    }
+
+    private static BufferedReader csv(String content) {
+        return new BufferedReader(new StringReader(content));
+    }
+
+    @Test
+    @DisplayName("duplicate keys inside a chunk are summed")
+    void testAggregatesDuplicateKeys() throws Exception {
+        List<Map<SocksKey, Integer>> chunks = new ArrayList<>();
+
+        ImportStats stats = importer(100).importCsv(
+                csv("color,cottonPart,quantity\nred,30,10\nRED,30,5\nblue,50,20\nred,31,1"), chunks::add);
+
+        assertEquals(new ImportStats(4, 4, 0), stats);
+        assertEquals(List.of(Map.of(
+                new SocksKey("red", 30), 15,
+                new SocksKey("blue", 50), 20,
+                new SocksKey("red", 31), 1)), chunks);
+    }
+
+    @Test
+    @DisplayName("chunks are flushed every chunk-size rows")
+    void testSplitsIntoChunks() throws Exception {
+        List<Map<SocksKey, Integer>> chunks = new ArrayList<>();
+
+        importer(2).importCsv(csv("color,cottonPart,quantity\nred,30,10\nred,30,5\nred,30,1\nblue,50,20\nblue,50,2"), chunks::add);
+
+        assertEquals(List.of(
+                Map.of(new SocksKey("red", 30), 15),
+                Map.of(new SocksKey("red", 30), 1, new SocksKey("blue", 50), 20),
+                Map.of(new SocksKey("blue", 50), 2)), chunks);
+    }
+
+    @ParameterizedTest(name = "invalid row is rejected: {0}")
+    @ValueSource(strings = {",,", "red,30", "red,abc,10", "red,101,10", "red,30,0", " ,30,10"})
+    void testRejectsInvalidRows(String row) throws Exception {
+        List<Map<SocksKey, Integer>> chunks = new ArrayList<>();
+
+        ImportStats stats = importer(100).importCsv(csv("color,cottonPart,quantity\n" + row + "\ngreen,20,5"), chunks::add);
+
+        assertEquals(new ImportStats(2, 1, 1), stats);
+        assertEquals(List.of(Map.of(new SocksKey("green", 20), 5)), chunks);
+    }
+
+    @Test
+    void testCollectsRejectedRows() throws Exception {
+        RejectionCollector rejections = new RejectionCollector(1);
+
+        ImportStats stats = importer(100).importCsv(
+                csv("color,cottonPart,quantity\nred,30,0\nred,30,1\n,,\nred,101,1"), rejections, chunk -> { });
+
+        assertEquals(new ImportStats(4, 1, 3), stats);
+        RejectionReport report = rejections.report(0);
+        assertEquals(List.of(new CsvRejection(2, CsvRowError.QUANTITY, "red,30,0")), report.rows());
+        assertEquals(Map.of(CsvRowError.QUANTITY, 1L, CsvRowError.FORMAT, 1L, CsvRowError.COTTON_PART, 1L), report.counts());
+        assertEquals(2, report.dropped());
+    }
+
+    @Test
+    @DisplayName("a key whose total does not fit into int is a file error")
+    void testQuantityOverflow() {
+        String content = "color,cottonPart,quantity\nred,30," + Integer.MAX_VALUE + "\nred,30,1";
+
+        assertThrows(InvalidFileFormatException.class, () -> importer(100).importCsv(csv(content), chunk -> { }));
+    }
+
+    @Test
+    void testEmptyFileWithoutHeader() {
+        assertThrows(InvalidFileFormatException.class, () -> importer(100).importCsv(csv(""), chunk -> fail()));
+    }
+}
@@ -0,0 +1,83 @@
+package test.backspark.socks.inventory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.event.InventoryChangedEvent;
+import test.backspark.socks.model.dto.SocksFilter;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.repositrory.SocksBulkRepository;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class CottonPrefixIndexTest {
+
+    @Mock
+    private SocksBulkRepository socksBulkRepository;
+
+    private CottonPrefixIndex index;
+
+    @BeforeEach
+    void setUp() {
+        SocksProperties properties = new SocksProperties();
+        properties.getPrefixIndex().setEnabled(true);
+        index = new CottonPrefixIndex(properties, socksBulkRepository);
+
+        doAnswer(invocation -> {
+            SocksBulkRepository.StockRowHandler handler = invocation.getArgument(0);
+            handler.accept(1L, "red", 0, 5);
+            handler.accept(2L, "red", 30, 10);
+            handler.accept(3L, "red", 100, 20);
+            handler.accept(4L, "blue", 30, 7);
+            handler.accept(5L, "blue", 50, 3);
+            return null;
+        }).when(socksBulkRepository).forEachStock(any());
+        index.afterSingletonsInstantiated();
+    }
+
+    @ParameterizedTest(name = "color={0}, operator={1}, cottonPart={2}, min={3}, max={4} -> {5}")
+    @CsvSource({
+            "red, , , , , 35",
+            ", , , , , 45",
+            "red, moreThan, 30, , , 20",
+            "red, lessThan, 30, , , 5",
+            "red, equal, 30, , , 10",
+            ", equal, 30, , , 17",
+            "blue, , , 30, 50, 10",
+            ", moreThan, 0, 30, 50, 20",
+            ", lessThan, 0, , , 0",
+            ", moreThan, 100, , , 0",
+            ", , , 60, 40, 0",
+            "green, , , , , 0"
+    })
+    void testSum(String color, String operator, Integer cottonPart, Integer min, Integer max, long expected) {
+        assertTrue(index.isReady());
+        assertEquals(expected, index.sum(SocksFilter.of(color, operator, cottonPart, min, max)));
+    }
+
+    @Test
+    void testAppliesCommittedDeltas() {
+        index.onInventoryChanged(new InventoryChangedEvent(Map.of(
+                new SocksKey("red", 30), -4L,
+                new SocksKey("green", 70), 9L)));
+
+        assertEquals(6, index.sum(SocksFilter.of("red", "equal", 30, null, null)));
+        assertEquals(9, index.sum(SocksFilter.of("green", null, null, null, null)));
+        assertEquals(50, index.sum(SocksFilter.of(null, null, null, null, null)));
+    }
+
+    @Test
+    void testInvalidOperator() {
+        assertThrows(IllegalArgumentException.class, () -> index.sum(SocksFilter.of("red", "eq", 30, null, null)));
+    }
+}
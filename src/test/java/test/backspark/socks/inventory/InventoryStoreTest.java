@@ -0,0 +1,127 @@
+package test.backspark.socks.inventory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.event.InventoryChangedEvent;
+import test.backspark.socks.model.dto.SocksFilter;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.repositrory.SocksBulkRepository;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryStoreTest {
+
+    @Mock
+    private SocksBulkRepository socksBulkRepository;
+
+    private InventoryStore store;
+
+    @BeforeEach
+    void setUp() {
+        SocksProperties properties = new SocksProperties();
+        properties.getStore().setEnabled(true);
+        store = new InventoryStore(properties, socksBulkRepository);
+
+        doAnswer(invocation -> {
+            SocksBulkRepository.StockRowHandler handler = invocation.getArgument(0);
+            handler.accept(1L, "red", 30, 10);
+            handler.accept(2L, "red", 70, 4);
+            handler.accept(3L, "blue", 30, 7);
+            return null;
+        }).when(socksBulkRepository).forEachStock(any());
+        store.afterSingletonsInstantiated();
+    }
+
+    @Test
+    void testQuantity() {
+        assertTrue(store.isReady());
+        assertEquals(10, store.quantity("red", 30));
+        assertEquals(InventoryStore.NOT_FOUND, store.quantity("red", 31));
+        assertEquals(InventoryStore.NOT_FOUND, store.quantity("green", 30));
+    }
+
+    @ParameterizedTest(name = "tryTake {0}/{1} x{2} -> {3}")
+    @CsvSource({
+            "red, 30, 10, 0",
+            "red, 30, 11, -2",
+            "blue, 30, 3, 4",
+            "blue, 31, 1, -1",
+            "green, 30, 1, -1"
+    })
+    void testTryTake(String color, int cottonPart, long quantity, long expected) {
+        assertEquals(expected, store.tryTake(color, cottonPart, quantity));
+    }
+
+    @ParameterizedTest(name = "sum color={0}, operator={1}, cottonPart={2} -> {3}")
+    @CsvSource({
+            ", , , 21",
+            "red, , , 14",
+            ", equal, 30, 17",
+            "red, moreThan, 30, 4",
+            "green, , , 0"
+    })
+    void testSum(String color, String operator, Integer cottonPart, long expected) {
+        assertEquals(expected, store.sum(SocksFilter.of(color, operator, cottonPart, null, null)));
+    }
+
+    @Test
+    void testAppliesCommittedDeltasAndGrows() {
+        for (int cottonPart = 0; cottonPart <= 100; cottonPart++) {
+            store.onInventoryChanged(InventoryChangedEvent.of(new SocksKey("color" + cottonPart, cottonPart), cottonPart));
+        }
+
+        assertEquals(104, store.size());
+        assertEquals(100, store.quantity("color100", 100));
+        assertEquals(21 + 5050, store.sum(SocksFilter.of(null, null, null, null, null)));
+    }
+
+    @Test
+    void testRemovesMovedKeys() {
+        store.onInventoryChanged(new InventoryChangedEvent(
+                Map.of(new SocksKey("red", 30), -10L, new SocksKey("red", 31), 10L),
+                Set.of(new SocksKey("red", 30))));
+
+        assertEquals(InventoryStore.NOT_FOUND, store.quantity("red", 30));
+        assertEquals(10, store.quantity("red", 31));
+        assertEquals(4, store.quantity("red", 70));
+        assertEquals(2L, store.id("red", 70));
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    void testConcurrentTakesNeverOversell() throws InterruptedException {
+        store.add("hot", 50, 1000);
+        AtomicLong taken = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 500; j++) {
+                    if (store.tryTake("hot", 50, 1) >= 0) {
+                        taken.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, taken.get());
+        assertEquals(0, store.quantity("hot", 50));
+    }
+}
@@ -0,0 +1,75 @@
+package test.backspark.socks.inventory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.annotation.Order;
+import test.backspark.socks.cache.SocksQueryCache;
+import test.backspark.socks.event.InventoryChangedEvent;
+import test.backspark.socks.event.ReservationPersistedEvent;
+import test.backspark.socks.model.dto.SocksKey;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryVersionTest {
+
+    private final InventoryVersion version = new InventoryVersion();
+
+    @Test
+    void testAdvancesGlobalAndChangedColorsOnly() {
+        String global = version.etag(null);
+        String red = version.etag("red");
+        String blue = version.etag("blue");
+
+        version.onInventoryChanged(new InventoryChangedEvent(Map.of(new SocksKey("red", 30), 5L, new SocksKey("red", 40), -1L)));
+
+        assertEquals(1, version.current());
+        assertEquals(1, version.current("red"));
+        assertEquals(0, version.current("blue"));
+        assertNotEquals(global, version.etag(null));
+        assertNotEquals(red, version.etag("red"));
+        assertEquals(blue, version.etag("blue"));
+    }
+
+    @Test
+    void testRemovedKeysAndPersistedReservationsAdvanceTheirColors() {
+        version.onInventoryChanged(new InventoryChangedEvent(Map.of(new SocksKey("blue", 30), 5L), Set.of(new SocksKey("red", 30))));
+        assertEquals(1, version.current("red"));
+        assertEquals(1, version.current("blue"));
+
+        version.onReservationPersisted(new ReservationPersistedEvent(new SocksKey("green", 10), -2));
+        assertEquals(2, version.current());
+        assertEquals(2, version.current("green"));
+        assertEquals(1, version.current("red"));
+    }
+
+    @Test
+    void testEmptyChangeKeepsVersion() {
+        version.advance(Set.of());
+
+        assertEquals(0, version.current());
+    }
+
+    @Test
+    void testEtagsDifferBetweenRestarts() {
+        assertNotEquals(version.etag(null), new InventoryVersion().etag(null));
+    }
+
+    @Test
+    void testViewsAreUpdatedBeforeTheVersion() throws NoSuchMethodException {
+        int versionOrder = order(InventoryVersion.class.getMethod("onInventoryChanged", InventoryChangedEvent.class));
+
+        for (Class<?> view : new Class<?>[]{SocksQueryCache.class, CottonPrefixIndex.class, InventoryStore.class}) {
+            assertTrue(order(view.getMethod("onInventoryChanged", InventoryChangedEvent.class)) < versionOrder, view.getSimpleName());
+        }
+    }
+
+    private static int order(Method listener) {
+        Order order = AnnotationUtils.findAnnotation(listener, Order.class);
+        assertNotNull(order, listener.toString());
+        return order.value();
+    }
+}
@@ -0,0 +1,298 @@
+package test.backspark.socks.inventory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.event.ReservationPersistedEvent;
+import test.backspark.socks.exeptionhandler.NotEnoughSocksException;
+import test.backspark.socks.exeptionhandler.SocksNotFoundException;
+import test.backspark.socks.model.dto.SocksDto;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.model.entity.Socks;
+import test.backspark.socks.movement.AppliedMovements;
+import test.backspark.socks.movement.StockMovement;
+import test.backspark.socks.repositrory.SocksBulkRepository;
+import test.backspark.socks.repositrory.SocksRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationOutcomeEngineTest {
+
+    @Mock
+    private SocksBulkRepository socksBulkRepository;
+
+    @Mock
+    private SocksRepository socksRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final InventoryVersion inventoryVersion = new InventoryVersion();
+    private InventoryStore store;
+    private ReservationOutcomeEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        SocksProperties properties = new SocksProperties();
+        properties.getStore().setEnabled(true);
+        properties.getOutcome().setMode(SocksProperties.OutcomeMode.RESERVE);
+
+        doAnswer(invocation -> {
+            SocksBulkRepository.StockRowHandler handler = invocation.getArgument(0);
+            handler.accept(7L, "red", 30, 1000);
+            return null;
+        }).when(socksBulkRepository).forEachStock(any());
+        store = new InventoryStore(properties, socksBulkRepository);
+        store.afterSingletonsInstantiated();
+
+        engine = new ReservationOutcomeEngine(properties, store, inventoryVersion, socksRepository, transactionManager, eventPublisher);
+        engine.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        engine.shutdown();
+    }
+
+    @Test
+    void testActiveOnlyInReserveMode() {
+        assertTrue(engine.isActive());
+
+        InventoryStore store = new InventoryStore(new SocksProperties(), socksBulkRepository);
+        SocksProperties properties = new SocksProperties();
+        properties.getOutcome().setMode(SocksProperties.OutcomeMode.RESERVE);
+        assertFalse(new ReservationOutcomeEngine(properties, store, inventoryVersion, socksRepository, transactionManager, eventPublisher).isActive());
+    }
+
+    @Test
+    void testRejectsWithoutDatabase() {
+        assertThrows(SocksNotFoundException.class, () -> engine.outcome(new SocksKey("blue", 30), 1));
+        assertThrows(NotEnoughSocksException.class, () -> engine.outcome(new SocksKey("red", 30), 1001));
+        verifyNoInteractions(socksRepository, transactionManager, eventPublisher);
+        assertEquals(0, inventoryVersion.current());
+    }
+
+    @Test
+    void testAnswersAfterCommit() {
+        SocksKey key = new SocksKey("red", 30);
+        when(socksRepository.decrementQuantityIfEnough("red", 30, 10))
+                .thenReturn(Optional.of(new Socks(7L, "red", 30, 990)));
+
+        SocksDto result = engine.outcome(key, 10);
+
+        assertEquals(new SocksDto(7L, "red", 30, 990), result);
+        InOrder inOrder = inOrder(socksRepository, transactionManager, eventPublisher);
+        inOrder.verify(socksRepository).decrementQuantityIfEnough("red", 30, 10);
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(eventPublisher).publishEvent(new ReservationPersistedEvent(key, -10));
+        assertEquals(1, inventoryVersion.current("red"));
+        assertEquals(0, engine.pendingCount());
+        assertEquals(0, engine.failedCount());
+    }
+
+    @Test
+    void testCoalescesBatchIntoOneUpdatePerKey() {
+        store.add("blue", 50, 100);
+        when(socksRepository.decrementQuantityIfEnough(anyString(), anyInt(), anyInt())).thenReturn(Optional.of(new Socks()));
+        List<ReservationOutcomeEngine.Reservation> batch = List.of(
+                reservation(Map.of(new SocksKey("red", 30), 10)),
+                reservation(Map.of(new SocksKey("blue", 50), 4)),
+                reservation(Map.of(new SocksKey("red", 30), 5)));
+
+        engine.flush(batch);
+
+        batch.forEach(reservation -> assertNull(reservation.persisted().join()));
+        verify(socksRepository).decrementQuantityIfEnough("red", 30, 15);
+        verify(socksRepository).decrementQuantityIfEnough("blue", 50, 4);
+        verifyNoMoreInteractions(socksRepository);
+        verify(transactionManager, times(1)).commit(any());
+        verify(eventPublisher).publishEvent(new ReservationPersistedEvent(new SocksKey("red", 30), -15));
+        verify(eventPublisher).publishEvent(new ReservationPersistedEvent(new SocksKey("blue", 50), -4));
+    }
+
+    @Test
+    void testDivergedKeyFailsOnlyItsReservations() {
+        store.add("blue", 50, 100);
+        when(socksRepository.decrementQuantityIfEnough(eq("red"), eq(30), anyInt())).thenReturn(Optional.of(new Socks()));
+        when(socksRepository.decrementQuantityIfEnough(eq("blue"), eq(50), anyInt())).thenReturn(Optional.empty());
+        ReservationOutcomeEngine.Reservation red = reservation(Map.of(new SocksKey("red", 30), 10));
+        ReservationOutcomeEngine.Reservation blue = reservation(Map.of(new SocksKey("blue", 50), 4));
+        store.tryTake("red", 30, 10);
+        store.tryTake("blue", 50, 4);
+
+        engine.flush(List.of(red, blue));
+
+        assertNull(red.persisted().join());
+        CompletionException exception = assertThrows(CompletionException.class, () -> blue.persisted().join());
+        assertInstanceOf(NotEnoughSocksException.class, exception.getCause());
+        assertEquals(990, store.quantity("red", 30));
+        assertEquals(100, store.quantity("blue", 50));
+        assertEquals(1, engine.failedCount());
+        // пакет откатывается целиком, затем красный записывается отдельно, а синий снова откатывается
+        verify(transactionManager, times(2)).rollback(any());
+        verify(transactionManager).commit(any());
+        verify(eventPublisher).publishEvent(new ReservationPersistedEvent(new SocksKey("red", 30), -10));
+        verifyNoMoreInteractions(eventPublisher);
+    }
+
+    @Test
+    void testReportsFailedWriteToCallerAndGivesReservationBack() {
+        when(socksRepository.decrementQuantityIfEnough("red", 30, 10)).thenThrow(new IllegalStateException("connection lost"));
+
+        assertThrows(IllegalStateException.class, () -> engine.outcome(new SocksKey("red", 30), 10));
+
+        assertEquals(1000, store.quantity("red", 30));
+        assertEquals(2, inventoryVersion.current("red"));
+        assertEquals(1, engine.failedCount());
+        assertEquals(0, engine.pendingCount());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testGivesReservationBackWhenPersisterIsStopped() throws InterruptedException {
+        engine.shutdown();
+
+        assertThrows(IllegalStateException.class, () -> engine.outcome(new SocksKey("red", 30), 10));
+        assertEquals(1000, store.quantity("red", 30));
+        assertEquals(0, engine.pendingCount());
+        verifyNoInteractions(socksRepository);
+    }
+
+    @Test
+    void testAwaitPersistedWaitsForPendingReservationsOfKey() throws InterruptedException {
+        SocksKey key = new SocksKey("red", 30);
+        CountDownLatch writing = new CountDownLatch(1);
+        when(socksRepository.decrementQuantityIfEnough("red", 30, 10)).thenAnswer(invocation -> {
+            writing.countDown();
+            Thread.sleep(200);
+            return Optional.of(new Socks(7L, "red", 30, 990));
+        });
+
+        CompletableFuture<SocksDto> outcome = CompletableFuture.supplyAsync(() -> engine.outcome(key, 10));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        engine.awaitPersisted(List.of(key));
+
+        assertEquals(0, engine.pendingCount());
+        verify(eventPublisher).publishEvent(new ReservationPersistedEvent(key, -10));
+        assertEquals(new SocksDto(7L, "red", 30, 990), outcome.join());
+    }
+
+    @Test
+    void testBulkOutcomeReservesEachMovement() {
+        SocksKey key = new SocksKey("red", 30);
+        when(socksRepository.decrementQuantityIfEnough(anyString(), anyInt(), anyInt())).thenReturn(Optional.of(new Socks()));
+
+        AppliedMovements applied = engine.outcomeAll(List.of(
+                new StockMovement(key, -600),
+                new StockMovement(new SocksKey("blue", 30), -1),
+                new StockMovement(key, -500)), false);
+
+        assertEquals(new SocksDto(7L, "red", 30, 400), applied.results().get(0).socks());
+        assertInstanceOf(SocksNotFoundException.class, applied.results().get(1).error());
+        assertInstanceOf(NotEnoughSocksException.class, applied.results().get(2).error());
+        assertTrue(applied.deltas().isEmpty());
+        assertEquals(400, store.quantity("red", 30));
+        verify(socksRepository).decrementQuantityIfEnough("red", 30, 600);
+        verifyNoMoreInteractions(socksRepository);
+    }
+
+    @Test
+    void testAtomicBulkOutcomeIsWrittenAsOneReservation() {
+        SocksKey key = new SocksKey("red", 30);
+        when(socksRepository.decrementQuantityIfEnough("red", 30, 900)).thenReturn(Optional.of(new Socks()));
+
+        AppliedMovements applied = engine.outcomeAll(List.of(new StockMovement(key, -600), new StockMovement(key, -300)), true);
+
+        assertFalse(applied.hasFailures());
+        assertEquals(new SocksDto(7L, "red", 30, 100), applied.results().get(1).socks());
+        verify(socksRepository).decrementQuantityIfEnough("red", 30, 900);
+        verifyNoMoreInteractions(socksRepository);
+    }
+
+    @Test
+    void testAtomicBulkOutcomeFailsWholeWhenWriteFails() {
+        SocksKey key = new SocksKey("red", 30);
+        when(socksRepository.decrementQuantityIfEnough("red", 30, 900)).thenReturn(Optional.empty());
+
+        AppliedMovements applied = engine.outcomeAll(List.of(new StockMovement(key, -600), new StockMovement(key, -300)), true);
+
+        applied.results().forEach(result -> assertInstanceOf(NotEnoughSocksException.class, result.error()));
+        assertEquals(1000, store.quantity("red", 30));
+    }
+
+    @Test
+    void testAtomicBulkOutcomeReturnsReservationsWhenOneFails() {
+        SocksKey key = new SocksKey("red", 30);
+
+        AppliedMovements applied = engine.outcomeAll(List.of(new StockMovement(key, -600), new StockMovement(key, -500)), true);
+
+        assertTrue(applied.hasFailures());
+        assertEquals(1000, store.quantity("red", 30));
+        assertEquals(0, engine.pendingCount());
+        verifyNoInteractions(socksRepository);
+    }
+
+    @Test
+    void testConcurrentOutcomesNeverOversell() throws InterruptedException {
+        AtomicLong written = new AtomicLong();
+        AtomicLong updates = new AtomicLong();
+        when(socksRepository.decrementQuantityIfEnough(eq("red"), eq(30), anyInt())).thenAnswer(invocation -> {
+            written.addAndGet(invocation.<Integer>getArgument(2));
+            updates.incrementAndGet();
+            return Optional.of(new Socks());
+        });
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 200; j++) {
+                    try {
+                        engine.outcome(new SocksKey("red", 30), 1);
+                        accepted.incrementAndGet();
+                    } catch (NotEnoughSocksException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, accepted.get());
+        assertEquals(600, rejected.get());
+        assertEquals(1000, written.get());
+        assertTrue(updates.get() <= 1000);
+    }
+
+    private static ReservationOutcomeEngine.Reservation reservation(Map<SocksKey, Integer> quantities) {
+        return new ReservationOutcomeEngine.Reservation(quantities, new CompletableFuture<>());
+    }
+}
@@ -0,0 +1,183 @@
+package test.backspark.socks.job;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.importer.CsvRejection;
+import test.backspark.socks.importer.CsvRowError;
+import test.backspark.socks.importer.ParallelCsvParser;
+import test.backspark.socks.metrics.ImportMetrics;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.model.entity.ImportJob;
+import test.backspark.socks.model.entity.ImportJobStatus;
+import test.backspark.socks.repositrory.ImportJobRejectionRepository;
+import test.backspark.socks.repositrory.ImportJobRepository;
+import test.backspark.socks.repositrory.SocksBulkRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportJobRunnerTest {
+    private static final String HEADER = "color,cottonPart,quantity\n";
+    private static final String BODY = "red,30,1\nred,30,2\nblue,50,4\nbad row\nred,30,8\nblue,50,16\ngreen,10,32\n";
+
+    @Mock
+    private ImportJobRepository importJobRepository;
+
+    @Mock
+    private ImportJobRejectionRepository importJobRejectionRepository;
+
+    @Mock
+    private SocksBulkRepository socksBulkRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ImportMetrics importMetrics = new ImportMetrics(meterRegistry);
+    private ParallelCsvParser parser;
+    private ImportJobRunner runner;
+    private final Map<SocksKey, Integer> applied = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        SocksProperties properties = new SocksProperties();
+        properties.getJobs().setChunkSize(DataSize.ofBytes(32));
+        parser = new ParallelCsvParser(properties);
+        runner = new ImportJobRunner(properties, importJobRepository, importJobRejectionRepository, socksBulkRepository, parser, transactionManager, eventPublisher, importMetrics);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        runner.shutdown();
+        parser.shutdown();
+    }
+
+    @Test
+    void testCommitsFileChunkByChunk() throws Exception {
+        Path spool = Files.writeString(directory.resolve("import.csv"), HEADER + BODY);
+        long size = Files.size(spool);
+        ImportJob job = job(spool, ImportJobStatus.QUEUED, 0, 0);
+        stubRepository(job);
+
+        runner.run(1L);
+
+        assertEquals(ImportJobStatus.COMPLETED, job.getStatus());
+        assertEquals(size, job.getCommittedOffset());
+        assertEquals(7, job.getRowsRead());
+        assertEquals(6, job.getRowsApplied());
+        assertEquals(1, job.getRowsRejected());
+        assertTrue(job.getChunks() > 1);
+        assertNotNull(job.getStartedAt());
+        assertNotNull(job.getFinishedAt());
+        assertEquals(Map.of(new SocksKey("red", 30), 11, new SocksKey("blue", 50), 20, new SocksKey("green", 10), 32), applied);
+        assertFalse(Files.exists(spool));
+        assertEquals(1, job.getRejectionsKept());
+        verify(importJobRejectionRepository).saveRows(1L, List.of(new CsvRejection(5, CsvRowError.FORMAT, "bad row")));
+        verify(importJobRejectionRepository).addCounts(1L, Map.of(CsvRowError.FORMAT, 1L));
+        assertEquals(6, meterRegistry.get("socks.import.rows").tags("source", "job", "result", "accepted").counter().count());
+        assertEquals(1, meterRegistry.get("socks.import.rejections").tags("source", "job", "error", "FORMAT").counter().count());
+    }
+
+    @Test
+    void testResumesFromCommittedOffset() throws Exception {
+        Path spool = Files.writeString(directory.resolve("import.csv"), HEADER + BODY);
+        long offset = (HEADER + "red,30,1\nred,30,2\nblue,50,4\n").length();
+        ImportJob job = job(spool, ImportJobStatus.RUNNING, offset, 3);
+        job.setRejectionsKept(1000);
+        stubRepository(job);
+
+        runner.run(1L);
+
+        assertEquals(ImportJobStatus.COMPLETED, job.getStatus());
+        assertEquals(7, job.getRowsRead());
+        assertEquals(1000, job.getRejectionsKept());
+        verify(importJobRejectionRepository).saveRows(1L, List.of());
+        verify(importJobRejectionRepository).addCounts(1L, Map.of(CsvRowError.FORMAT, 1L));
+        assertEquals(Map.of(new SocksKey("red", 30), 8, new SocksKey("blue", 50), 16, new SocksKey("green", 10), 32), applied);
+    }
+
+    @Test
+    void testFailsJobOnUnreadableSpool() {
+        ImportJob job = job(directory.resolve("missing.csv"), ImportJobStatus.QUEUED, 0, 0);
+        when(importJobRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(job));
+        when(importJobRepository.save(any(ImportJob.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        runner.run(1L);
+
+        assertEquals(ImportJobStatus.FAILED, job.getStatus());
+        assertNotNull(job.getError());
+        verifyNoInteractions(socksBulkRepository);
+    }
+
+    @Test
+    void testSkipsFinishedJob() {
+        ImportJob job = job(directory.resolve("import.csv"), ImportJobStatus.COMPLETED, 0, 0);
+        when(importJobRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(job));
+
+        runner.run(1L);
+
+        verify(importJobRepository, never()).save(any());
+        verifyNoInteractions(socksBulkRepository);
+    }
+
+    @Test
+    void testResubmitsUnfinishedJobsOnStartup() {
+        when(importJobRepository.findByStatusInOrderById(any())).thenReturn(List.of());
+
+        runner.afterSingletonsInstantiated();
+
+        verify(importJobRepository).findByStatusInOrderById(Set.of(ImportJobStatus.QUEUED, ImportJobStatus.RUNNING));
+    }
+
+    private void stubRepository(ImportJob job) {
+        when(importJobRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(job));
+        when(importJobRepository.save(any(ImportJob.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(socksBulkRepository.upsertQuantities(anyMap())).thenAnswer(invocation -> {
+            Map<SocksKey, Integer> chunk = invocation.getArgument(0);
+            chunk.forEach((key, quantity) -> applied.merge(key, quantity, Integer::sum));
+            return List.of();
+        });
+    }
+
+    private static ImportJob job(Path spool, ImportJobStatus status, long offset, long rowsRead) {
+        ImportJob job = new ImportJob();
+        job.setId(1L);
+        job.setStatus(status);
+        job.setFileName("stock.csv");
+        job.setSpoolPath(spool.toString());
+        job.setCommittedOffset(offset);
+        job.setRowsRead(rowsRead);
+        job.setRowsApplied(rowsRead);
+        job.setCreatedAt(Instant.now());
+        job.setUpdatedAt(Instant.now());
+        return job;
+    }
+}
@@ -0,0 +1,86 @@
+package test.backspark.socks.ledger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.repositrory.SocksMovementRepository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerCompactorTest {
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 10);
+
+    @Mock
+    private SocksMovementRepository socksMovementRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private LedgerCompactor compactor;
+
+    @BeforeEach
+    void setUp() {
+        SocksProperties properties = new SocksProperties();
+        properties.getLedger().setEnabled(true);
+        properties.getLedger().setCompactionBatchSize(100);
+        properties.getLedger().setPartitionsAhead(2);
+        Clock clock = Clock.fixed(Instant.parse("2024-03-10T12:00:00Z"), ZoneOffset.UTC);
+        compactor = new LedgerCompactor(properties, socksMovementRepository, transactionManager, clock);
+    }
+
+    @Test
+    void testCompactsFullBatchesUntilTailIsShort() {
+        when(socksMovementRepository.compact(100)).thenReturn(100, 100, 30);
+
+        assertEquals(230, compactor.compactAll());
+        verify(socksMovementRepository, times(3)).compact(100);
+    }
+
+    @Test
+    void testKeepsCompactingAfterBatchWithLongKeyTails() {
+        when(socksMovementRepository.compact(100)).thenReturn(150, 20);
+
+        assertEquals(170, compactor.compactAll());
+        verify(socksMovementRepository, times(2)).compact(100);
+    }
+
+    @Test
+    void testCreatesUpcomingPartitionsAndDropsPastOnesOnceADay() {
+        when(socksMovementRepository.partitionDays()).thenReturn(List.of(TODAY.minusDays(2), TODAY.minusDays(1), TODAY));
+        when(socksMovementRepository.dropPartitionIfEmpty(TODAY.minusDays(2))).thenReturn(true);
+        when(socksMovementRepository.dropPartitionIfEmpty(TODAY.minusDays(1))).thenReturn(false);
+
+        compactor.maintainPartitions();
+        compactor.maintainPartitions();
+
+        verify(socksMovementRepository).createPartition(TODAY);
+        verify(socksMovementRepository).createPartition(TODAY.plusDays(1));
+        verify(socksMovementRepository).createPartition(TODAY.plusDays(2));
+        verify(socksMovementRepository, never()).createPartition(TODAY.plusDays(3));
+        verify(socksMovementRepository, never()).dropPartitionIfEmpty(TODAY);
+        verify(socksMovementRepository, times(1)).partitionDays();
+    }
+
+    @Test
+    void testRetriesPartitionsThatCouldNotBeCreated() {
+        doThrow(new IllegalStateException("default partition contains rows")).doNothing()
+                .when(socksMovementRepository).createPartition(TODAY);
+
+        compactor.maintainPartitions();
+        compactor.maintainPartitions();
+
+        verify(socksMovementRepository, times(2)).createPartition(TODAY);
+    }
+}
@@ -0,0 +1,88 @@
+package test.backspark.socks.ledger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.event.InventoryChangedEvent;
+import test.backspark.socks.exeptionhandler.NotEnoughSocksException;
+import test.backspark.socks.exeptionhandler.SocksNotFoundException;
+import test.backspark.socks.model.dto.SocksDto;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.model.entity.Socks;
+import test.backspark.socks.repositrory.SocksMovementRepository;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MovementLedgerTest {
+    private static final SocksKey RED = new SocksKey("red", 30);
+
+    @Mock
+    private SocksMovementRepository socksMovementRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private MovementLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        SocksProperties properties = new SocksProperties();
+        properties.getLedger().setEnabled(true);
+        ledger = new MovementLedger(properties, socksMovementRepository, eventPublisher);
+    }
+
+    @Test
+    void testIncomeAppendsWithoutLocking() {
+        when(socksMovementRepository.balances(List.of(RED))).thenReturn(Map.of(RED, new Socks(1L, "red", 30, 15)));
+
+        assertEquals(new SocksDto(1L, "red", 30, 15), ledger.income(RED, 5));
+
+        InOrder order = inOrder(socksMovementRepository);
+        order.verify(socksMovementRepository).ensureSnapshots(List.of(RED));
+        order.verify(socksMovementRepository).append(Map.of(RED, 5));
+        verify(socksMovementRepository, never()).lockKeys(any());
+        verify(eventPublisher).publishEvent(InventoryChangedEvent.of(RED, 5));
+    }
+
+    @Test
+    void testOutcomeChecksBalanceUnderKeyLock() {
+        when(socksMovementRepository.balances(List.of(RED))).thenReturn(Map.of(RED, new Socks(1L, "red", 30, 10)));
+
+        assertEquals(new SocksDto(1L, "red", 30, 4), ledger.outcome(RED, 6));
+
+        InOrder order = inOrder(socksMovementRepository);
+        order.verify(socksMovementRepository).lockKeys(List.of(RED));
+        order.verify(socksMovementRepository).balances(List.of(RED));
+        order.verify(socksMovementRepository).append(Map.of(RED, -6));
+        verify(eventPublisher).publishEvent(InventoryChangedEvent.of(RED, -6));
+    }
+
+    @Test
+    void testOutcomeRejectsWithoutAppending() {
+        when(socksMovementRepository.balances(List.of(RED))).thenReturn(Map.of(RED, new Socks(1L, "red", 30, 5)));
+
+        assertThrows(NotEnoughSocksException.class, () -> ledger.outcome(RED, 6));
+        verify(socksMovementRepository, never()).append(any());
+
+        when(socksMovementRepository.balances(List.of(RED))).thenReturn(Map.of());
+        assertThrows(SocksNotFoundException.class, () -> ledger.outcome(RED, 1));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testCancelReversesNonZeroTails() {
+        ledger.cancel(Map.of(RED, 7L, new SocksKey("blue", 50), 0L));
+
+        verify(socksMovementRepository).append(Map.of(RED, -7));
+    }
+}
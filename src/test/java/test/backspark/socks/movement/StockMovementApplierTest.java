@@ -0,0 +1,91 @@
+package test.backspark.socks.movement;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.exeptionhandler.NotEnoughSocksException;
+import test.backspark.socks.ledger.MovementLedger;
+import test.backspark.socks.model.dto.SocksDto;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.model.entity.Socks;
+import test.backspark.socks.repositrory.SocksBulkRepository;
+import test.backspark.socks.repositrory.SocksMovementRepository;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockMovementApplierTest {
+    private static final SocksKey RED = new SocksKey("red", 30);
+    private static final SocksKey BLUE = new SocksKey("blue", 50);
+
+    @Mock
+    private SocksBulkRepository socksBulkRepository;
+
+    @Mock
+    private SocksMovementRepository socksMovementRepository;
+
+    private StockMovementApplier applier;
+
+    @BeforeEach
+    void setUp() {
+        applier = new StockMovementApplier(socksBulkRepository, new MovementLedger(new SocksProperties(), socksMovementRepository, null));
+        lenient().when(socksBulkRepository.lockStock(anyCollection())).thenReturn(Map.of(RED, new Socks(1L, "red", 30, 10)));
+    }
+
+    @Test
+    void testLaterMovementSeesEarlierOnes() {
+        when(socksBulkRepository.upsertQuantities(Map.of(RED, -10, BLUE, 3)))
+                .thenReturn(List.of(new Socks(1L, "red", 30, 0), new Socks(2L, "blue", 50, 3)));
+
+        AppliedMovements applied = applier.apply(List.of(
+                new StockMovement(BLUE, 3),
+                new StockMovement(RED, -10),
+                new StockMovement(RED, -1)), false);
+
+        assertEquals(MovementResult.success(new SocksDto(2L, "blue", 50, 3)), applied.results().get(0));
+        assertEquals(MovementResult.success(new SocksDto(1L, "red", 30, 0)), applied.results().get(1));
+        assertInstanceOf(NotEnoughSocksException.class, applied.results().get(2).error());
+        assertEquals(Map.of(RED, -10L, BLUE, 3L), applied.deltas());
+    }
+
+    @Test
+    void testAtomicBatchWritesNothingOnFailure() {
+        AppliedMovements applied = applier.apply(List.of(
+                new StockMovement(RED, -5),
+                new StockMovement(BLUE, -1)), true);
+
+        assertTrue(applied.hasFailures());
+        assertTrue(applied.results().get(0).isSuccess());
+        assertTrue(applied.deltas().isEmpty());
+        verify(socksBulkRepository).upsertQuantities(Map.of());
+    }
+
+    @Test
+    void testLedgerModeChecksBalanceWithTailAndAppendsMovements() {
+        SocksProperties properties = new SocksProperties();
+        properties.getLedger().setEnabled(true);
+        StockMovementApplier ledgerApplier = new StockMovementApplier(socksBulkRepository, new MovementLedger(properties, socksMovementRepository, null));
+        // снимок 2, хвост +8
+        when(socksMovementRepository.balances(List.of(RED, BLUE))).thenReturn(Map.of(RED, new Socks(1L, "red", 30, 10)));
+        when(socksMovementRepository.ensureSnapshots(Map.of(RED, -7, BLUE, 3).keySet()))
+                .thenReturn(List.of(new Socks(2L, "blue", 50, 0)));
+
+        AppliedMovements applied = ledgerApplier.apply(List.of(
+                new StockMovement(RED, -7),
+                new StockMovement(BLUE, 3)), true);
+
+        assertEquals(MovementResult.success(new SocksDto(1L, "red", 30, 3)), applied.results().get(0));
+        assertEquals(MovementResult.success(new SocksDto(2L, "blue", 50, 3)), applied.results().get(1));
+        verify(socksMovementRepository).lockKeys(List.of(RED, BLUE));
+        verify(socksMovementRepository).append(Map.of(RED, -7, BLUE, 3));
+        verify(socksBulkRepository, never()).lockStock(anyCollection());
+        verify(socksBulkRepository, never()).upsertQuantities(anyMap());
+    }
+}
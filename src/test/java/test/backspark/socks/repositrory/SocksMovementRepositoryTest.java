@@ -0,0 +1,110 @@
+package test.backspark.socks.repositrory;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import test.backspark.socks.model.dto.SocksFilter;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.model.entity.Socks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SocksMovementRepositoryTest {
+    private static final SocksKey RED = new SocksKey("red", 10);
+    private static final SocksKey BLUE = new SocksKey("blue", 10);
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+
+    private SocksMovementRepository repository;
+
+    @BeforeAll
+    static void startDatabase() throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        Flyway.configure().dataSource(postgres.getPostgresDatabase()).load().migrate();
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE socks, socks_movement");
+        repository = new SocksMovementRepository(jdbcTemplate);
+    }
+
+    @Test
+    void testCompactsWholeTailOfRenamedKey() {
+        jdbcTemplate.update("INSERT INTO socks (color, cotton_part, quantity) VALUES ('red', 10, 5)");
+        repository.append(Map.of(RED, -5));
+        // update переименовал ключ: снимок red/10 исчез, хвост погашен встречным движением
+        jdbcTemplate.update("UPDATE socks SET color = 'blue' WHERE color = 'red'");
+        repository.append(Map.of(BLUE, 3));
+        repository.append(Map.of(RED, 5));
+
+        assertEquals(2, repository.compact(1));
+        assertEquals(1, repository.compact(1));
+
+        assertFalse(repository.hasMovements());
+        assertEquals(List.of(), jdbcTemplate.queryForList("SELECT quantity FROM socks WHERE color = 'red'", Integer.class));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT quantity FROM socks WHERE color = 'blue'", Integer.class));
+    }
+
+    @Test
+    void testCompactionKeepsBalances() {
+        jdbcTemplate.update("INSERT INTO socks (color, cotton_part, quantity) VALUES ('red', 10, 2)");
+        repository.append(Map.of(RED, 4));
+        repository.append(Map.of(BLUE, 7));
+        repository.append(Map.of(RED, -6));
+        Map<SocksKey, Integer> before = quantities(repository.balances(List.of(RED, BLUE)));
+
+        assertEquals(2, repository.compact(1));
+        assertEquals(1, repository.compact(1));
+
+        assertFalse(repository.hasMovements());
+        assertEquals(Map.of(RED, 0, BLUE, 7), before);
+        assertEquals(before, quantities(repository.balances(List.of(RED, BLUE))));
+    }
+
+    @Test
+    void testStreamBalancesIncludesTail() {
+        jdbcTemplate.update("INSERT INTO socks (color, cotton_part, quantity) VALUES ('red', 10, 5)");
+        repository.ensureSnapshots(List.of(BLUE));
+        repository.append(Map.of(RED, -2));
+        repository.append(Map.of(BLUE, 7));
+        repository.append(Map.of(new SocksKey("green", 90), 0));
+        jdbcTemplate.update("INSERT INTO socks (color, cotton_part, quantity) VALUES ('red', 50, 4)");
+
+        List<Socks> all = new ArrayList<>();
+        repository.streamBalances(SocksFilter.of(null, null, null, null, null), null, null, 1, all::add);
+        assertEquals(List.of("red/10=3", "blue/10=7", "red/50=4"), all.stream().map(SocksMovementRepositoryTest::describe).toList());
+        assertEquals(repository.sumQuantity(SocksFilter.of(null, null, null, null, null)),
+                all.stream().mapToLong(Socks::getQuantity).sum());
+
+        List<Socks> page = new ArrayList<>();
+        repository.streamBalances(SocksFilter.of("red", null, null, null, null), all.get(0).getId(), 1, 1, page::add);
+        assertEquals(List.of("red/50=4"), page.stream().map(SocksMovementRepositoryTest::describe).toList());
+    }
+
+    private static String describe(Socks socks) {
+        return socks.getColor() + "/" + socks.getCottonPart() + "=" + socks.getQuantity();
+    }
+
+    private static Map<SocksKey, Integer> quantities(Map<SocksKey, Socks> balances) {
+        return balances.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().getQuantity()));
+    }
+}
@@ -0,0 +1,127 @@
+package test.backspark.socks.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.exeptionhandler.ImportJobNotFoundException;
+import test.backspark.socks.exeptionhandler.ImportJobRejectedException;
+import test.backspark.socks.exeptionhandler.InvalidFileFormatException;
+import test.backspark.socks.importer.CsvRejection;
+import test.backspark.socks.importer.CsvRowError;
+import test.backspark.socks.importer.RejectionReport;
+import test.backspark.socks.job.ImportJobRunner;
+import test.backspark.socks.model.dto.ImportJobDto;
+import test.backspark.socks.model.entity.ImportJob;
+import test.backspark.socks.model.entity.ImportJobStatus;
+import test.backspark.socks.model.mapper.ImportJobMapper;
+import test.backspark.socks.repositrory.ImportJobRejectionRepository;
+import test.backspark.socks.repositrory.ImportJobRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportJobServiceImplTest {
+    private static final byte[] CONTENT = "color,cottonPart,quantity\nred,30,10\n".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private ImportJobRepository importJobRepository;
+
+    @Mock
+    private ImportJobRejectionRepository importJobRejectionRepository;
+
+    @Mock
+    private ImportJobRunner importJobRunner;
+
+    @TempDir
+    Path spoolDirectory;
+
+    private ImportJobServiceImpl importJobService;
+
+    @BeforeEach
+    void setUp() {
+        SocksProperties properties = new SocksProperties();
+        properties.getJobs().setSpoolDirectory(spoolDirectory);
+        importJobService = new ImportJobServiceImpl(importJobRepository, importJobRejectionRepository, new ImportJobMapper(), importJobRunner, properties);
+    }
+
+    @Test
+    void testSubmitSpoolsFileAndQueuesJob() throws Exception {
+        when(importJobRepository.save(any(ImportJob.class))).thenAnswer(invocation -> {
+            ImportJob job = invocation.getArgument(0);
+            job.setId(7L);
+            return job;
+        });
+
+        ImportJobDto dto = importJobService.submit(new MockMultipartFile("file", "stock.csv", "text/csv", CONTENT));
+
+        assertEquals(7L, dto.getId());
+        assertEquals(ImportJobStatus.QUEUED, dto.getStatus());
+        assertEquals(CONTENT.length, dto.getFileSize());
+        verify(importJobRunner).submit(7L);
+        try (var spooled = Files.list(spoolDirectory)) {
+            assertArrayEquals(CONTENT, Files.readAllBytes(spooled.findFirst().orElseThrow()));
+        }
+    }
+
+    @Test
+    void testSubmitRejectedWhenQueueIsFull() throws Exception {
+        when(importJobRepository.save(any(ImportJob.class))).thenAnswer(invocation -> {
+            ImportJob job = invocation.getArgument(0);
+            job.setId(7L);
+            return job;
+        });
+        doThrow(new RejectedExecutionException()).when(importJobRunner).submit(7L);
+
+        assertThrows(ImportJobRejectedException.class,
+                () -> importJobService.submit(new MockMultipartFile("file", "stock.csv", "text/csv", CONTENT)));
+
+        verify(importJobRepository).delete(any(ImportJob.class));
+        try (var spooled = Files.list(spoolDirectory)) {
+            assertEquals(0, spooled.count());
+        }
+    }
+
+    @Test
+    void testSubmitRejectsNonCsv() {
+        assertThrows(InvalidFileFormatException.class,
+                () -> importJobService.submit(new MockMultipartFile("file", "stock.txt", "text/plain", CONTENT)));
+
+        verifyNoInteractions(importJobRepository, importJobRunner);
+    }
+
+    @Test
+    void testRejectionsReportCountsDroppedRows() {
+        ImportJob job = new ImportJob();
+        job.setRowsRejected(5);
+        when(importJobRepository.findById(1L)).thenReturn(Optional.of(job));
+        when(importJobRejectionRepository.findRows(1L)).thenReturn(List.of(new CsvRejection(3, CsvRowError.FORMAT, ",,")));
+        when(importJobRejectionRepository.findCounts(1L)).thenReturn(Map.of(CsvRowError.FORMAT, 5L));
+
+        RejectionReport report = importJobService.rejections(1L);
+
+        assertEquals(5, report.total());
+        assertEquals(4, report.dropped());
+    }
+
+    @Test
+    void testGetUnknownJob() {
+        when(importJobRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(ImportJobNotFoundException.class, () -> importJobService.get(1L));
+    }
+}
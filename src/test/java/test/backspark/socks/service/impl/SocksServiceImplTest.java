@@ -1,35 +1,88 @@
 package test.backspark.socks.service.impl;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import test.backspark.socks.cache.SocksQueryCache;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.event.InventoryChangedEvent;
 import test.backspark.socks.exeptionhandler.InvalidFileFormatException;
+import test.backspark.socks.exeptionhandler.InvalidFilterException;
 import test.backspark.socks.exeptionhandler.NotEnoughSocksException;
 import test.backspark.socks.exeptionhandler.SocksNotFoundException;
+import test.backspark.socks.importer.CsvRejection;
+import test.backspark.socks.importer.CsvRowError;
+import test.backspark.socks.importer.ImportStats;
+import test.backspark.socks.importer.LocalCsvFiles;
+import test.backspark.socks.importer.ParallelCsvParser;
+import test.backspark.socks.importer.RejectionCollector;
+import test.backspark.socks.importer.RejectionReport;
+import test.backspark.socks.importer.SocksCsvImporter;
+import test.backspark.socks.inventory.CottonPrefixIndex;
+import test.backspark.socks.inventory.InventoryStore;
+import test.backspark.socks.inventory.ReservationOutcomeEngine;
+import test.backspark.socks.ledger.MovementLedger;
+import test.backspark.socks.metrics.ImportMetrics;
+import test.backspark.socks.model.dto.BatchImportSummary;
+import test.backspark.socks.model.dto.BulkItemResult;
+import test.backspark.socks.model.dto.BulkItemStatus;
+import test.backspark.socks.model.dto.BulkMode;
+import test.backspark.socks.model.dto.BulkMovementResult;
 import test.backspark.socks.model.dto.SocksDto;
+import test.backspark.socks.model.dto.SocksFilter;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.model.dto.SocksTotalDto;
+import test.backspark.socks.model.dto.TotalsGroupBy;
 import test.backspark.socks.model.entity.Socks;
 import test.backspark.socks.model.mapper.SocksMapper;
+import test.backspark.socks.movement.AppliedMovements;
+import test.backspark.socks.movement.MovementResult;
+import test.backspark.socks.movement.StockMovement;
+import test.backspark.socks.movement.StockMovementApplier;
+import test.backspark.socks.repositrory.SocksBulkRepository;
 import test.backspark.socks.repositrory.SocksRepository;
-
+import test.backspark.socks.writebehind.GroupCommitWriter;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -40,15 +93,67 @@ class SocksServiceImplTest {
     @Mock
     private SocksRepository socksRepository;
 
+    @Mock
+    private SocksBulkRepository socksBulkRepository;
+
     @Mock
     private SocksMapper socksMapper;
 
+    @Spy
+    private SocksCsvImporter socksCsvImporter = new SocksCsvImporter(new SocksProperties());
+
+    @Spy
+    private ParallelCsvParser parallelCsvParser = new ParallelCsvParser(new SocksProperties());
+
+    @Mock
+    private LocalCsvFiles localCsvFiles;
+
+    @Spy
+    private SocksProperties socksProperties = new SocksProperties();
+
+    @Spy
+    private SocksQueryCache socksQueryCache = new SocksQueryCache(new SocksProperties());
+
+    @Mock
+    private CottonPrefixIndex cottonPrefixIndex;
+
+    @Mock
+    private InventoryStore inventoryStore;
+
+    @Mock
+    private ReservationOutcomeEngine reservationOutcomeEngine;
+
+    @Mock
+    private GroupCommitWriter groupCommitWriter;
+
+    @Mock
+    private StockMovementApplier stockMovementApplier;
+
+    @Mock
+    private MovementLedger movementLedger;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ImportMetrics importMetrics = new ImportMetrics(meterRegistry);
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private SocksServiceImpl socksService;
 
     @BeforeEach
     void setUp() {
-        Mockito.reset(socksRepository, socksMapper);
+        Mockito.reset(socksRepository, socksBulkRepository, socksMapper, cottonPrefixIndex, inventoryStore, localCsvFiles, reservationOutcomeEngine, groupCommitWriter, stockMovementApplier, movementLedger, eventPublisher, transactionManager);
     }
 
     @Nested
@@ -63,23 +168,13 @@ class SocksServiceImplTest {
         })
         void testIncomeWithDifferentParams(String color, Integer cottonPart, Integer quantity) {
             SocksDto inputDto = new SocksDto(null, color, cottonPart, quantity);
-            Socks existingSocks = new Socks();
-            existingSocks.setColor(color.toLowerCase());
-            existingSocks.setCottonPart(cottonPart);
-            existingSocks.setQuantity(20);
 
-            when(socksRepository.findByColorAndCottonPart(color.toLowerCase(), cottonPart))
-                    .thenReturn(Optional.of(existingSocks));
-
-            Socks updatedSocks = new Socks();
-            updatedSocks.setColor(color.toLowerCase());
-            updatedSocks.setCottonPart(cottonPart);
-            updatedSocks.setQuantity(20 + quantity);
-
-            when(socksRepository.save(any(Socks.class))).thenReturn(updatedSocks);
+            Socks updatedSocks = new Socks(1L, color.toLowerCase(), cottonPart, 20 + quantity);
+            when(socksRepository.incrementQuantity(color.toLowerCase(), cottonPart, quantity))
+                    .thenReturn(updatedSocks);
 
             SocksDto expectedDto = new SocksDto(1L, color.toLowerCase(), cottonPart, 20 + quantity);
-            when(socksMapper.mapToDto(any(Socks.class))).thenReturn(expectedDto);
+            when(socksMapper.mapToDto(updatedSocks)).thenReturn(expectedDto);
 
             SocksDto resultDto = socksService.income(inputDto);
 
@@ -87,40 +182,45 @@ class SocksServiceImplTest {
             assertEquals(cottonPart, resultDto.getCottonPart());
             assertEquals(20 + quantity, resultDto.getQuantity());
 
-            verify(socksRepository).findByColorAndCottonPart(color.toLowerCase(), cottonPart);
-            verify(socksRepository).save(any(Socks.class));
-            verify(socksMapper).mapToDto(any(Socks.class));
+            verify(socksRepository).incrementQuantity(color.toLowerCase(), cottonPart, quantity);
+            verify(eventPublisher).publishEvent(InventoryChangedEvent.of(new SocksKey(color.toLowerCase(), cottonPart), quantity));
+            verify(socksRepository, never()).findByColorAndCottonPart(any(), any());
+            verify(socksRepository, never()).save(any(Socks.class));
         }
 
-        @ParameterizedTest(name = "income new socks: {0}, cottonPart={1}, quantity={2}")
-        @CsvSource({
-                "black, 10, 5",
-                "white, 99, 50"
-        })
-        void testIncomeWhenSocksNotFound(String color, Integer cottonPart, Integer quantity) {
-            SocksDto inputDto = new SocksDto(null, color, cottonPart, quantity);
+        @ParameterizedTest(name = "income normalizes color: {0}")
+        @ValueSource(strings = {"Black", " BLACK ", "black"})
+        void testIncomeNormalizesColor(String color) {
+            SocksDto inputDto = new SocksDto(null, color, 10, 5);
+            Socks created = new Socks(2L, "black", 10, 5);
 
-            when(socksRepository.findByColorAndCottonPart(color.toLowerCase(), cottonPart))
-                    .thenReturn(Optional.empty());
+            when(socksRepository.incrementQuantity("black", 10, 5)).thenReturn(created);
+            when(socksMapper.mapToDto(created)).thenReturn(new SocksDto(2L, "black", 10, 5));
 
-            when(socksRepository.save(any(Socks.class))).thenAnswer(invocation -> {
-                Socks arg = invocation.getArgument(0, Socks.class);
-                arg.setId(2L);
-                return arg;
-            });
+            SocksDto resultDto = socksService.income(inputDto);
 
-            SocksDto expectedDto = new SocksDto(2L, color.toLowerCase(), cottonPart, quantity);
-            when(socksMapper.mapToDto(any(Socks.class))).thenReturn(expectedDto);
+            assertEquals("black", resultDto.getColor());
+            verify(socksRepository).incrementQuantity("black", 10, 5);
+        }
 
-            SocksDto resultDto = socksService.income(inputDto);
+        @Test
+        void testIncomeThroughGroupCommit() {
+            SocksDto committed = new SocksDto(3L, "red", 30, 15);
+            when(groupCommitWriter.isEnabled()).thenReturn(true);
+            when(groupCommitWriter.income(new SocksKey("red", 30), 5)).thenReturn(committed);
 
-            assertEquals(color.toLowerCase(), resultDto.getColor());
-            assertEquals(cottonPart, resultDto.getCottonPart());
-            assertEquals(quantity, resultDto.getQuantity());
+            assertEquals(committed, socksService.income(new SocksDto(null, "Red", 30, 5)));
+            verifyNoInteractions(socksRepository, eventPublisher);
+        }
 
-            verify(socksRepository).findByColorAndCottonPart(color.toLowerCase(), cottonPart);
-            verify(socksRepository).save(any(Socks.class));
-            verify(socksMapper).mapToDto(any(Socks.class));
+        @Test
+        void testIncomeAppendsToLedger() {
+            SocksDto balance = new SocksDto(3L, "red", 30, 15);
+            when(movementLedger.isEnabled()).thenReturn(true);
+            when(movementLedger.income(new SocksKey("red", 30), 5)).thenReturn(balance);
+
+            assertEquals(balance, socksService.income(new SocksDto(null, "Red", 30, 5)));
+            verifyNoInteractions(socksRepository, groupCommitWriter);
         }
     }
 
@@ -135,53 +235,41 @@ class SocksServiceImplTest {
         })
         void testOutcome(String color, Integer cottonPart, Integer startQuantity, Integer outcomeQty) {
             SocksDto inputDto = new SocksDto(null, color, cottonPart, outcomeQty);
-            Socks existing = new Socks();
-            existing.setColor(color.toLowerCase());
-            existing.setCottonPart(cottonPart);
-            existing.setQuantity(startQuantity);
-
-            when(socksRepository.findByColorAndCottonPart(color.toLowerCase(), cottonPart))
-                    .thenReturn(Optional.of(existing));
-
-            Socks afterOutcome = new Socks();
-            afterOutcome.setColor(color.toLowerCase());
-            afterOutcome.setCottonPart(cottonPart);
-            afterOutcome.setQuantity(startQuantity - outcomeQty);
 
-            when(socksRepository.save(any(Socks.class))).thenReturn(afterOutcome);
+            Socks afterOutcome = new Socks(3L, color.toLowerCase(), cottonPart, startQuantity - outcomeQty);
+            when(socksRepository.decrementQuantityIfEnough(color.toLowerCase(), cottonPart, outcomeQty))
+                    .thenReturn(Optional.of(afterOutcome));
 
             SocksDto expectedDto = new SocksDto(3L, color.toLowerCase(), cottonPart, startQuantity - outcomeQty);
-            when(socksMapper.mapToDto(any(Socks.class))).thenReturn(expectedDto);
+            when(socksMapper.mapToDto(afterOutcome)).thenReturn(expectedDto);
 
             SocksDto result = socksService.outcome(inputDto);
 
             assertEquals(startQuantity - outcomeQty, result.getQuantity());
 
-            verify(socksRepository).findByColorAndCottonPart(color.toLowerCase(), cottonPart);
-            verify(socksRepository).save(any(Socks.class));
-            verify(socksMapper).mapToDto(any(Socks.class));
+            verify(socksRepository).decrementQuantityIfEnough(color.toLowerCase(), cottonPart, outcomeQty);
+            verify(eventPublisher).publishEvent(InventoryChangedEvent.of(new SocksKey(color.toLowerCase(), cottonPart), -outcomeQty));
+            verify(socksRepository, never()).existsByColorAndCottonPart(any(), any());
+            verify(socksRepository, never()).save(any(Socks.class));
         }
 
-        @ParameterizedTest(name = "outcome not enough: {0}, cottonPart={1}, starting={2}, outcome={3}")
+        @ParameterizedTest(name = "outcome not enough: {0}, cottonPart={1}, outcome={2}")
         @CsvSource({
-                "red, 30, 5, 10",
-                "blue, 50, 0, 1"
+                "red, 30, 10",
+                "blue, 50, 1"
         })
-        void testOutcomeNotEnough(String color, Integer cottonPart, Integer startQuantity, Integer outcomeQty) {
+        void testOutcomeNotEnough(String color, Integer cottonPart, Integer outcomeQty) {
             SocksDto inputDto = new SocksDto(null, color, cottonPart, outcomeQty);
-            Socks existing = new Socks();
-            existing.setColor(color.toLowerCase());
-            existing.setCottonPart(cottonPart);
-            existing.setQuantity(startQuantity);
 
-            when(socksRepository.findByColorAndCottonPart(color.toLowerCase(), cottonPart))
-                    .thenReturn(Optional.of(existing));
+            when(socksRepository.decrementQuantityIfEnough(color.toLowerCase(), cottonPart, outcomeQty))
+                    .thenReturn(Optional.empty());
+            when(socksRepository.existsByColorAndCottonPart(color.toLowerCase(), cottonPart)).thenReturn(true);
 
             assertThrows(NotEnoughSocksException.class, () -> socksService.outcome(inputDto));
 
-            verify(socksRepository).findByColorAndCottonPart(color.toLowerCase(), cottonPart);
-            verify(socksRepository, never()).save(any(Socks.class));
+            verify(socksRepository).decrementQuantityIfEnough(color.toLowerCase(), cottonPart, outcomeQty);
             verify(socksMapper, never()).mapToDto(any(Socks.class));
+            verifyNoInteractions(eventPublisher);
         }
 
         @ParameterizedTest(name = "outcome not found: {0}, cottonPart={1}, outcome={2}")
@@ -192,15 +280,73 @@ class SocksServiceImplTest {
         void testOutcomeSocksNotFound(String color, Integer cottonPart, Integer outcomeQty) {
             SocksDto inputDto = new SocksDto(null, color, cottonPart, outcomeQty);
 
-            when(socksRepository.findByColorAndCottonPart(color.toLowerCase(), cottonPart))
+            when(socksRepository.decrementQuantityIfEnough(color.toLowerCase(), cottonPart, outcomeQty))
                     .thenReturn(Optional.empty());
+            when(socksRepository.existsByColorAndCottonPart(color.toLowerCase(), cottonPart)).thenReturn(false);
 
             assertThrows(SocksNotFoundException.class, () -> socksService.outcome(inputDto));
 
-            verify(socksRepository).findByColorAndCottonPart(color.toLowerCase(), cottonPart);
-            verify(socksRepository, never()).save(any(Socks.class));
+            verify(socksRepository).existsByColorAndCottonPart(color.toLowerCase(), cottonPart);
             verify(socksMapper, never()).mapToDto(any(Socks.class));
         }
+
+        @Test
+        void testLedgerTakesPrecedenceOverReservationAndStore() {
+            SocksDto balance = new SocksDto(1L, "red", 30, 95);
+            when(movementLedger.isEnabled()).thenReturn(true);
+            when(movementLedger.outcome(new SocksKey("red", 30), 5)).thenReturn(balance);
+
+            assertEquals(balance, socksService.outcome(new SocksDto(null, "Red", 30, 5)));
+            verifyNoInteractions(socksRepository, reservationOutcomeEngine, inventoryStore);
+        }
+
+        @Test
+        void testDelegatesToReservationEngineWhenActive() {
+            SocksDto reserved = new SocksDto(1L, "red", 30, 95);
+            when(reservationOutcomeEngine.isActive()).thenReturn(true);
+            when(reservationOutcomeEngine.outcome(new SocksKey("red", 30), 5)).thenReturn(reserved);
+
+            assertEquals(reserved, socksService.outcome(new SocksDto(null, "Red", 30, 5)));
+            verifyNoInteractions(socksRepository, eventPublisher, inventoryStore);
+        }
+    }
+
+    @Nested
+    @DisplayName("Method outcome with inventory store")
+    class OutcomeWithStoreTests {
+        @BeforeEach
+        void enableStore() {
+            when(inventoryStore.isReady()).thenReturn(true);
+        }
+
+        @Test
+        void testRejectsMissingSocksWithoutDatabase() {
+            when(inventoryStore.quantity("red", 30)).thenReturn(InventoryStore.NOT_FOUND);
+
+            assertThrows(SocksNotFoundException.class, () -> socksService.outcome(new SocksDto(null, "Red", 30, 5)));
+            verifyNoInteractions(socksRepository);
+        }
+
+        @ParameterizedTest(name = "store quantity {0} is rejected without database")
+        @ValueSource(longs = {0, 4})
+        void testRejectsNotEnoughWithoutDatabase(long available) {
+            when(inventoryStore.quantity("red", 30)).thenReturn(available);
+
+            assertThrows(NotEnoughSocksException.class, () -> socksService.outcome(new SocksDto(null, "red", 30, 5)));
+            verifyNoInteractions(socksRepository);
+        }
+
+        @ParameterizedTest(name = "store quantity {0} goes to the database")
+        @ValueSource(longs = {5, 100})
+        void testFallsThroughToDatabase(long available) {
+            Socks afterOutcome = new Socks(1L, "red", 30, 0);
+            when(inventoryStore.quantity("red", 30)).thenReturn(available);
+            when(socksRepository.decrementQuantityIfEnough("red", 30, 5)).thenReturn(Optional.of(afterOutcome));
+
+            socksService.outcome(new SocksDto(null, "red", 30, 5));
+
+            verify(socksRepository).decrementQuantityIfEnough("red", 30, 5);
+        }
     }
 
     @Nested
@@ -219,7 +365,7 @@ class SocksServiceImplTest {
             existing.setCottonPart(10);
             existing.setQuantity(5);
 
-            when(socksRepository.findById(id)).thenReturn(Optional.of(existing));
+            when(socksRepository.findByIdForUpdate(id)).thenReturn(Optional.of(existing));
 
             Socks afterUpdate = new Socks();
             afterUpdate.setId(id);
@@ -238,9 +384,13 @@ class SocksServiceImplTest {
             assertEquals(cottonPart, result.getCottonPart());
             assertEquals(quantity, result.getQuantity());
 
-            verify(socksRepository).findById(id);
+            verify(socksRepository).findByIdForUpdate(id);
             verify(socksRepository).save(any(Socks.class));
             verify(socksMapper).mapToDto(any(Socks.class));
+            verify(eventPublisher).publishEvent(new InventoryChangedEvent(Map.of(
+                    new SocksKey("oldColor", 10), -5L,
+                    new SocksKey(color.toLowerCase(), cottonPart), (long) quantity),
+                    Set.of(new SocksKey("oldColor", 10))));
         }
 
         @ParameterizedTest(name = "update not found: id={0}, color={1}, cottonPart={2}, quantity={3}")
@@ -251,14 +401,45 @@ class SocksServiceImplTest {
         void testUpdateNotFound(Long id, String color, Integer cottonPart, Integer quantity) {
             SocksDto inputDto = new SocksDto(null, color, cottonPart, quantity);
 
-            when(socksRepository.findById(id)).thenReturn(Optional.empty());
+            when(socksRepository.findByIdForUpdate(id)).thenReturn(Optional.empty());
 
             assertThrows(SocksNotFoundException.class, () -> socksService.update(id, inputDto));
 
-            verify(socksRepository).findById(id);
+            verify(socksRepository).findByIdForUpdate(id);
             verify(socksRepository, never()).save(any(Socks.class));
             verify(socksMapper, never()).mapToDto(any(Socks.class));
         }
+
+        @Test
+        @DisplayName("in ledger mode the tails of both keys are cancelled and counted in the deltas")
+        void testUpdateCancelsLedgerTails() {
+            SocksKey oldKey = new SocksKey("red", 30);
+            SocksKey newKey = new SocksKey("blue", 50);
+            when(socksRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(new Socks(1L, "red", 30, 5)));
+            when(movementLedger.isEnabled()).thenReturn(true);
+            Map<SocksKey, Long> tails = Map.of(oldKey, 3L, newKey, -2L);
+            when(movementLedger.lockTails(List.of(oldKey, newKey))).thenReturn(tails);
+
+            socksService.update(1L, new SocksDto(null, "Blue", 50, 10));
+
+            verify(movementLedger).cancel(tails);
+            verify(eventPublisher).publishEvent(new InventoryChangedEvent(Map.of(oldKey, -8L, newKey, 12L), Set.of(oldKey)));
+        }
+
+        @Test
+        @DisplayName("in reserve mode pending reservations of both keys are written before the row is locked")
+        void testUpdateWaitsForPendingReservations() {
+            Socks existing = new Socks(1L, "red", 30, 10);
+            when(reservationOutcomeEngine.isActive()).thenReturn(true);
+            when(socksRepository.findById(1L)).thenReturn(Optional.of(existing));
+            when(socksRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(existing));
+
+            socksService.update(1L, new SocksDto(null, "Blue", 50, 3));
+
+            InOrder inOrder = inOrder(reservationOutcomeEngine, socksRepository);
+            inOrder.verify(reservationOutcomeEngine).awaitPersisted(List.of(new SocksKey("red", 30), new SocksKey("blue", 50)));
+            inOrder.verify(socksRepository).findByIdForUpdate(1L);
+        }
     }
 
     @Nested
@@ -277,12 +458,11 @@ class SocksServiceImplTest {
             MockMultipartFile file = new MockMultipartFile("file", fileName,
                     "text/csv", fileContent.getBytes());
 
-            when(socksRepository.save(any(Socks.class))).thenAnswer(invocation -> {
-                Socks arg = invocation.getArgument(0, Socks.class);
-                if (arg.getId() == null) {
-                    arg.setId(new Random().nextLong());
-                }
-                return arg;
+            when(socksBulkRepository.upsertQuantities(ArgumentMatchers.anyMap())).thenAnswer(invocation -> {
+                Map<SocksKey, Integer> chunk = invocation.getArgument(0);
+                return chunk.entrySet().stream()
+                        .map(e -> new Socks(new Random().nextLong(), e.getKey().color(), e.getKey().cottonPart(), e.getValue()))
+                        .toList();
             });
 
             when(socksMapper.mapToDto(any(Socks.class))).thenAnswer(inv -> {
@@ -293,7 +473,58 @@ class SocksServiceImplTest {
             List<SocksDto> result = socksService.batchIncome(file);
             assertEquals(expectedCount, result.size());
 
-            verify(socksRepository, atLeast(expectedCount)).save(any(Socks.class));
+            verify(socksBulkRepository).upsertQuantities(ArgumentMatchers.anyMap());
+            verify(socksRepository, never()).save(any(Socks.class));
+        }
+
+        @Test
+        void testBatchIncomeAggregatesDuplicateKeys() throws Exception {
+            MockMultipartFile file = new MockMultipartFile("file", "duplicates.csv", "text/csv",
+                    "color,cottonPart,quantity\nred,30,10\nRed ,30,5\nblue,50,20".getBytes());
+
+            when(socksBulkRepository.upsertQuantities(ArgumentMatchers.anyMap())).thenReturn(List.of());
+
+            socksService.batchIncome(file);
+
+            verify(socksBulkRepository).upsertQuantities(Map.of(
+                    new SocksKey("red", 30), 15,
+                    new SocksKey("blue", 50), 20));
+            verify(parallelCsvParser).parse(any(FileChannel.class));
+        }
+
+        @Test
+        @DisplayName("chunks follow one global key order, so concurrent imports lock rows in the same sequence")
+        void testBatchIncomeChunksInGlobalKeyOrder() throws Exception {
+            socksProperties.getBatch().setChunkSize(2);
+            MockMultipartFile file = new MockMultipartFile("file", "order.csv", "text/csv",
+                    "color,cottonPart,quantity\nred,30,1\nblue,50,2\nred,10,3\nblue,20,4\ngreen,5,5".getBytes());
+            List<Map<SocksKey, Integer>> chunks = new ArrayList<>();
+            when(socksBulkRepository.upsertQuantities(ArgumentMatchers.anyMap())).thenAnswer(invocation -> {
+                chunks.add(Map.copyOf(invocation.getArgument(0)));
+                return List.of();
+            });
+
+            socksService.batchIncome(file);
+
+            assertEquals(List.of(
+                    Map.of(new SocksKey("blue", 20), 4, new SocksKey("blue", 50), 2),
+                    Map.of(new SocksKey("green", 5), 5, new SocksKey("red", 10), 3),
+                    Map.of(new SocksKey("red", 30), 1)), chunks);
+        }
+
+        @Test
+        void testBatchIncomeReportListsRejectedRows() {
+            MockMultipartFile file = new MockMultipartFile("file", "partial.csv", "text/csv",
+                    "color,cottonPart,quantity\nred,30,10\n,,\nred,x,1\ngreen,20,5".getBytes());
+            when(socksBulkRepository.upsertQuantities(ArgumentMatchers.anyMap())).thenReturn(List.of());
+
+            RejectionReport report = socksService.batchIncomeReport(file);
+
+            assertEquals(List.of(
+                    new CsvRejection(3, CsvRowError.FORMAT, ",,"),
+                    new CsvRejection(4, CsvRowError.NUMBER, "red,x,1")), report.rows());
+            assertEquals(0, report.dropped());
+            verifyNoInteractions(socksMapper);
         }
 
         @ParameterizedTest(name = "batchIncome invalid file: {0}")
@@ -303,7 +534,198 @@ class SocksServiceImplTest {
                     "text/plain", new byte[0]);
 
             assertThrows(InvalidFileFormatException.class, () -> socksService.batchIncome(file));
-            verifyNoInteractions(socksRepository);
+            verifyNoInteractions(socksRepository, socksBulkRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("Method streamBatchIncome")
+    class StreamBatchIncomeTests {
+        @Test
+        void testStreamBatchIncome() {
+            String content = "color,cottonPart,quantity\nred,30,10\n,,\nred,30,5\nblue,50,20";
+            when(socksBulkRepository.upsertQuantities(ArgumentMatchers.anyMap())).thenAnswer(invocation -> {
+                Map<SocksKey, Integer> chunk = invocation.getArgument(0);
+                return chunk.entrySet().stream()
+                        .map(e -> new Socks(1L, e.getKey().color(), e.getKey().cottonPart(), e.getValue()))
+                        .toList();
+            });
+
+            BatchImportSummary summary = socksService.streamBatchIncome(
+                    new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+
+            assertEquals(new BatchImportSummary(4, 3, 1, 1, 2, 35, new RejectionReport(
+                    List.of(new CsvRejection(3, CsvRowError.FORMAT, ",,")), Map.of(CsvRowError.FORMAT, 1L), 1)), summary);
+            verify(socksBulkRepository).upsertQuantities(Map.of(
+                    new SocksKey("red", 30), 15,
+                    new SocksKey("blue", 50), 20));
+            assertEquals(1, meterRegistry.get("socks.import.rows").tags("source", "stream", "result", "rejected").counter().count());
+            verify(transactionManager).commit(any());
+            verifyNoInteractions(socksRepository, socksMapper);
+        }
+
+        @Test
+        @DisplayName("each chunk is committed and published on its own")
+        void testStreamBatchIncomeCommitsPerChunk() throws Exception {
+            doAnswer(invocation -> {
+                Consumer<Map<SocksKey, Integer>> chunks = invocation.getArgument(2);
+                chunks.accept(Map.of(new SocksKey("red", 30), 1, new SocksKey("blue", 50), 2));
+                chunks.accept(Map.of(new SocksKey("green", 5), 3));
+                return new ImportStats(3, 3, 0);
+            }).when(socksCsvImporter).importCsv(any(BufferedReader.class), any(RejectionCollector.class), any());
+            when(socksBulkRepository.upsertQuantities(ArgumentMatchers.anyMap())).thenReturn(List.of());
+
+            BatchImportSummary summary = socksService.streamBatchIncome(new ByteArrayInputStream(new byte[0]));
+
+            assertEquals(2, summary.getChunks());
+            verify(transactionManager, times(2)).commit(any());
+            verify(eventPublisher).publishEvent(new InventoryChangedEvent(Map.of(new SocksKey("red", 30), 1L, new SocksKey("blue", 50), 2L)));
+            verify(eventPublisher).publishEvent(new InventoryChangedEvent(Map.of(new SocksKey("green", 5), 3L)));
+        }
+
+        @Test
+        void testStreamBatchIncomeWithoutHeader() {
+            assertThrows(InvalidFileFormatException.class,
+                    () -> socksService.streamBatchIncome(new ByteArrayInputStream(new byte[0])));
+            verifyNoInteractions(socksBulkRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("Method localBatchIncome")
+    class LocalBatchIncomeTests {
+        @Test
+        void testLocalBatchIncome(@TempDir Path directory) throws Exception {
+            Path file = Files.writeString(directory.resolve("stock.csv"),
+                    "color,cottonPart,quantity\nred,30,10\n,,\nred,30,5\nblue,50,20\n");
+            when(localCsvFiles.open("stock.csv")).thenReturn(FileChannel.open(file, StandardOpenOption.READ));
+            when(socksBulkRepository.upsertQuantities(ArgumentMatchers.anyMap())).thenReturn(List.of(
+                    new Socks(1L, "red", 30, 15), new Socks(2L, "blue", 50, 20)));
+
+            BatchImportSummary summary = socksService.localBatchIncome("stock.csv");
+
+            assertEquals(new BatchImportSummary(4, 3, 1, 1, 2, 35, new RejectionReport(
+                    List.of(new CsvRejection(3, CsvRowError.FORMAT, ",,")), Map.of(CsvRowError.FORMAT, 1L), 1)), summary);
+            verify(socksBulkRepository).upsertQuantities(Map.of(
+                    new SocksKey("red", 30), 15,
+                    new SocksKey("blue", 50), 20));
+            verify(eventPublisher).publishEvent(new InventoryChangedEvent(Map.of(
+                    new SocksKey("red", 30), 15L,
+                    new SocksKey("blue", 50), 20L)));
+            verify(transactionManager).commit(any());
+        }
+
+        @Test
+        void testLocalBatchIncomeRejectedPath() {
+            when(localCsvFiles.open("../etc/passwd.csv")).thenThrow(new InvalidFileFormatException("Файл не найден в каталоге импорта"));
+
+            assertThrows(InvalidFileFormatException.class, () -> socksService.localBatchIncome("../etc/passwd.csv"));
+            verifyNoInteractions(socksBulkRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("Methods bulkIncome and bulkOutcome")
+    class BulkMovementTests {
+        @Test
+        void testBulkIncomeAppliesAllItems() {
+            SocksDto red = new SocksDto(1L, "red", 30, 15);
+            SocksDto blue = new SocksDto(2L, "blue", 50, 4);
+            when(stockMovementApplier.apply(anyList(), eq(true))).thenReturn(new AppliedMovements(
+                    List.of(MovementResult.success(red), MovementResult.success(blue)),
+                    Map.of(new SocksKey("red", 30), 5L, new SocksKey("blue", 50), 4L)));
+
+            BulkMovementResult result = socksService.bulkIncome(
+                    List.of(new SocksDto(null, "Red", 30, 5), new SocksDto(null, "blue", 50, 4)), BulkMode.ALL_OR_NOTHING);
+
+            assertTrue(result.isApplied());
+            assertEquals(2, result.getSucceeded());
+            assertEquals(red, result.getItems().get(0).getSocks());
+            verify(stockMovementApplier).apply(List.of(
+                    new StockMovement(new SocksKey("red", 30), 5),
+                    new StockMovement(new SocksKey("blue", 50), 4)), true);
+            verify(eventPublisher).publishEvent(new InventoryChangedEvent(
+                    Map.of(new SocksKey("red", 30), 5L, new SocksKey("blue", 50), 4L)));
+        }
+
+        @Test
+        void testAllOrNothingRejectsInvalidItemWithoutDatabase() {
+            BulkMovementResult result = socksService.bulkOutcome(
+                    List.of(new SocksDto(null, "red", 30, 5), new SocksDto(null, "red", 130, 5)), BulkMode.ALL_OR_NOTHING);
+
+            assertFalse(result.isApplied());
+            assertEquals(0, result.getSucceeded());
+            assertEquals(1, result.getFailed());
+            assertEquals(BulkItemStatus.SKIPPED, result.getItems().get(0).getStatus());
+            assertEquals(BulkItemStatus.INVALID, result.getItems().get(1).getStatus());
+            verifyNoInteractions(stockMovementApplier, eventPublisher);
+        }
+
+        @Test
+        void testBlankColorIsInvalid() {
+            when(stockMovementApplier.apply(List.of(), false)).thenReturn(new AppliedMovements(List.of(), Map.of()));
+
+            BulkMovementResult result = socksService.bulkIncome(
+                    List.of(new SocksDto(null, "  ", 30, 5), new SocksDto(null, null, 30, 5)), BulkMode.BEST_EFFORT);
+
+            assertEquals(List.of(BulkItemStatus.INVALID, BulkItemStatus.INVALID),
+                    result.getItems().stream().map(BulkItemResult::getStatus).toList());
+            assertEquals("Неверно указан цвет", result.getItems().get(0).getMessage());
+            verify(stockMovementApplier).apply(List.of(), false);
+        }
+
+        @Test
+        void testAllOrNothingSkipsSuccessfulItemsWhenOneFails() {
+            when(stockMovementApplier.apply(anyList(), eq(true))).thenReturn(new AppliedMovements(List.of(
+                    MovementResult.success(new SocksDto(1L, "red", 30, 0)),
+                    MovementResult.failure(new NotEnoughSocksException("Носков не хватает на складе"))), Map.of()));
+
+            BulkMovementResult result = socksService.bulkOutcome(
+                    List.of(new SocksDto(null, "red", 30, 5), new SocksDto(null, "red", 30, 5)), BulkMode.ALL_OR_NOTHING);
+
+            assertFalse(result.isApplied());
+            assertEquals(BulkItemStatus.SKIPPED, result.getItems().get(0).getStatus());
+            assertEquals(BulkItemStatus.NOT_ENOUGH, result.getItems().get(1).getStatus());
+            verifyNoInteractions(eventPublisher);
+        }
+
+        @Test
+        void testBestEffortReportsEachItem() {
+            when(stockMovementApplier.apply(anyList(), eq(false))).thenReturn(new AppliedMovements(List.of(
+                    MovementResult.success(new SocksDto(1L, "red", 30, 5)),
+                    MovementResult.failure(new SocksNotFoundException("Носки не найдены"))),
+                    Map.of(new SocksKey("red", 30), -5L)));
+
+            BulkMovementResult result = socksService.bulkOutcome(List.of(
+                    new SocksDto(null, "red", 30, 5),
+                    new SocksDto(null, "green", 30, 1),
+                    new SocksDto(null, "red", 30, null)), BulkMode.BEST_EFFORT);
+
+            assertTrue(result.isApplied());
+            assertEquals(1, result.getSucceeded());
+            assertEquals(2, result.getFailed());
+            assertEquals(List.of(BulkItemStatus.OK, BulkItemStatus.NOT_FOUND, BulkItemStatus.INVALID),
+                    result.getItems().stream().map(BulkItemResult::getStatus).toList());
+            verify(stockMovementApplier).apply(List.of(
+                    new StockMovement(new SocksKey("red", 30), -5),
+                    new StockMovement(new SocksKey("green", 30), -1)), false);
+            verify(eventPublisher).publishEvent(new InventoryChangedEvent(Map.of(new SocksKey("red", 30), -5L)));
+        }
+
+        @Test
+        @DisplayName("in reserve mode bulk outcomes reserve from the store instead of locking rows")
+        void testBulkOutcomeGoesThroughReservationEngine() {
+            SocksDto red = new SocksDto(1L, "red", 30, 5);
+            when(reservationOutcomeEngine.isActive()).thenReturn(true);
+            when(reservationOutcomeEngine.outcomeAll(anyList(), eq(true)))
+                    .thenReturn(new AppliedMovements(List.of(MovementResult.success(red)), Map.of()));
+
+            BulkMovementResult result = socksService.bulkOutcome(List.of(new SocksDto(null, "Red", 30, 5)), BulkMode.ALL_OR_NOTHING);
+
+            assertTrue(result.isApplied());
+            assertEquals(red, result.getItems().get(0).getSocks());
+            verify(reservationOutcomeEngine).outcomeAll(List.of(new StockMovement(new SocksKey("red", 30), -5)), true);
+            verifyNoInteractions(stockMovementApplier, eventPublisher);
         }
     }
 
@@ -318,37 +740,201 @@ class SocksServiceImplTest {
                 "yellow, , , 20, 40, , "
         })
         void testGetSocksAmountByFilter(String color, String operator, Integer cottonPart, Integer minCottonPart, Integer maxCottonPart, String sortBy, String sortDirection) {
-            List<Socks> socksList = new ArrayList<>();
-            Socks s1 = new Socks();
-            s1.setQuantity(10);
-            Socks s2 = new Socks();
-            s2.setQuantity(5);
-            Socks s3 = new Socks();
-            s3.setQuantity(7);
-            socksList.add(s1);
-            socksList.add(s2);
-            socksList.add(s3);
-
-            when(socksRepository.findAll(
-                    ArgumentMatchers.<Specification<Socks>>any(),
-                    ArgumentMatchers.<Sort>any()
-            )).thenReturn(socksList);
-            Integer result = socksService.getSocksAmountByFilter(color, operator, cottonPart, minCottonPart, maxCottonPart, sortBy, sortDirection);
-
-            assertEquals(10 + 5 + 7, result);
-            verify(socksRepository).findAll(any(Specification.class), any(Sort.class));
+            when(socksRepository.sumQuantity(ArgumentMatchers.<Specification<Socks>>any())).thenReturn(10L + 5L + 7L);
+
+            Long result = socksService.getSocksAmountByFilter(color, operator, cottonPart, minCottonPart, maxCottonPart, sortBy, sortDirection);
+
+            assertEquals(10L + 5L + 7L, result);
+            verify(socksRepository).sumQuantity(any(Specification.class));
+            verify(socksRepository, never()).findAll(any(Specification.class), any(Sort.class));
         }
 
         @ParameterizedTest(name = "getSocksAmountByFilter with empty result: color={0}")
         @ValueSource(strings = {"red", "blue"})
         void testGetSocksAmountByFilterEmpty(String color) {
-            when(socksRepository.findAll(
-                    ArgumentMatchers.<Specification<Socks>>any(),
-                    ArgumentMatchers.<Sort>any())).thenReturn(Collections.emptyList());
+            when(socksRepository.sumQuantity(ArgumentMatchers.<Specification<Socks>>any())).thenReturn(0L);
 
-            Integer result = socksService.getSocksAmountByFilter(color, "eq", 50, null, null, "quantity", "desc");
-            assertEquals(0, result);
-            verify(socksRepository).findAll(any(Specification.class), any(Sort.class));
+            Long result = socksService.getSocksAmountByFilter(color, "eq", 50, null, null, "quantity", "desc");
+            assertEquals(0L, result);
+            verify(socksRepository).sumQuantity(any(Specification.class));
+        }
+
+        @Test
+        @DisplayName("repeated filter is served from the cache until a matching write")
+        void testGetSocksAmountByFilterCached() {
+            when(socksRepository.sumQuantity(ArgumentMatchers.<Specification<Socks>>any())).thenReturn(7L, 12L);
+
+            assertEquals(7L, socksService.getSocksAmountByFilter("red", "moreThan", 30, null, null, null, null));
+            assertEquals(7L, socksService.getSocksAmountByFilter(" RED", "moreThan", 30, null, null, "quantity", "asc"));
+            verify(socksRepository, times(1)).sumQuantity(any(Specification.class));
+
+            socksQueryCache.onInventoryChanged(InventoryChangedEvent.of(new SocksKey("red", 40), 5));
+
+            assertEquals(12L, socksService.getSocksAmountByFilter("red", "moreThan", 30, null, null, null, null));
+            verify(socksRepository, times(2)).sumQuantity(any(Specification.class));
+        }
+
+        @Test
+        @DisplayName("sum above Integer.MAX_VALUE is returned as is")
+        void testGetSocksAmountByFilterBeyondInt() {
+            when(socksRepository.sumQuantity(ArgumentMatchers.<Specification<Socks>>any())).thenReturn(3_000_000_000L);
+
+            assertEquals(3_000_000_000L, socksService.getSocksAmountByFilter(null, null, null, null, null, null, null));
+        }
+
+        @Test
+        @DisplayName("ready prefix index answers without a database query")
+        void testGetSocksAmountByFilterFromIndex() {
+            when(cottonPrefixIndex.isReady()).thenReturn(true);
+            when(cottonPrefixIndex.sum(SocksFilter.of("red", "lessThan", 50, null, null))).thenReturn(42L);
+
+            assertEquals(42L, socksService.getSocksAmountByFilter("Red", "lessThan", 50, null, null, null, null));
+            verifyNoInteractions(socksRepository);
+        }
+
+        @Test
+        @DisplayName("ledger mode sums the snapshot together with the uncompacted tail")
+        void testGetSocksAmountByFilterFromLedger() {
+            when(movementLedger.isEnabled()).thenReturn(true);
+            when(movementLedger.sumQuantity(SocksFilter.of("red", "equal", 30, null, null))).thenReturn(17L);
+
+            assertEquals(17L, socksService.getSocksAmountByFilter("red", "equal", 30, null, null, null, null));
+            verifyNoInteractions(socksRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("Method getSocksAmountsByFilters")
+    class GetSocksAmountsByFiltersTests {
+        @Test
+        @DisplayName("all filters are normalized and answered by one database query")
+        void testGetSocksAmountsByFilters() {
+            List<SocksFilter> expected = List.of(
+                    new SocksFilter("red", "moreThan", 30, null, null),
+                    new SocksFilter(null, null, null, 10, 20));
+            when(socksBulkRepository.sumQuantities(expected)).thenReturn(List.of(12L, 40L));
+
+            List<Long> result = socksService.getSocksAmountsByFilters(List.of(
+                    new SocksFilter(" Red", "moreThan", 30, null, null),
+                    new SocksFilter(null, "lessThan", null, 10, 20)));
+
+            assertEquals(List.of(12L, 40L), result);
+            verify(socksBulkRepository, times(1)).sumQuantities(anyList());
+            verifyNoInteractions(socksRepository);
+        }
+
+        @Test
+        @DisplayName("ready prefix index answers without a database query")
+        void testGetSocksAmountsByFiltersFromIndex() {
+            when(cottonPrefixIndex.isReady()).thenReturn(true);
+            when(cottonPrefixIndex.sum(SocksFilter.of("red", "equal", 30, null, null))).thenReturn(5L);
+            when(cottonPrefixIndex.sum(SocksFilter.of("blue", null, null, null, null))).thenReturn(9L);
+
+            assertEquals(List.of(5L, 9L), socksService.getSocksAmountsByFilters(List.of(
+                    new SocksFilter("red", "equal", 30, null, null),
+                    new SocksFilter("blue", null, null, null, null))));
+            verifyNoInteractions(socksBulkRepository);
+        }
+
+        @Test
+        @DisplayName("invalid operator is reported with the filter number")
+        void testGetSocksAmountsByFiltersInvalidOperator() {
+            List<SocksFilter> filters = List.of(
+                    new SocksFilter("red", "equal", 30, null, null),
+                    new SocksFilter("red", "eq", 30, null, null));
+
+            InvalidFilterException exception = assertThrows(InvalidFilterException.class, () -> socksService.getSocksAmountsByFilters(filters));
+            assertEquals("Неверно указан оператор в фильтре №2", exception.getMessage());
+            verifyNoInteractions(socksBulkRepository);
+        }
+
+        @Test
+        @DisplayName("too many filters are rejected")
+        void testGetSocksAmountsByFiltersTooMany() {
+            socksProperties.getBatchQuery().setMaxFilters(1);
+            List<SocksFilter> filters = List.of(
+                    new SocksFilter("red", null, null, null, null),
+                    new SocksFilter("blue", null, null, null, null));
+
+            assertThrows(InvalidFilterException.class, () -> socksService.getSocksAmountsByFilters(filters));
+            verifyNoInteractions(socksBulkRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("Method getSocksTotals")
+    class GetSocksTotalsTests {
+        @ParameterizedTest(name = "totals grouped by {0}")
+        @EnumSource(TotalsGroupBy.class)
+        void testGetSocksTotals(TotalsGroupBy groupBy) {
+            List<SocksTotalDto> totals = List.of(new SocksTotalDto("red", null, null, 22));
+            when(socksRepository.totals(ArgumentMatchers.<Specification<Socks>>any(), eq(groupBy), eq(10))).thenReturn(totals);
+
+            assertEquals(totals, socksService.getSocksTotals(SocksFilter.of("red", "moreThan", 20, null, null), groupBy, 10));
+            verify(movementLedger, never()).totals(any(), any(), anyInt());
+        }
+
+        @Test
+        @DisplayName("ledger mode groups the snapshot together with the uncompacted tail")
+        void testGetSocksTotalsFromLedger() {
+            SocksFilter filter = SocksFilter.of("red", null, null, null, null);
+            List<SocksTotalDto> totals = List.of(new SocksTotalDto("red", 30, 39, 17));
+            when(movementLedger.isEnabled()).thenReturn(true);
+            when(movementLedger.totals(filter, TotalsGroupBy.COLOR_AND_COTTON_PART, 10)).thenReturn(totals);
+
+            assertEquals(totals, socksService.getSocksTotals(filter, TotalsGroupBy.COLOR_AND_COTTON_PART, 10));
+            verifyNoInteractions(socksRepository);
+        }
+
+        @ParameterizedTest(name = "totals reject width {0}")
+        @ValueSource(ints = {0, -1})
+        void testGetSocksTotalsInvalidWidth(int bucketWidth) {
+            SocksFilter filter = SocksFilter.of(null, null, null, null, null);
+
+            assertThrows(InvalidFilterException.class, () -> socksService.getSocksTotals(filter, TotalsGroupBy.COTTON_PART, bucketWidth));
+            verifyNoInteractions(socksRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("Method streamSocks")
+    class StreamSocksTests {
+        @Test
+        @DisplayName("rows are mapped one by one and the cursor is closed")
+        void testStreamSocks() {
+            Socks red = new Socks(1L, "red", 30, 10);
+            Socks blue = new Socks(2L, "blue", 50, 5);
+            AtomicBoolean closed = new AtomicBoolean();
+            when(socksRepository.streamByFilter(ArgumentMatchers.<Specification<Socks>>any(), eq(0L), eq(100), eq(1000)))
+                    .thenReturn(Stream.of(red, blue).onClose(() -> closed.set(true)));
+            when(socksMapper.mapToDto(red)).thenReturn(new SocksDto(1L, "red", 30, 10));
+            when(socksMapper.mapToDto(blue)).thenReturn(new SocksDto(2L, "blue", 50, 5));
+
+            List<SocksDto> received = new ArrayList<>();
+            socksService.streamSocks(SocksFilter.of("red", null, null, null, null), 0L, 100, received::add);
+
+            assertEquals(List.of(new SocksDto(1L, "red", 30, 10), new SocksDto(2L, "blue", 50, 5)), received);
+            assertTrue(closed.get());
+        }
+
+        @Test
+        @DisplayName("ledger mode streams the snapshot together with the uncompacted tail")
+        @SuppressWarnings("unchecked")
+        void testStreamSocksFromLedger() {
+            Socks red = new Socks(1L, "red", 30, 12);
+            SocksFilter filter = SocksFilter.of("red", null, null, null, null);
+            when(movementLedger.isEnabled()).thenReturn(true);
+            doAnswer(invocation -> {
+                ((Consumer<Socks>) invocation.getArgument(4)).accept(red);
+                return null;
+            }).when(movementLedger).streamBalances(eq(filter), eq(0L), eq(100), eq(1000), any());
+            when(socksMapper.mapToDto(red)).thenReturn(new SocksDto(1L, "red", 30, 12));
+
+            List<SocksDto> received = new ArrayList<>();
+            socksService.streamSocks(filter, 0L, 100, received::add);
+
+            assertEquals(List.of(new SocksDto(1L, "red", 30, 12)), received);
+            verifyNoInteractions(socksRepository);
         }
     }
 }
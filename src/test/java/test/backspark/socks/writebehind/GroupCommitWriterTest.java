@@ -0,0 +1,159 @@
+package test.backspark.socks.writebehind;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import test.backspark.socks.config.SocksProperties;
+import test.backspark.socks.event.InventoryChangedEvent;
+import test.backspark.socks.exeptionhandler.NotEnoughSocksException;
+import test.backspark.socks.exeptionhandler.SocksNotFoundException;
+import test.backspark.socks.model.dto.SocksDto;
+import test.backspark.socks.model.dto.SocksKey;
+import test.backspark.socks.ledger.MovementLedger;
+import test.backspark.socks.model.entity.Socks;
+import test.backspark.socks.movement.StockMovementApplier;
+import test.backspark.socks.repositrory.SocksBulkRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GroupCommitWriterTest {
+    private static final SocksKey RED = new SocksKey("red", 30);
+    private static final SocksKey BLUE = new SocksKey("blue", 50);
+
+    @Mock
+    private SocksBulkRepository socksBulkRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private GroupCommitWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        SocksProperties properties = new SocksProperties();
+        properties.getWriteBehind().setEnabled(true);
+        properties.getWriteBehind().setFlushInterval(Duration.ofMillis(50));
+        writer = new GroupCommitWriter(properties, new StockMovementApplier(socksBulkRepository, new MovementLedger(properties, null, eventPublisher)), transactionManager, eventPublisher);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.shutdown();
+    }
+
+    @Test
+    void testCoalescesMovementsIntoOneUpsert() {
+        when(socksBulkRepository.lockStock(any())).thenReturn(Map.of(RED, new Socks(1L, "red", 30, 10)));
+        when(socksBulkRepository.upsertQuantities(anyMap()))
+                .thenReturn(List.of(new Socks(1L, "red", 30, 12), new Socks(2L, "blue", 50, 4)));
+
+        List<CompletableFuture<SocksDto>> results = flush(movement(RED, 5), movement(RED, -3), movement(BLUE, 4));
+
+        assertEquals(new SocksDto(1L, "red", 30, 15), results.get(0).join());
+        assertEquals(new SocksDto(1L, "red", 30, 12), results.get(1).join());
+        assertEquals(new SocksDto(2L, "blue", 50, 4), results.get(2).join());
+        verify(socksBulkRepository).upsertQuantities(Map.of(RED, 2, BLUE, 4));
+        verify(transactionManager).commit(any());
+        verify(eventPublisher).publishEvent(new InventoryChangedEvent(Map.of(RED, 2L, BLUE, 4L)));
+    }
+
+    @Test
+    void testRejectsOnlyFailingMovements() {
+        when(socksBulkRepository.lockStock(any())).thenReturn(Map.of(RED, new Socks(1L, "red", 30, 10)));
+
+        List<CompletableFuture<SocksDto>> results = flush(movement(RED, -8), movement(RED, -3), movement(BLUE, -1));
+
+        assertEquals(new SocksDto(1L, "red", 30, 2), results.get(0).join());
+        assertCause(NotEnoughSocksException.class, results.get(1));
+        assertCause(SocksNotFoundException.class, results.get(2));
+        verify(socksBulkRepository).upsertQuantities(Map.of(RED, -8));
+    }
+
+    @Test
+    void testFailsWholeBatchWhenTransactionFails() {
+        when(socksBulkRepository.lockStock(any())).thenThrow(new IllegalStateException("connection lost"));
+
+        List<CompletableFuture<SocksDto>> results = flush(movement(RED, 1), movement(BLUE, 1));
+
+        results.forEach(result -> assertCause(IllegalStateException.class, result));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void testCallerWaitsForBackgroundCommit() {
+        when(socksBulkRepository.upsertQuantities(anyMap())).thenReturn(List.of(new Socks(5L, "red", 30, 7)));
+        writer.start();
+
+        assertEquals(new SocksDto(5L, "red", 30, 7), writer.income(RED, 7));
+        assertThrows(SocksNotFoundException.class, () -> writer.outcome(BLUE, 1));
+    }
+
+    @Test
+    void testPublishesChangesBeforeAnsweringCallers() {
+        when(socksBulkRepository.upsertQuantities(anyMap())).thenReturn(List.of(new Socks(5L, "red", 30, 7)));
+        GroupCommitWriter.Movement movement = movement(RED, 7);
+        // исключение из ответа поглотил бы flush, поэтому состояние запоминается и проверяется после
+        AtomicReference<Boolean> doneWhenPublished = new AtomicReference<>();
+        doAnswer(invocation -> {
+            doneWhenPublished.set(movement.result().isDone());
+            return null;
+        }).when(eventPublisher).publishEvent(any(Object.class));
+
+        assertEquals(new SocksDto(5L, "red", 30, 7), flush(movement).get(0).join());
+        assertEquals(Boolean.FALSE, doneWhenPublished.get());
+        verify(eventPublisher).publishEvent(new InventoryChangedEvent(Map.of(RED, 7L)));
+    }
+
+    @Test
+    void testFlusherSurvivesUnexpectedFailure() {
+        when(socksBulkRepository.lockStock(any())).thenThrow(new AssertionError("corrupted batch")).thenReturn(Map.of());
+        when(socksBulkRepository.upsertQuantities(anyMap())).thenReturn(List.of(new Socks(5L, "red", 30, 7)));
+        writer.start();
+
+        assertThrows(CompletionException.class, () -> writer.income(RED, 1));
+        assertEquals(new SocksDto(5L, "red", 30, 7), writer.income(RED, 7));
+    }
+
+    @Test
+    void testRejectsMovementsAfterShutdown() throws InterruptedException {
+        writer.start();
+        writer.shutdown();
+
+        assertThrows(IllegalStateException.class, () -> writer.income(RED, 1));
+        verifyNoInteractions(socksBulkRepository);
+    }
+
+    private static GroupCommitWriter.Movement movement(SocksKey key, int delta) {
+        return new GroupCommitWriter.Movement(key, delta, new CompletableFuture<>());
+    }
+
+    private List<CompletableFuture<SocksDto>> flush(GroupCommitWriter.Movement... movements) {
+        writer.flush(List.of(movements));
+        return Stream.of(movements).map(GroupCommitWriter.Movement::result).toList();
+    }
+
+    private static void assertCause(Class<? extends Throwable> expected, CompletableFuture<SocksDto> result) {
+        CompletionException exception = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(expected, exception.getCause());
+    }
+}